@@ -0,0 +1,79 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hashes.collision.DJBX33ACollisionGenerator;
+import org.hashes.config.Configuration;
+import org.hashes.config.Configuration.ConfigurationBuilder;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link CollisionInjector#buildPayload(List)} benchmark.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PayloadBenchmark {
+
+    @Param({ "10000", "85000", "1000000" })
+    private int numberOfKeys;
+
+    private CollisionInjector injector;
+
+    private List<String> collisions;
+
+    /**
+     * Generates the keys once, materialized so only the encoding is measured.
+     */
+    @Setup
+    public void setUp() {
+        final Configuration configuration = new ConfigurationBuilder("localhost").build();
+        this.injector = new CollisionInjector(configuration);
+        this.collisions = new ArrayList<String>(new DJBX33ACollisionGenerator().generateCollisions(this.numberOfKeys,
+                new NoProgressMonitorFactory(), true));
+    }
+
+    /**
+     * Builds the whole request.
+     * 
+     * @return the payload
+     */
+    @Benchmark
+    public byte[] buildPayload() {
+        return this.injector.buildPayload(this.collisions);
+    }
+}
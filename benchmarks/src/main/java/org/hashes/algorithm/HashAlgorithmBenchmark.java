@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.algorithm;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hash algorithm benchmarks across key lengths.
+ * <p>
+ * {@link DJBX31AHashAlgorithm#hash(String)} returns the hash code cached by {@link String}, so the char array
+ * benchmark is the one comparing the algorithms themselves.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashAlgorithmBenchmark {
+
+    @Param({ "DJBX31A", "DJBX33A", "DJBX33X", "V8" })
+    private String algorithm;
+
+    @Param({ "8", "64", "1024" })
+    private int keyLength;
+
+    private HashAlgorithm hashAlgorithm;
+
+    private String key;
+
+    private char[] chars;
+
+    /**
+     * Creates the algorithm and a random printable key.
+     */
+    @Setup
+    public void setUp() {
+        if ("DJBX31A".equals(this.algorithm)) {
+            this.hashAlgorithm = new DJBX31AHashAlgorithm();
+        } else if ("DJBX33A".equals(this.algorithm)) {
+            this.hashAlgorithm = new DJBX33AHashAlgorithm();
+        } else if ("DJBX33X".equals(this.algorithm)) {
+            this.hashAlgorithm = new DJBX33XHashAlgorithm();
+        } else {
+            this.hashAlgorithm = new V8HashAlgorithm();
+        }
+
+        final Random random = new Random(this.keyLength);
+        this.chars = new char[this.keyLength];
+        for (int i = 0; i < this.chars.length; i++) {
+            this.chars[i] = (char) (' ' + random.nextInt('~' - ' ' + 1));
+        }
+        this.key = new String(this.chars);
+    }
+
+    /**
+     * Hashes a {@link String}.
+     * 
+     * @return the hash
+     */
+    @Benchmark
+    public int hashString() {
+        return this.hashAlgorithm.hash(this.key);
+    }
+
+    /**
+     * Hashes a char array.
+     * 
+     * @return the hash
+     */
+    @Benchmark
+    public int hashChars() {
+        return this.hashAlgorithm.hash(this.chars, 0, this.chars.length);
+    }
+}
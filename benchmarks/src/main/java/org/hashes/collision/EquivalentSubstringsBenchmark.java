@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.hashes.progress.ProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Equivalent substrings generator benchmarks. Generated lists are lazy, so every key is materialized.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EquivalentSubstringsBenchmark {
+
+    @Param({ "DJBX31A", "DJBX33A" })
+    private String algorithm;
+
+    @Param({ "10000", "100000", "1000000" })
+    private int numberOfKeys;
+
+    private AbstractEquivalentSubstringsGenerator generator;
+
+    private ProgressMonitor monitor;
+
+    /**
+     * Creates the generator.
+     */
+    @Setup
+    public void setUp() {
+        if ("DJBX31A".equals(this.algorithm)) {
+            this.generator = new DJBX31ACollisionGenerator();
+        } else {
+            this.generator = new DJBX33ACollisionGenerator();
+        }
+
+        this.monitor = new NoProgressMonitorFactory().createProgressMonitor(null, null);
+    }
+
+    /**
+     * Generates and materializes all keys.
+     * 
+     * @param blackhole consumes the keys
+     */
+    @Benchmark
+    public void generate(final Blackhole blackhole) {
+        for (final String key : this.generator.generateNewCollisions(this.numberOfKeys, this.monitor)) {
+            blackhole.consume(key);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hashes.collision.MITMConfiguration.MITMConfigurationBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Meet in the middle generator benchmarks: lookup table construction and single thread crack throughput.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MITMGeneratorBenchmark {
+
+    private static final String SEED = "hashes";
+
+    private static final int KEYS_PER_CRACK = 50;
+
+    @Param({ "DJBX33X", "V8" })
+    private String algorithm;
+
+    @Param({ "262144", "4194304" })
+    private int lookupTableSize;
+
+    private AbstractMITMGenerator generator;
+
+    private int hash;
+
+    private SufixTable lookupTable;
+
+    /**
+     * Creates the generator and the lookup table used by the crack benchmark.
+     */
+    @Setup
+    public void setUp() {
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(SEED).withWorkerThreads(1)
+                .withLookupTableSize(this.lookupTableSize).build();
+        if ("DJBX33X".equals(this.algorithm)) {
+            this.generator = new DJBX33XCollisionGenerator(configuration);
+        } else {
+            this.generator = new V8CollisionGenerator(configuration);
+        }
+
+        this.hash = this.generator.getHashAlgorithm().hash(SEED);
+        this.lookupTable = this.generator.createLookupTable(this.hash);
+    }
+
+    /**
+     * Builds a lookup table.
+     * 
+     * @return the lookup table
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SufixTable buildLookupTable() {
+        return this.generator.createLookupTable(this.hash);
+    }
+
+    /**
+     * Finds colliding keys on a single thread, the score is per key.
+     * 
+     * @return the colliding keys
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(KEYS_PER_CRACK)
+    public List<String> crack() {
+        return this.generator.crack(this.lookupTable, KEYS_PER_CRACK);
+    }
+}
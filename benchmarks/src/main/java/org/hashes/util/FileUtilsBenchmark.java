@@ -0,0 +1,65 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Benchmarks loading the pre-built collision files of the <code>etc</code> directory, packaged as resources.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileUtilsBenchmark {
+
+    @Param({ "DJBX31A", "DJBX33A", "DJBX33X", "V8" })
+    private String algorithm;
+
+    @Param({ "85000" })
+    private int numberOfKeys;
+
+    /**
+     * Reads the text file.
+     * 
+     * @return the keys
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public List<String> readLines() throws IOException {
+        return FileUtils.readLines(this.algorithm + ".txt", this.numberOfKeys, Charsets.UTF_8);
+    }
+}
@@ -17,28 +17,43 @@ package org.hashes;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.util.Iterator;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hashes.algorithm.HashAlgorithm;
+import org.hashes.benchmark.BaselineKeys;
+import org.hashes.benchmark.BenchmarkResult;
+import org.hashes.benchmark.RampBenchmark;
+import org.hashes.benchmark.RampResult;
+import org.hashes.benchmark.SusceptibilityBenchmark;
+import org.hashes.collision.AbstractCollisionGenerator;
+import org.hashes.collision.CollisionSink;
+import org.hashes.collision.FileCollisionSink;
+import org.hashes.config.ClientMode;
 import org.hashes.config.Configuration;
 import org.hashes.config.HttpHost;
+import org.hashes.config.KeyRamp;
 import org.hashes.config.Protocol;
+import org.hashes.metrics.RequestMetrics;
 import org.hashes.progress.ProgressMonitorFactory;
-import org.hashes.util.FileUtils;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.io.Files;
 import com.google.common.net.HttpHeaders;
 
 /**
@@ -51,8 +66,15 @@ public class CollisionInjector {
 
     private static final Log LOG = LogFactory.getLog(CollisionInjector.class);
 
+    private static final String JSON_FILE_SUFIX = ".json";
+
+    private static final int RAMP_SAMPLES = 3;
+
     private final Configuration configuration;
 
+    // only used to measure keys, encodedLength doesn't change its state
+    private final FormUrlEncoder keyEncoder;
+
     /**
      * Creates a new instance with specified configuration.
      * 
@@ -60,6 +82,7 @@ public class CollisionInjector {
      */
     public CollisionInjector(final Configuration configuration) {
         this.configuration = Preconditions.checkNotNull(configuration, "configuration");
+        this.keyEncoder = new FormUrlEncoder(configuration.getCharset(), 0);
     }
 
     /**
@@ -76,56 +99,207 @@ public class CollisionInjector {
      */
     public void start() {
 
-        final ProgressMonitorFactory factory = this.configuration.getProgressMonitorFactory();
-        final int numberOfKeys = this.configuration.getNumberOfKeys();
-        final boolean newKeys = this.configuration.isGenerateNewKeys();
+        final KeyRamp keyRamp = this.configuration.getKeyRamp();
 
-        final List<String> collisions = this.configuration.getCollisionGenerator().generateCollisions(numberOfKeys,
-                factory, newKeys);
+        if (keyRamp == null && this.configuration.getBenchmarkSamples() <= 0) {
+            final List<Runnable> clients = this.createClients(this.generatePayload());
+            this.runClients(clients);
+            this.reportMetrics(clients);
+        } else {
+            final ProgressMonitorFactory factory = this.configuration.getProgressMonitorFactory();
+            final int numberOfKeys = keyRamp == null ? this.configuration.getNumberOfKeys() : keyRamp.getMaxKeys();
+            final boolean newKeys = this.configuration.isGenerateNewKeys();
 
-        this.saveCollisions(collisions);
+            final List<String> collisions = this.configuration.getCollisionGenerator().generateCollisions(numberOfKeys,
+                    factory, newKeys);
 
-        final byte[] payload = this.buildPayload(collisions);
+            this.saveCollisions(collisions);
 
-        final int numberOfClients = this.configuration.getNumberOfClients();
-        final Builder<Runnable> clients = ImmutableList.builder();
+            if (keyRamp != null) {
+                this.runRamp(collisions, keyRamp);
+            } else {
+                this.runBenchmark(collisions, this.buildPayload(collisions));
+            }
+        }
+    }
 
-        for (int i = 0; i < numberOfClients; i++) {
-            clients.add(this.createClient(payload));
+    /**
+     * Generates the keys straight into the request body, and into the collisions file if requested, without holding
+     * the key list in memory.
+     * 
+     * @return the request payload
+     */
+    protected byte[] generatePayload() {
+        final AbstractCollisionGenerator generator = this.configuration.getCollisionGenerator();
+        final FormUrlEncoder body = new FormUrlEncoder(this.configuration.getCharset());
+        final FileCollisionSink fileSink = this.openCollisionsFile();
+
+        CollisionSink sink = body;
+        if (fileSink != null) {
+            sink = new CollisionSink() {
+
+                @Override
+                public void accept(final String key) {
+                    body.accept(key);
+                    fileSink.accept(key);
+                }
+            };
         }
 
-        this.runClients(clients.build());
+        try {
+            generator.generateCollisions(this.configuration.getNumberOfKeys(),
+                    this.configuration.getProgressMonitorFactory(), this.configuration.isGenerateNewKeys(), sink);
+        } finally {
+            if (fileSink != null) {
+                this.closeCollisionsFile(fileSink);
+            }
+        }
+
+        return this.buildPayload(body);
     }
 
-    protected void saveCollisions(final List<String> collisions) {
+    /**
+     * Measures the response time of growing prefixes of the colliding keys.
+     * 
+     * @param collisions the colliding keys
+     * @param keyRamp the key counts to measure
+     * @return the ramp result
+     */
+    protected RampResult runRamp(final List<String> collisions, final KeyRamp keyRamp) {
+        int[] keyCounts = keyRamp.getKeyCounts();
 
-        final File toSave = this.configuration.getCollisionsFile();
-        if (toSave != null) {
-            if (LOG.isInfoEnabled()) {
-                LOG.info("Saving collisions to file: " + toSave.getPath());
+        // pre-built files may hold less keys than requested
+        int steps = 0;
+        while (steps < keyCounts.length && keyCounts[steps] <= collisions.size()) {
+            steps++;
+        }
+        Preconditions.checkState(steps > 1, "Only %s keys available, not enough for the ramp", collisions.size());
+        if (steps < keyCounts.length) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Only " + collisions.size() + " keys available, the ramp stops at " + keyCounts[steps - 1]
+                        + " keys");
+            }
+            keyCounts = Arrays.copyOf(keyCounts, steps);
+        }
+
+        final RampBenchmark ramp = new RampBenchmark(collisions, keyCounts, RAMP_SAMPLES) {
+
+            @Override
+            protected HttpClient createClient(final List<String> keys) {
+                return CollisionInjector.this.createHttpClient(CollisionInjector.this.buildPayload(keys), 1, true);
             }
+        };
+
+        final RampResult result = ramp.run();
+        if (LOG.isInfoEnabled()) {
+            LOG.info(result.toString());
+        }
 
+        return result;
+    }
+
+    /**
+     * Compares the response times of the colliding payload against a non colliding payload of the same size.
+     * 
+     * @param collisions the colliding keys
+     * @param payload the colliding payload
+     * @return the benchmark result
+     */
+    protected BenchmarkResult runBenchmark(final List<String> collisions, final byte[] payload) {
+        final HashAlgorithm hashAlgorithm = this.configuration.getCollisionGenerator().getHashAlgorithm();
+        final List<String> baselineKeys = BaselineKeys.generate(collisions, hashAlgorithm, this.keyEncoder,
+                new Random());
+        final byte[] baselinePayload = this.buildPayload(baselineKeys);
+
+        final int samples = this.configuration.getBenchmarkSamples();
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Benchmarking " + samples + " baseline and collision request(s)");
+        }
+
+        final SusceptibilityBenchmark benchmark = new SusceptibilityBenchmark(//
+                this.createHttpClient(baselinePayload, 1, true), //
+                this.createHttpClient(payload, 1, true), //
+                samples);
+
+        final BenchmarkResult result = benchmark.run();
+        if (LOG.isInfoEnabled()) {
+            LOG.info(result.toString());
+        }
+
+        return result;
+    }
+
+    protected void saveCollisions(final List<String> collisions) {
+
+        final FileCollisionSink fileSink = this.openCollisionsFile();
+        if (fileSink != null) {
             try {
-                FileUtils.writeLines(toSave, collisions, this.configuration.getCharset());
-            } catch (final IOException e) {
-                if (LOG.isErrorEnabled()) {
-                    LOG.error("Could not save collisions to file: " + toSave.getAbsolutePath(), e);
+                for (final String key : collisions) {
+                    fileSink.accept(key);
                 }
+            } finally {
+                this.closeCollisionsFile(fileSink);
+            }
+        }
+    }
+
+    /**
+     * Opens the file to save the collisions, if requested.
+     * 
+     * @return the sink or null if the collisions should not be saved or the file can't be created
+     */
+    private FileCollisionSink openCollisionsFile() {
+        final File toSave = this.configuration.getCollisionsFile();
+        if (toSave == null) {
+            return null;
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Saving collisions to file: " + toSave.getPath());
+        }
+
+        try {
+            return new FileCollisionSink(toSave, this.configuration.getCharset(),
+                    this.configuration.getCollisionGenerator());
+        } catch (final IOException e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Could not save collisions to file: " + toSave.getAbsolutePath(), e);
+            }
+
+            return null;
+        }
+    }
+
+    private void closeCollisionsFile(final FileCollisionSink fileSink) {
+        try {
+            fileSink.close();
+        } catch (final IOException e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Could not save collisions to file: "
+                        + this.configuration.getCollisionsFile().getAbsolutePath(), e);
             }
         }
     }
 
     protected byte[] buildPayload(final List<String> collisions) {
 
-        final String body = this.buildMessageBody(collisions);
+        return this.buildPayload(this.buildMessageBody(collisions));
+    }
 
-        final StringBuilder payloadBuilder = new StringBuilder();
-        this.addRequestLine(payloadBuilder);
-        this.addRequestHeaders(body.length(), payloadBuilder);
+    protected byte[] buildPayload(final FormUrlEncoder body) {
 
-        payloadBuilder.append(body);
+        final StringBuilder headBuilder = new StringBuilder();
+        this.addRequestLine(headBuilder);
+        this.addRequestHeaders(body.size(), headBuilder);
 
-        return payloadBuilder.toString().getBytes(this.configuration.getCharset());
+        final byte[] head = headBuilder.toString().getBytes(this.configuration.getCharset());
+
+        // the body is copied once, straight from the encoder buffer
+        final byte[] payload = new byte[head.length + body.size()];
+        System.arraycopy(head, 0, payload, 0, head.length);
+        body.writeTo(payload, head.length);
+
+        return payload;
     }
 
     protected void addRequestLine(final StringBuilder payloadBuilder) {
@@ -163,49 +337,95 @@ public class CollisionInjector {
         payloadBuilder.append("\r\n");
     }
 
-    protected String buildMessageBody(final List<String> collisions) {
+    protected FormUrlEncoder buildMessageBody(final List<String> collisions) {
 
-        final StringBuilder payloadBuilder = new StringBuilder();
+        final FormUrlEncoder encoder = new FormUrlEncoder(this.configuration.getCharset(),
+                this.estimateBodySize(collisions));
 
-        final String charsetName = this.configuration.getCharset().name();
+        for (final String key : collisions) {
+            encoder.addKey(key);
+        }
 
-        final Iterator<String> iterator = collisions.iterator();
+        return encoder;
+    }
 
-        try {
-            if (iterator.hasNext()) {
-                payloadBuilder.append(URLEncoder.encode(iterator.next(), charsetName));
-                payloadBuilder.append("=");
+    // keys usually have the same length, so the first key is a good sample
+    private int estimateBodySize(final List<String> collisions) {
+        if (collisions.isEmpty()) {
+            return 0;
+        }
+
+        final int keySize = this.keyEncoder.encodedLength(collisions.get(0)) + 2;
+
+        return (int) Math.min((long) keySize * collisions.size(), Integer.MAX_VALUE - 8);
+    }
+
+    protected List<Runnable> createClients(final byte[] payload) {
+
+        final int numberOfClients = this.configuration.getNumberOfClients();
+        final Builder<Runnable> clients = ImmutableList.builder();
+
+        if (this.isNonBlocking()) {
+            // spread the connections evenly over the event loops
+            final int eventLoops = Math.min(this.configuration.getEventLoops(), numberOfClients);
+            for (int i = 0; i < eventLoops; i++) {
+                final int connections = numberOfClients / eventLoops + (i < numberOfClients % eventLoops ? 1 : 0);
+                clients.add(this.createEventLoop(payload, connections));
             }
+        } else {
+            for (int i = 0; i < numberOfClients; i++) {
+                clients.add(this.createClient(payload));
+            }
+        }
+
+        return clients.build();
+    }
 
-            while (iterator.hasNext()) {
-                payloadBuilder.append("&");
-                payloadBuilder.append(URLEncoder.encode(iterator.next(), charsetName));
-                payloadBuilder.append("=");
+    private boolean isNonBlocking() {
+        boolean nonBlocking = false;
+        if (this.configuration.getClientMode() == ClientMode.NON_BLOCKING) {
+            if (this.configuration.getTarget().getProtocol() == Protocol.HTTP) {
+                nonBlocking = true;
+            } else if (LOG.isWarnEnabled()) {
+                LOG.warn("Non blocking clients only support HTTP, falling back to blocking clients");
             }
-        } catch (final UnsupportedEncodingException e) {
-            throw new UnsupportedPayloadEncodingException(e);
         }
 
-        return payloadBuilder.toString();
+        return nonBlocking;
+    }
+
+    protected Runnable createEventLoop(final byte[] payload, final int connections) {
+        return new NioHttpClient(//
+                connections, //
+                this.configuration.getRequestsPerClient(), //
+                this.configuration.getTarget(), //
+                payload, //
+                this.configuration.isWaitResponse(), //
+                this.configuration.getCharset());
     }
 
     protected Runnable createClient(final byte[] payload) {
+        return this.createHttpClient(payload, this.configuration.getRequestsPerClient(),
+                this.configuration.isWaitResponse());
+    }
+
+    protected HttpClient createHttpClient(final byte[] payload, final int requests, final boolean waitForResponse) {
         final HttpHost target = this.configuration.getTarget();
 
-        Runnable client;
+        HttpClient client;
         if (target.getProtocol() == Protocol.HTTP) {
             client = new HttpClient(//
-                    this.configuration.getRequestsPerClient(), //
+                    requests, //
                     target, //
                     payload, //
-                    this.configuration.isWaitResponse(), //
+                    waitForResponse, //
                     this.configuration.getCharset());
         } else if (target.getProtocol() == Protocol.HTTPS) {
             client = new HttpsClient(//
-                    this.configuration.getRequestsPerClient(), //
+                    requests, //
                     target, //
                     payload, //
-                    this.configuration.isWaitResponse(), //
+                    waitForResponse, //
                     this.configuration.getCharset());
         } else {
             throw new UnsupportedOperationException("Client not implemented for protocol: " + target.getProtocol());
@@ -215,7 +435,7 @@ public class CollisionInjector {
     }
 
     /**
-     * Run the specified clients on each thread.
+     * Run the specified clients on each thread and wait for them to finish.
      * 
      * @param clients clients to run
      */
@@ -228,7 +448,15 @@ public class CollisionInjector {
             LOG.info("Starting " + clients.size() + " client(s)");
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(numberOfClients);
+        ExecutorService executor = null;
+        if (this.configuration.getClientMode() == ClientMode.VIRTUAL_THREADS) {
+            executor = newVirtualThreadPerTaskExecutor();
+        }
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(numberOfClients);
+        }
+
         try {
             for (final Runnable client : clients) {
                 executor.execute(client);
@@ -236,5 +464,97 @@ public class CollisionInjector {
         } finally {
             executor.shutdown();
         }
+
+        // metrics are only complete once every client is done
+        awaitTermination(executor);
+    }
+
+    /**
+     * Merges the metrics of all clients, logs a summary and saves it if requested.
+     * 
+     * @param clients finished clients
+     */
+    protected void reportMetrics(final List<Runnable> clients) {
+        final RequestMetrics metrics = new RequestMetrics();
+        for (final Runnable client : clients) {
+            if (client instanceof MeasuredClient) {
+                metrics.merge(((MeasuredClient) client).getMetrics());
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info(metrics.toString());
+        }
+
+        final File toSave = this.configuration.getMetricsFile();
+        if (toSave != null) {
+            if (LOG.isInfoEnabled()) {
+                LOG.info("Saving metrics to file: " + toSave.getPath());
+            }
+
+            Writer writer = null;
+            try {
+                writer = Files.newWriter(toSave, this.configuration.getCharset());
+                if (toSave.getName().endsWith(JSON_FILE_SUFIX)) {
+                    metrics.writeJson(writer);
+                } else {
+                    metrics.writeCsv(writer);
+                }
+            } catch (final IOException e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Could not save metrics to file: " + toSave.getAbsolutePath(), e);
+                }
+            } finally {
+                closeQuietly(writer);
+            }
+        }
+    }
+
+    private static void closeQuietly(final Writer writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (final IOException e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Could not close metrics file. " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        // looked up reflectively, the project still targets runtimes without virtual threads
+        ExecutorService executor = null;
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executor = (ExecutorService) factory.invoke(null);
+        } catch (final NoSuchMethodException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Virtual threads are not supported by this runtime, falling back to platform threads");
+            }
+        } catch (final InvocationTargetException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Could not create virtual threads, falling back to platform threads", e.getCause());
+            }
+        } catch (final IllegalAccessException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Could not create virtual threads, falling back to platform threads", e);
+            }
+        }
+
+        return executor;
+    }
+
+    private static void awaitTermination(final ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Waiting for clients to finish");
+                }
+            }
+        } catch (final InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 }
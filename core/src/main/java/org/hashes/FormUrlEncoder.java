@@ -0,0 +1,282 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.hashes.collision.CollisionSink;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Encodes keys as an <code>application/x-www-form-urlencoded</code> body with empty values (
+ * <code>key1=&amp;key2=...</code>), writing the encoded bytes directly into a growable byte buffer.
+ * <p>
+ * The encoding is the same as {@link java.net.URLEncoder}: alphanumeric characters and <code>.-*_</code> are kept,
+ * space is converted to <code>+</code> and all other characters are converted to bytes using the specified charset
+ * and percent encoded. ASCII characters are encoded through a precomputed table, without creating temporary strings.
+ * Unlike {@link java.net.URLEncoder}, characters that the charset can't encode are rejected instead of being replaced,
+ * since a replaced key no longer collides.
+ * <p>
+ * As a {@link CollisionSink}, keys can be encoded as they are generated. Instances are not thread safe.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class FormUrlEncoder implements CollisionSink {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int ASCII = 128;
+
+    private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D',
+            'E', 'F' };
+
+    // encoded byte of each ASCII character that doesn't need percent encoding, zero otherwise
+    private static final byte[] SAFE = new byte[ASCII];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            SAFE[c] = (byte) c;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            SAFE[c] = (byte) c;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            SAFE[c] = (byte) c;
+        }
+        SAFE['-'] = '-';
+        SAFE['_'] = '_';
+        SAFE['.'] = '.';
+        SAFE['*'] = '*';
+        SAFE[' '] = '+';
+    }
+
+    private final Charset charset;
+
+    // true if the charset encodes each ASCII character as the same single byte
+    private final boolean asciiCompatible;
+
+    private byte[] buffer;
+
+    private int count;
+
+    private int numberOfKeys;
+
+    /**
+     * Creates a new encoder.
+     * 
+     * @param charset charset used to encode non ASCII characters
+     */
+    public FormUrlEncoder(final Charset charset) {
+        this(charset, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new encoder with the specified initial capacity.
+     * 
+     * @param charset charset used to encode non ASCII characters
+     * @param initialCapacity initial buffer capacity in bytes
+     */
+    public FormUrlEncoder(final Charset charset, final int initialCapacity) {
+        this.charset = Preconditions.checkNotNull(charset, "charset");
+        Preconditions.checkArgument(initialCapacity >= 0, "initialCapacity");
+        this.asciiCompatible = isAsciiCompatible(charset);
+        this.buffer = new byte[initialCapacity];
+    }
+
+    private static boolean isAsciiCompatible(final Charset charset) {
+        final char[] ascii = new char[ASCII];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (char) i;
+        }
+
+        final byte[] encoded = new String(ascii).getBytes(charset);
+        if (encoded.length != ASCII) {
+            return false;
+        }
+
+        for (int i = 0; i < encoded.length; i++) {
+            if (encoded[i] != i) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the number of bytes needed to encode the specified key, without encoding it.
+     * <p>
+     * The separators (<code>&amp;</code> and <code>=</code>) are not included.
+     * 
+     * @param key the key
+     * @return the number of bytes of the encoded key
+     * @throws UnsupportedPayloadEncodingException if the charset can't encode the key
+     */
+    public int encodedLength(final String key) {
+        Preconditions.checkNotNull(key, "key");
+
+        int length = 0;
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if (c < ASCII && SAFE[c] != 0) {
+                length++;
+            } else if (c < ASCII && this.asciiCompatible) {
+                length += 3;
+            } else {
+                final int end = this.endOfUnsafeRun(key, i);
+                length += 3 * this.toBytes(key.substring(i, end)).length;
+                i = end - 1;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Appends a key with an empty value to the body.
+     * 
+     * @param key the key
+     * @return this encoder
+     * @throws UnsupportedPayloadEncodingException if the charset can't encode the key
+     */
+    public FormUrlEncoder addKey(final String key) {
+        Preconditions.checkNotNull(key, "key");
+
+        this.ensureCapacity(key.length() + 2);
+
+        if (this.numberOfKeys > 0) {
+            this.buffer[this.count++] = '&';
+        }
+
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if (c < ASCII && SAFE[c] != 0) {
+                this.buffer[this.count++] = SAFE[c];
+            } else if (c < ASCII && this.asciiCompatible) {
+                this.ensureCapacity(3 + key.length() - i);
+                this.percentEncode((byte) c);
+            } else {
+                final int end = this.endOfUnsafeRun(key, i);
+                final byte[] bytes = this.toBytes(key.substring(i, end));
+                this.ensureCapacity(3 * bytes.length + key.length() - end + 1);
+                for (final byte b : bytes) {
+                    this.percentEncode(b);
+                }
+                i = end - 1;
+            }
+        }
+
+        this.buffer[this.count++] = '=';
+        this.numberOfKeys++;
+
+        return this;
+    }
+
+    /**
+     * Appends a key with an empty value to the body.
+     * 
+     * @param key the key
+     */
+    @Override
+    public void accept(final String key) {
+        this.addKey(key);
+    }
+
+    // characters that need encoding are converted together, like URLEncoder does (e.g. surrogate pairs)
+    private int endOfUnsafeRun(final String key, final int start) {
+        int end = start + 1;
+        while (end < key.length() && !this.isSingleByte(key.charAt(end))) {
+            end++;
+        }
+
+        return end;
+    }
+
+    // String.getBytes would silently replace unmappable characters, the encoder reports them
+    private byte[] toBytes(final String run) {
+        try {
+            final ByteBuffer bytes = this.charset.newEncoder().encode(CharBuffer.wrap(run));
+            return Arrays.copyOf(bytes.array(), bytes.limit());
+        } catch (final CharacterCodingException e) {
+            throw new UnsupportedPayloadEncodingException(e);
+        }
+    }
+
+    private boolean isSingleByte(final char c) {
+        return c < ASCII && (SAFE[c] != 0 || this.asciiCompatible);
+    }
+
+    private void percentEncode(final byte b) {
+        this.buffer[this.count++] = '%';
+        this.buffer[this.count++] = HEX_DIGITS[(b >> 4) & 0xF];
+        this.buffer[this.count++] = HEX_DIGITS[b & 0xF];
+    }
+
+    private void ensureCapacity(final int extra) {
+        final int required = this.count + extra;
+        if (required < 0) {
+            throw new OutOfMemoryError("Form body too large");
+        }
+
+        if (required > this.buffer.length) {
+            final int doubled = this.buffer.length << 1;
+            this.buffer = Arrays.copyOf(this.buffer, doubled > required ? doubled : required);
+        }
+    }
+
+    /**
+     * Gets the number of bytes of the encoded body, i.e. the content length.
+     * 
+     * @return the number of bytes of the encoded body
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Gets the number of encoded keys.
+     * 
+     * @return the number of encoded keys
+     */
+    public int getNumberOfKeys() {
+        return this.numberOfKeys;
+    }
+
+    /**
+     * Copies the encoded body to the specified array.
+     * 
+     * @param dest destination array
+     * @param offset position of the first byte in the destination array
+     */
+    public void writeTo(final byte[] dest, final int offset) {
+        System.arraycopy(this.buffer, 0, dest, offset, this.count);
+    }
+
+    /**
+     * Gets a copy of the encoded body.
+     * 
+     * @return the encoded body
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.count);
+    }
+}
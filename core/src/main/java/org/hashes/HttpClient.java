@@ -15,6 +15,7 @@
  */
 package org.hashes;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -26,9 +27,10 @@ import java.nio.charset.Charset;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hashes.config.HttpHost;
+import org.hashes.metrics.RequestMetrics;
+import org.hashes.metrics.RequestMetrics.Phase;
 
 import com.google.common.base.Preconditions;
-import com.google.common.io.ByteStreams;
 
 /**
  * Http client.
@@ -36,10 +38,12 @@ import com.google.common.io.ByteStreams;
  * @author ribeirux
  * @version $Revision$
  */
-public class HttpClient implements Runnable {
+public class HttpClient implements MeasuredClient {
 
     private static final Log LOG = LogFactory.getLog(HttpClient.class);
 
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
     private final int requests;
 
     private final HttpHost target;
@@ -50,6 +54,8 @@ public class HttpClient implements Runnable {
 
     private final Charset responseCharset;
 
+    private final RequestMetrics metrics = new RequestMetrics();
+
     /**
      * Creates a new collision injector.
      * 
@@ -71,37 +77,88 @@ public class HttpClient implements Runnable {
     @Override
     public void run() {
         for (int i = 0; i < this.requests; i++) {
-
-            Socket socket = null;
-            OutputStream output = null;
-            InputStream input = null;
-
             try {
-                socket = this.createUnconnectedSocket();
-                this.applySettings(socket);
-                socket.connect(new InetSocketAddress(this.target.getHostname(), this.target.getPort()),
-                        this.target.getConnectTimeout());
-
-                // write the entire byte array in one shot and close the stream.
-                // In this situation, buffering would add extra overhead!
-                output = socket.getOutputStream();
-                output.write(this.payload);
-                output.flush();
-
-                if (this.waitForResponse && LOG.isInfoEnabled()) {
-                    input = socket.getInputStream();
-                    LOG.info(new String(ByteStreams.toByteArray(input), this.responseCharset));
-                }
+                this.send();
             } catch (final Exception e) {
+                this.metrics.recordError();
                 if (LOG.isErrorEnabled()) {
                     LOG.error("An error occurred while injecting payload. " + e.getMessage(), e);
                 }
-            } finally {
-                this.closeQuietly(output, input, socket);
             }
         }
     }
 
+    /**
+     * Injects the payload once, recording the request timings.
+     * 
+     * @return elapsed time in nanoseconds, until the end of the response if waiting for it or until the end of the
+     *         write otherwise
+     * @throws IOException if an I/O error occurs
+     */
+    public long send() throws IOException {
+        Socket socket = null;
+        OutputStream output = null;
+        InputStream input = null;
+
+        try {
+            final long start = System.nanoTime();
+            socket = this.createUnconnectedSocket();
+            this.applySettings(socket);
+            socket.connect(new InetSocketAddress(this.target.getHostname(), this.target.getPort()),
+                    this.target.getConnectTimeout());
+            final long connected = System.nanoTime();
+            this.metrics.record(Phase.CONNECT, connected - start);
+
+            // write the entire byte array in one shot and close the stream.
+            // In this situation, buffering would add extra overhead!
+            output = socket.getOutputStream();
+            output.write(this.payload);
+            output.flush();
+            final long written = System.nanoTime();
+            this.metrics.record(Phase.WRITE, written - connected);
+
+            long end = written;
+            if (this.waitForResponse) {
+                input = socket.getInputStream();
+                end = this.readResponse(input, start, written);
+            }
+
+            return end - start;
+        } finally {
+            this.closeQuietly(output, input, socket);
+        }
+    }
+
+    private long readResponse(final InputStream input, final long start, final long written) throws IOException {
+        final ByteArrayOutputStream response = LOG.isInfoEnabled() ? new ByteArrayOutputStream() : null;
+        final byte[] buffer = new byte[READ_BUFFER_SIZE];
+
+        int read = input.read(buffer);
+        if (read >= 0) {
+            this.metrics.record(Phase.FIRST_BYTE, System.nanoTime() - written);
+        }
+
+        while (read >= 0) {
+            if (response != null) {
+                response.write(buffer, 0, read);
+            }
+            read = input.read(buffer);
+        }
+        final long end = System.nanoTime();
+        this.metrics.record(Phase.RESPONSE, end - start);
+
+        if (response != null) {
+            LOG.info(new String(response.toByteArray(), this.responseCharset));
+        }
+
+        return end;
+    }
+
+    @Override
+    public RequestMetrics getMetrics() {
+        return this.metrics;
+    }
+
     private void closeQuietly(final OutputStream output, final InputStream input, final Socket socket) {
 
         if (output != null) {
@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes;
+
+import org.hashes.metrics.RequestMetrics;
+
+/**
+ * Client that records the timings of the requests it injects.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public interface MeasuredClient extends Runnable {
+
+    /**
+     * Gets the metrics recorded by this client. Only meaningful once the client is done.
+     * 
+     * @return the request metrics
+     */
+    RequestMetrics getMetrics();
+}
@@ -0,0 +1,346 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hashes.config.HttpHost;
+import org.hashes.metrics.RequestMetrics;
+import org.hashes.metrics.RequestMetrics.Phase;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Non blocking http client.
+ * <p>
+ * A single thread drives several connections through one {@link Selector}. Each connection injects the configured
+ * number of requests sequentially, exactly like {@link HttpClient}, but no thread is parked while the target is
+ * busy. All connections write the same read-only view of the payload, so the payload is never copied.
+ * <p>
+ * Only plain HTTP is supported.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public class NioHttpClient implements MeasuredClient {
+
+    private static final Log LOG = LogFactory.getLog(NioHttpClient.class);
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private static final long SELECT_TIMEOUT = 100;
+
+    private final int connections;
+
+    private final int requests;
+
+    private final HttpHost target;
+
+    private final ByteBuffer payload;
+
+    private final boolean waitForResponse;
+
+    private final Charset responseCharset;
+
+    private final RequestMetrics metrics = new RequestMetrics();
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    private int activeConnections;
+
+    /**
+     * Connection state attached to each selection key.
+     */
+    private static final class Connection {
+
+        private int remainingRequests;
+
+        private ByteBuffer payload;
+
+        private ByteArrayOutputStream response;
+
+        private long deadline;
+
+        private long start;
+
+        private long connected;
+
+        private long written;
+
+        private boolean firstByte;
+
+        Connection(final int requests) {
+            this.remainingRequests = requests;
+        }
+    }
+
+    /**
+     * Creates a new non blocking client.
+     * 
+     * @param connections number of concurrent connections handled by this client
+     * @param requests number of requests to inject per connection
+     * @param target the target host
+     * @param payload payload to inject
+     * @param waitForResponse if true wait for the response else continue the injection without waiting for response
+     * @param charset request charset
+     */
+    public NioHttpClient(final int connections, final int requests, final HttpHost target, final byte[] payload,
+            final boolean waitForResponse, final Charset charset) {
+        Preconditions.checkArgument(connections > 0, "connections");
+        Preconditions.checkNotNull(payload, "payload");
+
+        this.connections = connections;
+        this.requests = requests;
+        this.target = Preconditions.checkNotNull(target);
+        this.payload = ByteBuffer.wrap(payload).asReadOnlyBuffer();
+        this.waitForResponse = waitForResponse;
+        this.responseCharset = Preconditions.checkNotNull(charset, "responseCharset");
+    }
+
+    @Override
+    public void run() {
+        if (this.requests <= 0) {
+            return;
+        }
+
+        Selector selector = null;
+        try {
+            selector = Selector.open();
+            final InetSocketAddress address = new InetSocketAddress(this.target.getHostname(), this.target.getPort());
+
+            for (int i = 0; i < this.connections; i++) {
+                this.activeConnections++;
+                this.connect(selector, address, new Connection(this.requests));
+            }
+
+            while (this.activeConnections > 0 && !Thread.currentThread().isInterrupted()) {
+                selector.select(SELECT_TIMEOUT);
+
+                final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    final SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    this.process(selector, address, key);
+                }
+
+                this.expireConnections(selector, address);
+            }
+        } catch (final IOException e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Could not run event loop. " + e.getMessage(), e);
+            }
+        } finally {
+            this.abandonConnections(selector);
+            this.closeQuietly(selector);
+        }
+    }
+
+    @Override
+    public RequestMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    // closing the selector deregisters the channels without closing them
+    private void abandonConnections(final Selector selector) {
+        if (selector == null) {
+            return;
+        }
+
+        int abandoned = 0;
+        for (final SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                abandoned += ((Connection) key.attachment()).remainingRequests;
+                this.closeQuietly(key.channel());
+            }
+        }
+
+        if (abandoned > 0) {
+            this.metrics.recordErrors(abandoned);
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Abandoned " + abandoned + " request(s) before completion");
+            }
+        }
+    }
+
+    private void closeQuietly(final Selector selector) {
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (final IOException e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Could not close client selector. " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void process(final Selector selector, final InetSocketAddress address, final SelectionKey key) {
+        final Connection connection = (Connection) key.attachment();
+        final SocketChannel channel = (SocketChannel) key.channel();
+
+        try {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                this.connected(connection);
+                key.interestOps(SelectionKey.OP_WRITE);
+                connection.deadline = 0;
+            } else if (key.isWritable()) {
+                // a partial write just waits for the next writable event
+                channel.write(connection.payload);
+                if (!connection.payload.hasRemaining()) {
+                    connection.written = System.nanoTime();
+                    this.metrics.record(Phase.WRITE, connection.written - connection.connected);
+                    if (this.waitForResponse) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        connection.deadline = this.deadline(this.target.getReadTimeout());
+                    } else {
+                        this.complete(selector, address, key);
+                    }
+                }
+            } else if (key.isReadable()) {
+                this.readBuffer.clear();
+                final int read = channel.read(this.readBuffer);
+                if (read < 0) {
+                    this.metrics.record(Phase.RESPONSE, System.nanoTime() - connection.start);
+                    if (connection.response != null && LOG.isInfoEnabled()) {
+                        LOG.info(new String(connection.response.toByteArray(), this.responseCharset));
+                    }
+                    this.complete(selector, address, key);
+                } else {
+                    if (!connection.firstByte) {
+                        connection.firstByte = true;
+                        this.metrics.record(Phase.FIRST_BYTE, System.nanoTime() - connection.written);
+                    }
+                    if (connection.response != null) {
+                        this.readBuffer.flip();
+                        while (this.readBuffer.hasRemaining()) {
+                            connection.response.write(this.readBuffer.get());
+                        }
+                    }
+                    connection.deadline = this.deadline(this.target.getReadTimeout());
+                }
+            }
+        } catch (final IOException e) {
+            this.metrics.recordError();
+            if (LOG.isErrorEnabled()) {
+                LOG.error("An error occurred while injecting payload. " + e.getMessage(), e);
+            }
+            this.complete(selector, address, key);
+        }
+    }
+
+    private void connect(final Selector selector, final InetSocketAddress address, final Connection connection) {
+        while (connection.remainingRequests > 0) {
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+
+                connection.start = System.nanoTime();
+                connection.firstByte = false;
+                connection.payload = this.payload.duplicate();
+                connection.response = this.waitForResponse && LOG.isInfoEnabled() ? new ByteArrayOutputStream()
+                        : null;
+
+                if (channel.connect(address)) {
+                    this.connected(connection);
+                    connection.deadline = 0;
+                    channel.register(selector, SelectionKey.OP_WRITE, connection);
+                } else {
+                    connection.deadline = this.deadline(this.target.getConnectTimeout());
+                    channel.register(selector, SelectionKey.OP_CONNECT, connection);
+                }
+
+                return;
+            } catch (final IOException e) {
+                this.metrics.recordError();
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("An error occurred while injecting payload. " + e.getMessage(), e);
+                }
+                this.closeQuietly(channel);
+                connection.remainingRequests--;
+            }
+        }
+
+        this.activeConnections--;
+    }
+
+    private void connected(final Connection connection) {
+        connection.connected = System.nanoTime();
+        this.metrics.record(Phase.CONNECT, connection.connected - connection.start);
+    }
+
+    private void complete(final Selector selector, final InetSocketAddress address, final SelectionKey key) {
+        key.cancel();
+        this.closeQuietly(key.channel());
+
+        final Connection connection = (Connection) key.attachment();
+        connection.remainingRequests--;
+        this.connect(selector, address, connection);
+    }
+
+    private void expireConnections(final Selector selector, final InetSocketAddress address) {
+        final long now = System.nanoTime();
+
+        // completing a connection registers the next one, so iterate over a snapshot
+        for (final SelectionKey key : new ArrayList<SelectionKey>(selector.keys())) {
+            final Connection connection = (Connection) key.attachment();
+            if (key.isValid() && connection.deadline != 0 && now - connection.deadline > 0) {
+                this.metrics.recordError();
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("An error occurred while injecting payload. Connection timed out");
+                }
+                this.complete(selector, address, key);
+            }
+        }
+    }
+
+    // 0 means no deadline, like the socket timeouts
+    private long deadline(final int timeout) {
+        if (timeout == 0) {
+            return 0;
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        return deadline == 0 ? 1 : deadline;
+    }
+
+    private void closeQuietly(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (final IOException e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Could not close client channel. " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
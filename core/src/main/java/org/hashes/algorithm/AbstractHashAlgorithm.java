@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.algorithm;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Base class of hash algorithms.
+ * <p>
+ * Implements all hash methods on top of the incremental API. By default the hash code is the final state.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public abstract class AbstractHashAlgorithm implements HashAlgorithm {
+
+    @Override
+    public int hash(final String key) {
+        Preconditions.checkNotNull(key, "key");
+
+        return this.hash(key, 0, key.length());
+    }
+
+    @Override
+    public int hash(final CharSequence key, final int start, final int end) {
+        Preconditions.checkNotNull(key, "key");
+        Preconditions.checkPositionIndexes(start, end, key.length());
+
+        int state = this.initialState();
+        for (int i = start; i < end; i++) {
+            state = this.step(state, key.charAt(i));
+        }
+
+        return this.finish(state);
+    }
+
+    @Override
+    public int hash(final char[] key, final int offset, final int length) {
+        Preconditions.checkNotNull(key, "key");
+        Preconditions.checkPositionIndexes(offset, offset + length, key.length);
+
+        int state = this.initialState();
+        for (int i = offset; i < offset + length; i++) {
+            state = this.step(state, key[i]);
+        }
+
+        return this.finish(state);
+    }
+
+    @Override
+    public int finish(final int state) {
+        return state;
+    }
+
+}
@@ -23,13 +23,24 @@ import com.google.common.base.Preconditions;
  * @author ribeirux
  * @version $Revision$
  */
-public class DJBX31AHashAlgorithm implements HashAlgorithm {
+public class DJBX31AHashAlgorithm extends AbstractHashAlgorithm {
 
     @Override
     public int hash(final String key) {
         Preconditions.checkNotNull(key, "key");
 
+        // same algorithm, but cached by the string
         return key.hashCode();
     }
 
+    @Override
+    public int initialState() {
+        return 0;
+    }
+
+    @Override
+    public int step(final int state, final char c) {
+        return 31 * state + c;
+    }
+
 }
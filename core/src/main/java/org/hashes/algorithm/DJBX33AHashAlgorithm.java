@@ -15,25 +15,22 @@
  */
 package org.hashes.algorithm;
 
-import com.google.common.base.Preconditions;
-
 /**
  * DJBX33A hash algorithm.
  * 
  * @author ribeirux
  * @version $Revision$
  */
-public class DJBX33AHashAlgorithm implements HashAlgorithm {
+public class DJBX33AHashAlgorithm extends AbstractHashAlgorithm {
 
     @Override
-    public int hash(final String key) {
-        Preconditions.checkNotNull(key, "key");
-        int hash = 5381;
-        for (int i = 0; i < key.length(); i++) {
-            hash = ((hash << 5) + hash) + key.charAt(i);
-        }
+    public int initialState() {
+        return 5381;
+    }
 
-        return hash;
+    @Override
+    public int step(final int state, final char c) {
+        return ((state << 5) + state) + c;
     }
 
 }
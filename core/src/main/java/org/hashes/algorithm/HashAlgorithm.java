@@ -17,6 +17,17 @@ package org.hashes.algorithm;
 
 /**
  * Hash algorithm.
+ * <p>
+ * Besides hashing whole keys, all algorithms expose their internal state, so keys can be hashed incrementally one
+ * character at a time:
+ * 
+ * <pre>
+ * int state = algorithm.initialState();
+ * for (char c : key) {
+ *     state = algorithm.step(state, c);
+ * }
+ * int hash = algorithm.finish(state);
+ * </pre>
  * 
  * @author ribeirux
  * @version $Revision$
@@ -31,4 +42,48 @@ public interface HashAlgorithm {
      */
     int hash(String key);
 
+    /**
+     * Computes the hash code of the specified range of characters.
+     * 
+     * @param key the characters to compute the hash code
+     * @param start index of the first character, inclusive
+     * @param end index of the last character, exclusive
+     * @return the hash code
+     */
+    int hash(CharSequence key, int start, int end);
+
+    /**
+     * Computes the hash code of the specified range of characters.
+     * 
+     * @param key the characters to compute the hash code
+     * @param offset index of the first character
+     * @param length number of characters
+     * @return the hash code
+     */
+    int hash(char[] key, int offset, int length);
+
+    /**
+     * Gets the state before any character is hashed.
+     * 
+     * @return the initial state
+     */
+    int initialState();
+
+    /**
+     * Updates the state with the next character.
+     * 
+     * @param state the current state
+     * @param c the next character
+     * @return the updated state
+     */
+    int step(int state, char c);
+
+    /**
+     * Computes the hash code of the characters hashed so far.
+     * 
+     * @param state the current state
+     * @return the hash code
+     */
+    int finish(int state);
+
 }
@@ -15,26 +15,24 @@
  */
 package org.hashes.algorithm;
 
-import com.google.common.base.Preconditions;
-
 /**
  * V8 hash algorithm.
  * 
  * @author ribeirux
  * @version $Revision$
  */
-public class V8HashAlgorithm implements HashAlgorithm {
+public class V8HashAlgorithm extends AbstractHashAlgorithm {
 
     @Override
-    public int hash(final String key) {
-        Preconditions.checkNotNull(key, "key");
+    public int initialState() {
+        return 0;
+    }
 
-        int hash = 0;
-        for (int i = 0; i < key.length(); i++) {
-            hash += key.charAt(i);
-            hash += (hash << 10);
-            hash ^= (hash >>> 6);
-        }
+    @Override
+    public int step(final int state, final char c) {
+        int hash = state + c;
+        hash += (hash << 10);
+        hash ^= (hash >>> 6);
 
         return hash;
     }
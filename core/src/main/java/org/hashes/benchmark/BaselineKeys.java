@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.hashes.FormUrlEncoder;
+import org.hashes.algorithm.HashAlgorithm;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableList.Builder;
+
+/**
+ * Builds non colliding control keys for a list of colliding keys.
+ * <p>
+ * Each control key is a random permutation of the characters of the matching colliding key, so both payloads have the
+ * same key count, the same key lengths and the same encoded size. Permutations are redrawn until every control key has
+ * a distinct hash. When all permutations of a key are taken, characters borrowed from other keys replace characters
+ * of the same encoded length, so the encoded size is kept.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class BaselineKeys {
+
+    private static final int MAX_SHUFFLES = 64;
+
+    private BaselineKeys() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Builds one non colliding key for each colliding key.
+     * 
+     * @param collisions the colliding keys
+     * @param hashAlgorithm algorithm used by the target
+     * @param encoder encoder of the payload, used to compare the encoded length of the characters
+     * @param random source of randomness
+     * @return the control keys, in the same order as the colliding keys
+     */
+    public static List<String> generate(final List<String> collisions, final HashAlgorithm hashAlgorithm,
+            final FormUrlEncoder encoder, final Random random) {
+        Preconditions.checkNotNull(collisions, "collisions");
+        Preconditions.checkNotNull(hashAlgorithm, "hashAlgorithm");
+        Preconditions.checkNotNull(encoder, "encoder");
+        Preconditions.checkNotNull(random, "random");
+
+        final Set<Integer> hashes = new HashSet<Integer>(collisions.size() * 2);
+        final Builder<String> keys = ImmutableList.builder();
+
+        for (final String collision : collisions) {
+            final char[] chars = collision.toCharArray();
+            String key = null;
+            int attempt = 0;
+            do {
+                if (attempt++ < MAX_SHUFFLES) {
+                    shuffle(chars, random);
+                } else {
+                    // all permutations are taken (short or repetitive keys), so borrow another character
+                    final int index = random.nextInt(chars.length);
+                    final char borrowed = pick(collisions, random);
+                    if (encodedLength(encoder, borrowed) == encodedLength(encoder, chars[index])) {
+                        chars[index] = borrowed;
+                    }
+                }
+                key = new String(chars);
+            } while (chars.length > 0 && !hashes.add(Integer.valueOf(hashAlgorithm.hash(key))));
+
+            keys.add(key);
+        }
+
+        return keys.build();
+    }
+
+    private static void shuffle(final char[] chars, final Random random) {
+        for (int i = chars.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final char tmp = chars[i];
+            chars[i] = chars[j];
+            chars[j] = tmp;
+        }
+    }
+
+    private static int encodedLength(final FormUrlEncoder encoder, final char c) {
+        return encoder.encodedLength(String.valueOf(c));
+    }
+
+    private static char pick(final List<String> collisions, final Random random) {
+        final String key = collisions.get(random.nextInt(collisions.size()));
+
+        return key.isEmpty() ? 'a' : key.charAt(random.nextInt(key.length()));
+    }
+}
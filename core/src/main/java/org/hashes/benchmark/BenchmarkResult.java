@@ -0,0 +1,144 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Outcome of a {@link SusceptibilityBenchmark}.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class BenchmarkResult {
+
+    /**
+     * Significance level below which the target is reported as susceptible.
+     */
+    public static final double SIGNIFICANCE_LEVEL = 0.01;
+
+    private final long[] baseline;
+
+    private final long[] collision;
+
+    private final int failures;
+
+    /**
+     * Creates a new result.
+     * 
+     * @param baseline response times of the baseline payload, in nanoseconds
+     * @param collision response times of the colliding payload, in nanoseconds
+     * @param failures number of discarded samples
+     */
+    public BenchmarkResult(final long[] baseline, final long[] collision, final int failures) {
+        Preconditions.checkArgument(baseline.length > 0 && collision.length > 0, "no samples");
+
+        this.baseline = baseline.clone();
+        this.collision = collision.clone();
+        this.failures = failures;
+    }
+
+    /**
+     * Gets the number of successful samples of each payload.
+     * 
+     * @return the number of samples
+     */
+    public int getSamples() {
+        return Math.min(this.baseline.length, this.collision.length);
+    }
+
+    /**
+     * Gets the failures property.
+     * 
+     * @return the failures property
+     */
+    public int getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * Median response time of the baseline payload.
+     * 
+     * @return the median in nanoseconds
+     */
+    public double getBaselineMedian() {
+        return Statistics.median(this.baseline);
+    }
+
+    /**
+     * Median response time of the colliding payload.
+     * 
+     * @return the median in nanoseconds
+     */
+    public double getCollisionMedian() {
+        return Statistics.median(this.collision);
+    }
+
+    /**
+     * Ratio between the collision and the baseline median response times.
+     * 
+     * @return the latency ratio
+     */
+    public double getRatio() {
+        final double baselineMedian = this.getBaselineMedian();
+
+        return baselineMedian == 0 ? Double.POSITIVE_INFINITY : this.getCollisionMedian() / baselineMedian;
+    }
+
+    /**
+     * Mann-Whitney z score of the collision samples against the baseline samples.
+     * 
+     * @return the z score, positive when colliding requests are slower
+     */
+    public double getZScore() {
+        return Statistics.mannWhitneyZ(this.collision, this.baseline);
+    }
+
+    /**
+     * Two sided p-value of the difference between both samples.
+     * 
+     * @return the p-value
+     */
+    public double getPValue() {
+        return Statistics.twoSidedPValue(this.getZScore());
+    }
+
+    /**
+     * True if colliding requests are significantly slower than baseline requests.
+     * 
+     * @return true if the target looks susceptible to hash collisions
+     */
+    public boolean isSusceptible() {
+        return this.getZScore() > 0 && this.getPValue() < SIGNIFICANCE_LEVEL;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH,
+                "Baseline median: %.3fms, collision median: %.3fms, ratio: %.2f, z: %.2f, p-value: %.2g"
+                        + " (%d samples, %d failures). Target %s susceptible to hash collisions",
+                toMillis(this.getBaselineMedian()), toMillis(this.getCollisionMedian()), this.getRatio(),
+                this.getZScore(), this.getPValue(), this.getSamples(), this.failures,
+                this.isSusceptible() ? "looks" : "does not look");
+    }
+
+    private static double toMillis(final double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
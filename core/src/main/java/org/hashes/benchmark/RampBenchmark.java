@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hashes.HttpClient;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Measures the response time of growing prefixes of a single colliding key list.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public abstract class RampBenchmark {
+
+    private static final Log LOG = LogFactory.getLog(RampBenchmark.class);
+
+    private final List<String> collisions;
+
+    private final int[] keyCounts;
+
+    private final int samples;
+
+    /**
+     * Creates a new ramp benchmark.
+     * 
+     * @param collisions colliding keys, at least as many as the last key count
+     * @param keyCounts increasing number of keys of each step
+     * @param samples number of requests per step, the median is kept
+     */
+    public RampBenchmark(final List<String> collisions, final int[] keyCounts, final int samples) {
+        Preconditions.checkNotNull(collisions, "collisions");
+        Preconditions.checkArgument(keyCounts.length > 1, "keyCounts");
+        Preconditions.checkArgument(keyCounts[keyCounts.length - 1] <= collisions.size(), "not enough collisions");
+        Preconditions.checkArgument(samples > 0, "samples");
+
+        this.collisions = collisions;
+        this.keyCounts = keyCounts.clone();
+        this.samples = samples;
+    }
+
+    /**
+     * Creates the client used to send the specified keys. The client must wait for the response.
+     * 
+     * @param keys the keys to send
+     * @return the client
+     */
+    protected abstract HttpClient createClient(List<String> keys);
+
+    /**
+     * Runs the ramp.
+     * 
+     * @return the ramp result
+     */
+    public RampResult run() {
+        final long[] medians = new long[this.keyCounts.length];
+
+        for (int step = 0; step < this.keyCounts.length && !Thread.currentThread().isInterrupted(); step++) {
+            final int keys = this.keyCounts[step];
+            if (LOG.isInfoEnabled()) {
+                LOG.info("Ramp step " + (step + 1) + " of " + this.keyCounts.length + ": " + keys + " keys");
+            }
+
+            // prefixes of the same list, nothing is generated again
+            final HttpClient client = this.createClient(this.collisions.subList(0, keys));
+            medians[step] = this.measure(client);
+        }
+
+        return new RampResult(this.keyCounts, medians);
+    }
+
+    private long measure(final HttpClient client) {
+        final long[] times = new long[this.samples];
+        int succeeded = 0;
+
+        for (int i = 0; i < this.samples; i++) {
+            try {
+                times[succeeded] = client.send();
+                succeeded++;
+            } catch (final Exception e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Discarding ramp sample. " + e.getMessage(), e);
+                }
+            }
+        }
+
+        return succeeded == 0 ? -1 : Math.round(Statistics.median(Arrays.copyOf(times, succeeded)));
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Response times measured along a key count ramp, and the shape of the growth curve.
+ * <p>
+ * The curve is analysed on a log-log scale: between two consecutive steps, the local exponent
+ * <code>ln(t2 / t1) / ln(n2 / n1)</code> is about 1 while parsing is linear in the number of keys and about 2 once
+ * the colliding keys turn the target's hash table into a list. A limit on the number of parsed keys (like PHP
+ * <code>max_input_vars</code>) shows up as a sudden drop of the exponent back to ~0, or as rejected requests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class RampResult {
+
+    /**
+     * Local exponent from which growth is considered quadratic.
+     */
+    public static final double QUADRATIC_EXPONENT = 1.5;
+
+    /**
+     * Local exponent from which growth is considered at least linear.
+     */
+    public static final double LINEAR_EXPONENT = 0.8;
+
+    /**
+     * Local exponent below which the response time is considered flat.
+     */
+    public static final double FLAT_EXPONENT = 0.5;
+
+    private static final String NEW_LINE = "\n";
+
+    private final int[] keyCounts;
+
+    private final long[] medians;
+
+    /**
+     * Creates a new result.
+     * 
+     * @param keyCounts increasing number of keys of each step
+     * @param medians median response time of each step in nanoseconds, or a negative value if every request failed
+     */
+    public RampResult(final int[] keyCounts, final long[] medians) {
+        Preconditions.checkArgument(keyCounts.length == medians.length, "keyCounts and medians differ");
+
+        this.keyCounts = keyCounts.clone();
+        this.medians = medians.clone();
+    }
+
+    /**
+     * Gets the number of keys of each step.
+     * 
+     * @return the number of keys of each step
+     */
+    public int[] getKeyCounts() {
+        return this.keyCounts.clone();
+    }
+
+    /**
+     * Gets the median response time of each step.
+     * 
+     * @return the median response times in nanoseconds, negative values for failed steps
+     */
+    public long[] getMedians() {
+        return this.medians.clone();
+    }
+
+    /**
+     * Local exponent between the specified step and the next one.
+     * 
+     * @param step the step index
+     * @return the local exponent or NaN if any of the steps failed
+     */
+    public double getExponent(final int step) {
+        Preconditions.checkElementIndex(step, this.keyCounts.length - 1, "step");
+
+        if (this.medians[step] <= 0 || this.medians[step + 1] <= 0) {
+            return Double.NaN;
+        }
+
+        return Math.log((double) this.medians[step + 1] / this.medians[step])
+                / Math.log((double) this.keyCounts[step + 1] / this.keyCounts[step]);
+    }
+
+    /**
+     * Least squares slope of the whole curve on a log-log scale.
+     * 
+     * @return the fitted exponent or NaN if there are less than two successful steps
+     */
+    public double getFittedExponent() {
+        double sumX = 0;
+        double sumY = 0;
+        double sumXX = 0;
+        double sumXY = 0;
+        int n = 0;
+
+        for (int i = 0; i < this.keyCounts.length; i++) {
+            if (this.medians[i] > 0) {
+                final double x = Math.log(this.keyCounts[i]);
+                final double y = Math.log(this.medians[i]);
+                sumX += x;
+                sumY += y;
+                sumXX += x * x;
+                sumXY += x * y;
+                n++;
+            }
+        }
+
+        final double denominator = n * sumXX - sumX * sumX;
+
+        return n < 2 || denominator == 0 ? Double.NaN : (n * sumXY - sumX * sumY) / denominator;
+    }
+
+    /**
+     * Number of keys from which the response time grows quadratically: the first step whose local exponent is at
+     * least {@link #QUADRATIC_EXPONENT} and whose growth is sustained by the next step.
+     * 
+     * @return the number of keys or -1 if growth never turns quadratic
+     */
+    public int getQuadraticKnee() {
+        final int segments = this.keyCounts.length - 1;
+
+        for (int i = 0; i < segments; i++) {
+            // NaN compares false, so a failed next step does not disprove the knee
+            final boolean sustained = i == segments - 1 || !(this.getExponent(i + 1) < LINEAR_EXPONENT);
+            if (this.getExponent(i) >= QUADRATIC_EXPONENT && sustained) {
+                return this.keyCounts[i];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Number of keys at which a limit of the target has cut in: the first step where, after growing at least linearly,
+     * the response time stops growing or every request fails. The limit itself lies between the previous step and
+     * this one.
+     * 
+     * @return the number of keys or -1 if no limit was detected
+     */
+    public int getLimit() {
+        boolean growing = false;
+
+        for (int i = 0; i < this.keyCounts.length - 1; i++) {
+            if (this.medians[i] > 0 && this.medians[i + 1] <= 0) {
+                return this.keyCounts[i + 1];
+            }
+
+            final double exponent = this.getExponent(i);
+            if (exponent >= LINEAR_EXPONENT) {
+                growing = true;
+            } else if (growing && exponent < FLAT_EXPONENT) {
+                return this.keyCounts[i];
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder summary = new StringBuilder("Key ramp:");
+
+        for (int i = 0; i < this.keyCounts.length; i++) {
+            summary.append(NEW_LINE);
+            if (this.medians[i] > 0) {
+                summary.append(String.format(Locale.ENGLISH, "%10d keys %12.3fms", this.keyCounts[i],
+                        toMillis(this.medians[i])));
+            } else {
+                summary.append(String.format(Locale.ENGLISH, "%10d keys %14s", this.keyCounts[i], "failed"));
+            }
+            if (i < this.keyCounts.length - 1 && !Double.isNaN(this.getExponent(i))) {
+                summary.append(String.format(Locale.ENGLISH, "  exponent to next step: %.2f", this.getExponent(i)));
+            }
+        }
+
+        summary.append(NEW_LINE).append(String.format(Locale.ENGLISH, "Fitted exponent: %.2f",
+                this.getFittedExponent()));
+
+        final int knee = this.getQuadraticKnee();
+        summary.append(NEW_LINE).append(knee < 0 ? "Response time never turns quadratic"
+                : "Response time turns quadratic from " + knee + " keys");
+
+        final int limit = this.getLimit();
+        if (limit < 0) {
+            summary.append(NEW_LINE).append("No key limit detected");
+        } else {
+            final int previous = this.keyCounts[Arrays.binarySearch(this.keyCounts, limit) - 1];
+            summary.append(NEW_LINE).append("A key limit seems to cut in between " + previous + " and " + limit
+                    + " keys");
+        }
+
+        return summary.toString();
+    }
+
+    private static double toMillis(final long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
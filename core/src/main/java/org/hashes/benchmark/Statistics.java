@@ -0,0 +1,156 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Statistics used to compare baseline and collision latencies.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+final class Statistics {
+
+    private Statistics() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Median of the specified samples.
+     * 
+     * @param samples the samples
+     * @return the median
+     */
+    static double median(final long[] samples) {
+        Preconditions.checkArgument(samples.length > 0, "samples");
+
+        final long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        final int middle = sorted.length / 2;
+
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + (double) sorted[middle]) / 2;
+    }
+
+    /**
+     * Mann-Whitney U statistic of the first sample against the second one: the number of pairs where the first value
+     * is greater than the second, ties counting one half.
+     * 
+     * @param first the first sample
+     * @param second the second sample
+     * @return the U statistic
+     */
+    static double mannWhitneyU(final long[] first, final long[] second) {
+        return rankSum(first, second) - first.length * (first.length + 1.0) / 2;
+    }
+
+    /**
+     * Normal approximation of the Mann-Whitney U statistic, corrected for ties. Positive values mean the first sample
+     * tends to be greater than the second one.
+     * 
+     * @param first the first sample
+     * @param second the second sample
+     * @return the z score
+     */
+    static double mannWhitneyZ(final long[] first, final long[] second) {
+        Preconditions.checkArgument(first.length > 0 && second.length > 0, "samples");
+
+        final double n1 = first.length;
+        final double n2 = second.length;
+        final double n = n1 + n2;
+
+        final double mean = n1 * n2 / 2;
+        final double variance = n1 * n2 / 12 * (n + 1 - tieCorrection(first, second) / (n * (n - 1)));
+
+        return variance <= 0 ? 0 : (mannWhitneyU(first, second) - mean) / Math.sqrt(variance);
+    }
+
+    /**
+     * Two sided p-value of a standard normal z score.
+     * 
+     * @param z the z score
+     * @return the p-value
+     */
+    static double twoSidedPValue(final double z) {
+        return erfc(Math.abs(z) / Math.sqrt(2));
+    }
+
+    private static double rankSum(final long[] first, final long[] second) {
+        final long[] all = merge(first, second);
+        Arrays.sort(all);
+
+        double sum = 0;
+        for (final long value : first) {
+            // average rank of the tied group, ranks starting at 1
+            final int lowest = lowerBound(all, value);
+            final int highest = lowerBound(all, value + 1);
+            sum += (lowest + 1 + highest) / 2.0;
+        }
+
+        return sum;
+    }
+
+    // sum of t^3 - t over all tied groups
+    private static double tieCorrection(final long[] first, final long[] second) {
+        final long[] all = merge(first, second);
+        Arrays.sort(all);
+
+        double correction = 0;
+        int start = 0;
+        for (int i = 1; i <= all.length; i++) {
+            if (i == all.length || all[i] != all[start]) {
+                final double ties = i - start;
+                correction += ties * ties * ties - ties;
+                start = i;
+            }
+        }
+
+        return correction;
+    }
+
+    private static long[] merge(final long[] first, final long[] second) {
+        final long[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+
+        return all;
+    }
+
+    private static int lowerBound(final long[] sorted, final long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    // Abramowitz and Stegun 7.1.26, absolute error below 1.5e-7
+    private static double erfc(final double x) {
+        final double t = 1 / (1 + 0.3275911 * x);
+        final double polynomial = t
+                * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+
+        return polynomial * Math.exp(-x * x);
+    }
+}
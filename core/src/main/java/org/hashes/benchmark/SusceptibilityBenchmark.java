@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hashes.HttpClient;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Compares the response times of a colliding payload against a control payload with non colliding keys.
+ * <p>
+ * Both payloads are sent alternately, one request at a time, and the order inside each pair is swapped on every
+ * sample so that drift on the target (warm up, garbage collection, other load) affects both payloads equally.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class SusceptibilityBenchmark {
+
+    private static final Log LOG = LogFactory.getLog(SusceptibilityBenchmark.class);
+
+    private final HttpClient baselineClient;
+
+    private final HttpClient collisionClient;
+
+    private final int samples;
+
+    /**
+     * Creates a new benchmark.
+     * 
+     * @param baselineClient client sending the non colliding payload, must wait for the response
+     * @param collisionClient client sending the colliding payload, must wait for the response
+     * @param samples number of requests to send with each payload
+     */
+    public SusceptibilityBenchmark(final HttpClient baselineClient, final HttpClient collisionClient,
+            final int samples) {
+        Preconditions.checkArgument(samples > 0, "samples");
+
+        this.baselineClient = Preconditions.checkNotNull(baselineClient, "baselineClient");
+        this.collisionClient = Preconditions.checkNotNull(collisionClient, "collisionClient");
+        this.samples = samples;
+    }
+
+    /**
+     * Runs the benchmark.
+     * 
+     * @return the benchmark result
+     * @throws IllegalStateException if every sample failed
+     */
+    public BenchmarkResult run() {
+        final long[] baseline = new long[this.samples];
+        final long[] collision = new long[this.samples];
+        int succeeded = 0;
+        int failures = 0;
+
+        for (int i = 0; i < this.samples && !Thread.currentThread().isInterrupted(); i++) {
+            try {
+                // a failed request discards the whole pair, so both samples keep the same size
+                if (i % 2 == 0) {
+                    baseline[succeeded] = this.baselineClient.send();
+                    collision[succeeded] = this.collisionClient.send();
+                } else {
+                    collision[succeeded] = this.collisionClient.send();
+                    baseline[succeeded] = this.baselineClient.send();
+                }
+                succeeded++;
+            } catch (final Exception e) {
+                failures++;
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Discarding benchmark sample. " + e.getMessage(), e);
+                }
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Benchmark sample " + (i + 1) + " of " + this.samples);
+            }
+        }
+
+        Preconditions.checkState(succeeded > 0, "All benchmark samples failed");
+
+        return new BenchmarkResult(Arrays.copyOf(baseline, succeeded), Arrays.copyOf(collision, succeeded), failures);
+    }
+}
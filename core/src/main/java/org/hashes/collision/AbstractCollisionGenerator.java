@@ -15,6 +15,8 @@
  */
 package org.hashes.collision;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 
@@ -24,6 +26,7 @@ import org.hashes.algorithm.HashAlgorithm;
 import org.hashes.progress.NoProgressMonitorFactory;
 import org.hashes.progress.ProgressMonitorFactory;
 import org.hashes.progress.ProgressMonitor;
+import org.hashes.util.CollisionFile;
 import org.hashes.util.FileUtils;
 
 import com.google.common.base.Charsets;
@@ -48,6 +51,8 @@ public abstract class AbstractCollisionGenerator {
 
     private static final String PRE_BUILT_SUFIX = ".txt";
 
+    private static final String PRE_BUILT_BINARY_SUFIX = ".bin";
+
     private final HashAlgorithm hashAlgorithm;
 
     /**
@@ -109,52 +114,140 @@ public abstract class AbstractCollisionGenerator {
         Preconditions.checkArgument(numberOfKeys > 0, "numberOfKeys");
         Preconditions.checkNotNull(monitorFactory, "monitor");
 
-        List<String> collisions;
+        List<String> collisions = forceNew ? null : this.loadPreBuiltCollisions(numberOfKeys, monitorFactory);
 
-        if (forceNew) {
-            if (LOG.isInfoEnabled()) {
-                LOG.info("Generating " + numberOfKeys + " keys");
-            }
+        if (collisions == null) {
             collisions = this.generateNewCollisions(numberOfKeys, monitorFactory);
+        }
+
+        return collisions;
+    }
+
+    /**
+     * Generates distinct keys with the same hash code, pushing each key to the specified sink as soon as it is
+     * available.
+     * <p>
+     * If <code>forceNew</code> is true, new collisions are generated, otherwise the prebuilt collisions are loaded if
+     * available
+     * 
+     * @param numberOfKeys number of keys to generate
+     * @param monitorFactory progress monitor factory
+     * @param forceNew forces the generation of new keys instead of using pre-built
+     * @param sink receives the keys
+     */
+    public void generateCollisions(final int numberOfKeys, final ProgressMonitorFactory monitorFactory,
+            final boolean forceNew, final CollisionSink sink) {
+        Preconditions.checkArgument(numberOfKeys > 0, "numberOfKeys");
+        Preconditions.checkNotNull(monitorFactory, "monitor");
+        Preconditions.checkNotNull(sink, "sink");
+
+        final List<String> collisions = forceNew ? null : this.loadPreBuiltCollisions(numberOfKeys, monitorFactory);
+
+        if (collisions == null) {
+            this.generateNewCollisions(numberOfKeys, monitorFactory, sink);
         } else {
-            if (LOG.isInfoEnabled()) {
-                LOG.info("Loading " + numberOfKeys + " keys");
+            // pre-built lists are lazy views, keys are only decoded here
+            for (final String key : collisions) {
+                sink.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Loads the pre-built collisions if available.
+     * 
+     * @param numberOfKeys number of keys to load
+     * @param monitorFactory progress monitor factory
+     * @return the pre-built keys or null if new keys should be generated
+     */
+    private List<String> loadPreBuiltCollisions(final int numberOfKeys, final ProgressMonitorFactory monitorFactory) {
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Loading " + numberOfKeys + " keys");
+        }
+
+        final String name = this.getAlgorithmName();
+        if (name == null) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Could not resolve pre-built keys file name, generating new keys");
             }
 
-            final Iterator<String> tokens = Splitter.onPattern(PRE_BUILT_REGEX).split(this.getClass().getSimpleName())
-                    .iterator();
-
-            if (tokens.hasNext()) {
-
-                try {
-                    final ProgressMonitor monitor = monitorFactory.createProgressMonitor("Loading", null);
-
-                    try {
-                        // all files with prebuilt collisions should use UTF-8 encoding.
-                        collisions = FileUtils.readLines(tokens.next() + PRE_BUILT_SUFIX, numberOfKeys, Charsets.UTF_8);
-                    } finally {
-                        monitor.done();
-                    }
-                } catch (final Exception e) {
-                    if (LOG.isWarnEnabled()) {
-                        LOG.warn("Could not load pre-built keys, generating new keys", e);
-                    }
-
-                    collisions = this.generateNewCollisions(numberOfKeys, monitorFactory);
-                }
-            } else {
-                if (LOG.isWarnEnabled()) {
-                    LOG.warn("Could not resolve pre-built keys file name, generating new keys");
-                }
-
-                collisions = this.generateNewCollisions(numberOfKeys, monitorFactory);
+            return null;
+        }
+
+        try {
+            final ProgressMonitor monitor = monitorFactory.createProgressMonitor("Loading", null);
+
+            try {
+                return this.loadPreBuiltCollisions(name, numberOfKeys);
+            } finally {
+                monitor.done();
             }
+        } catch (final Exception e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Could not load pre-built keys, generating new keys", e);
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Gets the bucket mask under which the generated keys share the hash code.
+     * 
+     * @return the bucket mask, or -1 if the keys share the whole hash code
+     */
+    public int getBucketMask() {
+        return -1;
+    }
+
+    /**
+     * Gets the algorithm name, used to name the pre-built collision files.
+     * <p>
+     * The name is the first word of the class name, e.g. V8 for V8CollisionGenerator.
+     * 
+     * @return the algorithm name or null if it can't be resolved
+     */
+    public String getAlgorithmName() {
+        final Iterator<String> tokens = Splitter.onPattern(PRE_BUILT_REGEX).split(this.getClass().getSimpleName())
+                .iterator();
+
+        return tokens.hasNext() ? tokens.next() : null;
+    }
+
+    /**
+     * Loads pre-built collisions, the binary file is preferred over the text file.
+     * 
+     * @param name algorithm name
+     * @param numberOfKeys number of keys to load
+     * @return the pre-built keys
+     * @throws IOException if an I/O error occurs
+     */
+    private List<String> loadPreBuiltCollisions(final String name, final int numberOfKeys) throws IOException {
+        List<String> collisions;
+
+        try {
+            final CollisionFile file = CollisionFile.open(name + PRE_BUILT_BINARY_SUFIX);
+            if (!name.equals(file.getAlgorithm())) {
+                throw new IOException("Pre-built keys of " + file.getAlgorithm() + " algorithm, expected " + name);
+            }
+
+            collisions = file.getKeys(numberOfKeys);
+        } catch (final FileNotFoundException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Could not find binary pre-built keys, loading text file", e);
+            }
+
+            // all text files with prebuilt collisions should use UTF-8 encoding.
+            collisions = FileUtils.readLines(name + PRE_BUILT_SUFIX, numberOfKeys, Charsets.UTF_8);
         }
 
         return collisions;
     }
 
     protected List<String> generateNewCollisions(final int numberOfKeys, final ProgressMonitorFactory monitorFactory) {
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Generating " + numberOfKeys + " keys");
+        }
 
         final ProgressMonitor monitor = monitorFactory.createProgressMonitor("Generating", numberOfKeys);
 
@@ -165,6 +258,21 @@ public abstract class AbstractCollisionGenerator {
         }
     }
 
+    protected void generateNewCollisions(final int numberOfKeys, final ProgressMonitorFactory monitorFactory,
+            final CollisionSink sink) {
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Generating " + numberOfKeys + " keys");
+        }
+
+        final ProgressMonitor monitor = monitorFactory.createProgressMonitor("Generating", numberOfKeys);
+
+        try {
+            this.generateNewCollisions(numberOfKeys, monitor, sink);
+        } finally {
+            monitor.done();
+        }
+    }
+
     /**
      * Generate a list of distinct keys with the same hash code.
      * 
@@ -174,4 +282,21 @@ public abstract class AbstractCollisionGenerator {
      */
     protected abstract List<String> generateNewCollisions(final int numberOfKeys, ProgressMonitor monitor);
 
+    /**
+     * Generates distinct keys with the same hash code, pushing them to the specified sink.
+     * <p>
+     * By default the keys of {@link #generateNewCollisions(int, ProgressMonitor)} are pushed once generated,
+     * generators able to produce keys incrementally should override this method.
+     * 
+     * @param numberOfKeys number of keys to generate
+     * @param monitor progress monitor
+     * @param sink receives the keys
+     */
+    protected void generateNewCollisions(final int numberOfKeys, final ProgressMonitor monitor,
+            final CollisionSink sink) {
+        for (final String key : this.generateNewCollisions(numberOfKeys, monitor)) {
+            sink.accept(key);
+        }
+    }
+
 }
@@ -16,65 +16,179 @@
 package org.hashes.collision;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hashes.algorithm.HashAlgorithm;
 import org.hashes.progress.ProgressMonitor;
+import org.hashes.util.WireCost;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Base class of equivalent substrings hash collision generator.
+ * <p>
+ * The families of equivalent substrings are found by {@link EquivalentSubstringsFinder} over the alphabet of the
+ * generator, one family for each block length between 2 and 4, and kept for later generations. If the alphabet has
+ * characters which are percent encoded in a form body, families of the other characters are searched too, so the keys
+ * can be made of the blocks that take less bytes on the wire.
  * 
  * @author ribeirux
  * @version $Revision$
  */
 public abstract class AbstractEquivalentSubstringsGenerator extends AbstractCollisionGenerator {
 
+    private static final Log LOG = LogFactory.getLog(AbstractEquivalentSubstringsGenerator.class);
+
+    private static final int MIN_BLOCK_LENGTH = 2;
+
+    private static final int MAX_BLOCK_LENGTH = 4;
+
+    private final String alphabet;
+
+    private final EquivalentSubstringsFinder finder;
+
+    // lazily found, guarded by this
+    private List<List<String>> families;
+
     /**
-     * Initializes the hash algorithm.
+     * Initializes the hash algorithm, the blocks are made of digits and ASCII letters.
      * 
      * @param hashAlgorithm the hash algorithm
      */
     public AbstractEquivalentSubstringsGenerator(final HashAlgorithm hashAlgorithm) {
+        this(hashAlgorithm, EquivalentSubstringsFinder.DEFAULT_ALPHABET);
+    }
+
+    /**
+     * Initializes the hash algorithm and the alphabet of the blocks.
+     * 
+     * @param hashAlgorithm the hash algorithm
+     * @param alphabet the characters of the blocks, at least 2, without repetitions
+     */
+    public AbstractEquivalentSubstringsGenerator(final HashAlgorithm hashAlgorithm, final String alphabet) {
         super(hashAlgorithm);
+        this.finder = new EquivalentSubstringsFinder(hashAlgorithm, alphabet);
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * Gets the alphabet property.
+     * 
+     * @return the alphabet property
+     */
+    public String getAlphabet() {
+        return this.alphabet;
     }
 
+    /**
+     * Generates a lazy list of distinct keys with the same hash code.
+     * <p>
+     * Each key is a concatenation of blocks, one from each of the chosen families, so the keys are numbered in mixed
+     * radix and computed on demand: the returned list stores nothing and is built in constant time once the families
+     * are found. The families are chosen to make the keys that take less bytes in a form body, see {@link WireCost}.
+     * 
+     * @param numberOfKeys number of keys to generate
+     * @param monitor not used, this is really fast!
+     * @return a list of distinct keys with the same hash code
+     */
     @Override
     protected List<String> generateNewCollisions(final int numberOfKeys, final ProgressMonitor monitor) {
-        final List<String> seed = this.buildSeed();
+        return new ProductList(compose(this.buildSeeds(), numberOfKeys), numberOfKeys);
+    }
+
+    /**
+     * Finds the largest family of equivalent substrings of each block length, over the whole alphabet and over its
+     * characters which are not percent encoded.
+     * 
+     * @return an immutable list of families with more than one block
+     */
+    protected synchronized List<List<String>> buildSeeds() {
+        if (this.families == null) {
+            final ImmutableList.Builder<List<String>> builder = ImmutableList.builder();
+            findFamilies(this.finder, builder);
 
-        final List<String> generatedKeys = new ArrayList<String>(numberOfKeys);
+            final String unencoded = WireCost.unencoded(this.alphabet);
+            if (unencoded.length() > 1 && unencoded.length() < this.alphabet.length()) {
+                findFamilies(new EquivalentSubstringsFinder(this.getHashAlgorithm(), unencoded), builder);
+            }
 
-        // just don't update the progress, this is really fast! 
-        if (numberOfKeys <= seed.size()) {
-            generatedKeys.addAll(seed.subList(0, numberOfKeys));
-        } else {
-            final int iterations = (int) Math.ceil(Math.log(numberOfKeys) / Math.log(seed.size()));
-            this.buildCombinations(seed, iterations, "", numberOfKeys, generatedKeys);
+            this.families = builder.build();
+            Preconditions.checkState(!this.families.isEmpty(), "No equivalent substrings over the alphabet: %s",
+                    this.alphabet);
         }
 
-        return Collections.unmodifiableList(generatedKeys);
+        return this.families;
     }
 
-    private void buildCombinations(final List<String> seed, final int iterations, final String combination,
-            final int numberOfKeys, final List<String> result) {
-        if (iterations == 0) {
-            result.add(combination);
-        } else {
-            for (final String entry : seed) {
-                if (result.size() < numberOfKeys) {
-                    this.buildCombinations(seed, iterations - 1, combination + entry, numberOfKeys, result);
-                } else {
-                    break;
-                }
+    private static void findFamilies(final EquivalentSubstringsFinder finder,
+            final ImmutableList.Builder<List<String>> builder) {
+        for (int blockLength = MIN_BLOCK_LENGTH; blockLength <= MAX_BLOCK_LENGTH
+                && finder.numberOfBlocks(blockLength) <= EquivalentSubstringsFinder.MAX_BLOCKS; blockLength++) {
+            final List<String> family = finder.find(blockLength);
+            if (family.size() > 1) {
+                builder.add(family);
+            }
+
+            if (LOG.isInfoEnabled()) {
+                LOG.info("Found " + family.size() + " equivalent substrings of length " + blockLength + " over "
+                        + finder.getAlphabet().length() + " characters");
             }
         }
     }
 
     /**
-     * Build DJBXA seed.
+     * Chooses the blocks of the keys with the smallest wire cost that provide the specified number of keys. The cost
+     * of a family is the cost of its most expensive block.
+     * <p>
+     * Unbounded knapsack over the wire cost: <code>keys[cost]</code> is the largest number of keys of exactly that
+     * cost, the product of the sizes of the families of its blocks.
      * 
-     * @return the seed
+     * @param families the families of equivalent substrings, the blocks of each family have the same length
+     * @param numberOfKeys number of keys
+     * @return the family of each block of the keys
      */
-    protected abstract List<String> buildSeed();
+    static List<List<String>> compose(final List<List<String>> families, final int numberOfKeys) {
+        final int[] familyCosts = new int[families.size()];
+        for (int i = 0; i < familyCosts.length; i++) {
+            for (final String block : families.get(i)) {
+                familyCosts[i] = Math.max(familyCosts[i], WireCost.of(block));
+            }
+        }
+
+        final List<Long> keys = new ArrayList<Long>();
+        final List<Integer> choices = new ArrayList<Integer>();
+        keys.add(1L);
+        choices.add(-1);
+
+        int cost = 0;
+        while (cost == 0 || keys.get(cost) < numberOfKeys) {
+            cost++;
+            long costKeys = 0;
+            int choice = -1;
+            for (int i = 0; i < families.size(); i++) {
+                if (familyCosts[i] <= cost) {
+                    // saturate, any number of keys above Integer.MAX_VALUE behaves the same
+                    final long familyKeys = Math.min(keys.get(cost - familyCosts[i]) * families.get(i).size(),
+                            Integer.MAX_VALUE);
+                    if (familyKeys > costKeys) {
+                        costKeys = familyKeys;
+                        choice = i;
+                    }
+                }
+            }
+            keys.add(costKeys);
+            choices.add(choice);
+        }
+
+        final List<List<String>> factors = new ArrayList<List<String>>();
+        while (cost > 0) {
+            factors.add(families.get(choices.get(cost)));
+            cost -= familyCosts[choices.get(cost)];
+        }
+
+        return factors;
+    }
 }
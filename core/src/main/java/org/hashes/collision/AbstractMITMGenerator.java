@@ -15,12 +15,14 @@
  */
 package org.hashes.collision;
 
-import java.text.MessageFormat;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -30,14 +32,21 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hashes.algorithm.HashAlgorithm;
+import org.hashes.collision.MITMConfiguration.MITMConfigurationBuilder;
+import org.hashes.progress.NoProgressMonitorFactory;
 import org.hashes.progress.ProgressMonitor;
+import org.hashes.progress.ProgressMonitorFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.Iterables;
 
 /**
  * Base class of meet in the middle hash collision generator.
+ * <p>
+ * The hash code of the supported algorithms is their whole hash state, so keys are hashed backwards from the hash code
+ * and blocks of keys can be chained, see {@link MITMConfigurationBuilder#withStages(int)}.
  * 
  * @author ribeirux
  * @version $Revision$
@@ -46,21 +55,18 @@ public abstract class AbstractMITMGenerator extends AbstractCollisionGenerator {
 
     private static final Log LOG = LogFactory.getLog(AbstractMITMGenerator.class);
 
-    private static final int LOOKUP_MAP_SIZE = (int) Math.pow(2, 18);
+    // the search is split in work units, one for each combination of the characters before the last 3 enumerated
+    // characters, up to 4 so that the number of units fits an int
+    private static final int UNIT_SUFIX_SIZE = 3;
 
-    private static final int LOOKUP_MAP_KEY_SIZE = 3;
+    private static final int MAX_UNIT_KEY_SIZE = 4;
 
-    private static final int KEY_SIZE = 7;
+    // number of lookup table entries hashed backwards in parallel before being added to the table
+    private static final int BUILD_CHUNK_SIZE = 1 << 20;
 
-    // inclusive
-    private static final char START_KEY = ' ';
+    private static final ProgressMonitorFactory MONITOR_FACTORY = new NoProgressMonitorFactory();
 
-    // inclusive
-    private static final char END_KEY = '~';
-
-    private final String seed;
-
-    private final int workerThreads;
+    private final MITMConfiguration configuration;
 
     /**
      * Creates a new instance with specified hash algorithm and seed.
@@ -80,25 +86,227 @@ public abstract class AbstractMITMGenerator extends AbstractCollisionGenerator {
      * @param workerThreads number of worker threads, If null the number of available processors is used
      */
     public AbstractMITMGenerator(final HashAlgorithm hashAlgorithm, final String seed, final Integer workerThreads) {
+        this(hashAlgorithm, buildConfiguration(seed, workerThreads));
+    }
+
+    /**
+     * Creates a new instance with specified hash algorithm and configuration.
+     * 
+     * @param hashAlgorithm the hash algorithm
+     * @param configuration MITM configuration
+     */
+    public AbstractMITMGenerator(final HashAlgorithm hashAlgorithm, final MITMConfiguration configuration) {
         super(hashAlgorithm);
-        this.seed = Preconditions.checkNotNull(seed, "seed");
-        if (workerThreads == null) {
-            this.workerThreads = Runtime.getRuntime().availableProcessors();
-        } else {
-            Preconditions.checkArgument(workerThreads > 0, "workerThreads");
-            this.workerThreads = workerThreads;
+        this.configuration = Preconditions.checkNotNull(configuration, "configuration");
+    }
+
+    private static MITMConfiguration buildConfiguration(final String seed, final Integer workerThreads) {
+        final MITMConfigurationBuilder builder = new MITMConfigurationBuilder(seed);
+        if (workerThreads != null) {
+            builder.withWorkerThreads(workerThreads);
         }
+
+        return builder.build();
+    }
+
+    /**
+     * Gets the configuration property.
+     * 
+     * @return the configuration property
+     */
+    public MITMConfiguration getConfiguration() {
+        return this.configuration;
+    }
+
+    @Override
+    public int getBucketMask() {
+        return this.configuration.getBucketMask();
     }
 
     @Override
     protected List<String> generateNewCollisions(final int numberOfKeys, final ProgressMonitor monitor) {
-        final int hash = this.getHashAlgorithm().hash(this.seed);
-        final Map<Integer, String> lookupMap = this.createLookupMap(hash);
-        final List<Callable<List<String>>> tasks = this.buildTasks(lookupMap, numberOfKeys, monitor);
+        if (this.configuration.getStages() > 1) {
+            return this.generateChainedCollisions(numberOfKeys, monitor);
+        }
+
+        final ListSink sink = new ListSink(numberOfKeys);
+        this.generateNewCollisions(numberOfKeys, monitor, sink);
+
+        return Collections.unmodifiableList(sink.keys);
+    }
+
+    /**
+     * Pushes the keys of each work unit as soon as the unit is done, resumed keys are pushed first.
+     * <p>
+     * Only the main seed is searched, see {@link #generateCollisionFamilies(int, ProgressMonitorFactory, List)} to
+     * search all seeds. Keys of several stages are pushed once all blocks are found.
+     */
+    @Override
+    protected void generateNewCollisions(final int numberOfKeys, final ProgressMonitor monitor,
+            final CollisionSink sink) {
+        if (this.configuration.getStages() > 1) {
+            super.generateNewCollisions(numberOfKeys, monitor, sink);
+            return;
+        }
+
+        this.generateFamilies(numberOfKeys, monitor, ImmutableList.of(this.configuration.getSeed()),
+                ImmutableList.of(sink));
+    }
+
+    /**
+     * Generates a family of distinct keys for each seed of the configuration, the keys of each family have the same
+     * hash code as its seed.
+     * 
+     * @param keysPerFamily number of keys of each family
+     * @return a list of families in the same order as {@link MITMConfiguration#getSeeds()}
+     */
+    public List<List<String>> generateCollisionFamilies(final int keysPerFamily) {
+        return this.generateCollisionFamilies(keysPerFamily, MONITOR_FACTORY);
+    }
+
+    /**
+     * Generates a family of distinct keys for each seed of the configuration, the keys of each family have the same
+     * hash code as its seed.
+     * 
+     * @param keysPerFamily number of keys of each family
+     * @param monitorFactory progress monitor factory
+     * @return a list of families in the same order as {@link MITMConfiguration#getSeeds()}
+     */
+    public List<List<String>> generateCollisionFamilies(final int keysPerFamily,
+            final ProgressMonitorFactory monitorFactory) {
+        final List<ListSink> sinks = new ArrayList<ListSink>();
+        for (int i = 0; i < this.configuration.getSeeds().size(); i++) {
+            sinks.add(new ListSink(keysPerFamily));
+        }
+
+        this.generateCollisionFamilies(keysPerFamily, monitorFactory, sinks);
+
+        final Builder<List<String>> families = ImmutableList.builder();
+        for (final ListSink sink : sinks) {
+            families.add(Collections.unmodifiableList(sink.keys));
+        }
+
+        return families.build();
+    }
+
+    /**
+     * Generates a family of distinct keys for each seed of the configuration, pushing the keys of each family to its
+     * sink.
+     * <p>
+     * All families are searched in a single pass over the key space: the lookup tables of all seeds are merged and
+     * each hit is routed to the family of the matching entry, so the enumeration cost is shared by all seeds. The
+     * search stops once all families are complete.
+     * 
+     * @param keysPerFamily number of keys of each family
+     * @param monitorFactory progress monitor factory
+     * @param sinks one sink for each seed, in the same order as {@link MITMConfiguration#getSeeds()}
+     */
+    public void generateCollisionFamilies(final int keysPerFamily, final ProgressMonitorFactory monitorFactory,
+            final List<? extends CollisionSink> sinks) {
+        Preconditions.checkArgument(keysPerFamily > 0, "keysPerFamily");
+        Preconditions.checkNotNull(monitorFactory, "monitorFactory");
+        Preconditions.checkNotNull(sinks, "sinks");
+
+        final List<String> seeds = this.configuration.getSeeds();
+        Preconditions.checkArgument(sinks.size() == seeds.size(), "Expected one sink for each of the %s seeds",
+                seeds.size());
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Generating " + keysPerFamily + " keys for each of the " + seeds.size() + " seeds");
+        }
+
+        final ProgressMonitor monitor = monitorFactory.createProgressMonitor("Generating", keysPerFamily
+                * seeds.size());
+
+        try {
+            this.generateFamilies(keysPerFamily, monitor, seeds, sinks);
+        } finally {
+            monitor.done();
+        }
+    }
+
+    private void generateFamilies(final int keysPerFamily, final ProgressMonitor monitor, final List<String> seeds,
+            final List<? extends CollisionSink> sinks) {
+        final long tableSize = (long) this.configuration.getLookupTableSize() * seeds.size();
+        final int maxTableSize = LookupTable.maxSize(this.configuration.getStorage());
+        Preconditions.checkArgument(tableSize <= maxTableSize, "The %s lookup table holds at most %s entries",
+                this.configuration.getStorage(), maxTableSize);
+
+        // keys only need to agree with their seed under the bucket mask
+        final int bucketMask = this.configuration.getBucketMask();
+        final int[] hashes = new int[seeds.size()];
+        final Map<Integer, Integer> families = new HashMap<Integer, Integer>();
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = this.getHashAlgorithm().hash(seeds.get(i)) & bucketMask;
+            final Integer previous = families.put(hashes[i], i);
+            Preconditions.checkArgument(previous == null, "Seeds with the same hash code: %s and %s",
+                    previous == null ? null : seeds.get(previous), seeds.get(i));
+        }
+
+        final Long tableSeed = this.configuration.getTableSeed();
+        final File checkpointFile = this.configuration.getCheckpointFile();
+        if (checkpointFile == null) {
+            final SufixTable lookupTable = this.createLookupTable(hashes, tableSeed == null ? new Random().nextLong()
+                    : tableSeed);
+            this.generateFamilies(keysPerFamily, monitor, sinks, lookupTable, null, families, bucketMask, this
+                    .getHashAlgorithm().initialState());
+            return;
+        }
+
+        try {
+            final Checkpoint checkpoint = Checkpoint.open(checkpointFile, this.getAlgorithmName(), this.configuration,
+                    hashes);
+            try {
+                final SufixTable lookupTable = this.createLookupTable(hashes, checkpoint.getTableSeed());
+                this.generateFamilies(keysPerFamily, monitor, sinks, lookupTable, checkpoint, families, bucketMask,
+                        this.getHashAlgorithm().initialState());
+
+                // don't swallow close exception if generation completes normally
+                checkpoint.close();
+            } finally {
+                try {
+                    checkpoint.close();
+                } catch (final IOException e) {
+                    if (LOG.isErrorEnabled()) {
+                        LOG.error("Could not close checkpoint file: " + checkpointFile.getPath(), e);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new ComputationException(e);
+        }
+    }
+
+    /**
+     * Enumerates the keys from the specified hash state until all families are complete.
+     */
+    private void generateFamilies(final int keysPerFamily, final ProgressMonitor monitor,
+            final List<? extends CollisionSink> sinks, final SufixTable lookupTable, final Checkpoint checkpoint,
+            final Map<Integer, Integer> families, final int bucketMask, final int initialState) {
+        // resumed keys are routed to their family by masked hash code
+        final int[] found = new int[sinks.size()];
+        final List<String> resumed = checkpoint == null ? Collections.<String> emptyList() : checkpoint.getKeys();
+        for (final String key : resumed) {
+            final Integer family = families.get(this.getHashAlgorithm().hash(key) & bucketMask);
+            Preconditions.checkState(family != null, "Checkpoint key of another seed: %s", key);
+            if (found[family] < keysPerFamily) {
+                found[family]++;
+                sinks.get(family).accept(key);
+            }
+        }
+
+        final int firstUnit = checkpoint == null ? 0 : checkpoint.getCompletedUnits();
+        final UnitCollector collector = new UnitCollector(keysPerFamily, found, firstUnit, sinks, monitor, checkpoint);
+        if (collector.isDone()) {
+            return;
+        }
+
+        final List<Callable<Void>> tasks = this.buildTasks(lookupTable, firstUnit, collector, initialState,
+                this.stateMask(bucketMask, this.configuration.getSufixLength()));
         final ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
 
         try {
-            List<Future<List<String>>> results = Collections.emptyList();
+            List<Future<Void>> results = Collections.emptyList();
 
             try {
                 results = executor.invokeAll(tasks);
@@ -106,55 +314,216 @@ public abstract class AbstractMITMGenerator extends AbstractCollisionGenerator {
                 executor.shutdown();
             }
 
-            final Builder<String> collisions = ImmutableList.builder();
-            for (final Future<List<String>> future : results) {
-                collisions.addAll(future.get());
+            for (final Future<Void> future : results) {
+                future.get();
             }
-
-            return collisions.build();
         } catch (final Exception e) {
             throw new ComputationException(e);
         }
     }
 
-    private Map<Integer, String> createLookupMap(final int hash) {
-        final Map<Integer, String> lookupMap = new HashMap<Integer, String>(LOOKUP_MAP_SIZE);
-        for (int i = 0; i < LOOKUP_MAP_SIZE; i++) {
-            final String sufix = this.randomString(LOOKUP_MAP_KEY_SIZE);
-            lookupMap.put(this.hashBack(sufix, hash), sufix);
+    /**
+     * Generates keys made of a first block with the hash code of the seed followed by blocks which hash the seed hash
+     * code back to itself, see {@link MITMConfigurationBuilder#withStages(int)}.
+     */
+    private List<String> generateChainedCollisions(final int numberOfKeys, final ProgressMonitor monitor) {
+        final int stages = this.configuration.getStages();
+
+        // the product of the first blocks and of the following blocks of each stage has at least numberOfKeys keys
+        final int blocks = (int) Math.ceil(Math.pow(numberOfKeys, 1.0 / stages));
+        long followingKeys = 1;
+        for (int i = 1; i < stages; i++) {
+            followingKeys = Math.min(followingKeys * blocks, numberOfKeys);
+        }
+        final int firstBlocks = (int) ((numberOfKeys + followingKeys - 1) / followingKeys);
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Generating " + firstBlocks + " first blocks and " + blocks + " blocks for each of the "
+                    + (stages - 1) + " following stages");
+        }
+
+        // the hash code is the hash state, so the first and the following blocks have the same target
+        final int hash = this.getHashAlgorithm().hash(this.configuration.getSeed());
+        final Long tableSeed = this.configuration.getTableSeed();
+        final SufixTable lookupTable = this.createLookupTable(new int[] { hash }, tableSeed == null ? new Random()
+                .nextLong() : tableSeed, -1);
+
+        final ProgressMonitor stageMonitor = MONITOR_FACTORY.createProgressMonitor(null, null);
+        final Map<Integer, Integer> families = Collections.emptyMap();
+        final ListSink first = new ListSink(firstBlocks);
+        this.generateFamilies(firstBlocks, stageMonitor, ImmutableList.of(first), lookupTable, null, families, -1,
+                this.getHashAlgorithm().initialState());
+        final ListSink following = new ListSink(blocks);
+        this.generateFamilies(blocks, stageMonitor, ImmutableList.of(following), lookupTable, null, families, -1, hash);
+
+        if (first.keys.isEmpty() || following.keys.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        return Collections.unmodifiableMap(lookupMap);
+        final List<List<String>> factors = new ArrayList<List<String>>(stages);
+        factors.add(first.keys);
+        for (int i = 1; i < stages; i++) {
+            factors.add(following.keys);
+        }
+
+        final int size = Math.min(numberOfKeys, ProductList.productSize(factors));
+        monitor.update(size);
+
+        return new ProductList(factors, size);
+    }
+
+    /**
+     * Builds the lookup table of random sufixes hashed backwards from the specified hash.
+     * 
+     * @param hash the target hash
+     * @return the lookup table
+     */
+    SufixTable createLookupTable(final int hash) {
+        return this.createLookupTable(new int[] { hash }, new Random().nextLong());
     }
 
-    private String randomString(final int size) {
-        final StringBuilder random = new StringBuilder(size);
-        for (int i = 0; i < size; i++) {
-            random.append((char) (Math.random() * (END_KEY - START_KEY + 1) + START_KEY));
+    /**
+     * Builds a single lookup table with the random sufixes of all specified hashes. The same seed always builds the
+     * same table.
+     * 
+     * @param hashes the target hashes
+     * @param seed the seed of the sufixes
+     * @return the lookup table
+     */
+    SufixTable createLookupTable(final int[] hashes, final long seed) {
+        return this.createLookupTable(hashes, seed, this.configuration.getBucketMask());
+    }
+
+    private SufixTable createLookupTable(final int[] hashes, final long seed, final int bucketMask) {
+        final int entriesPerSeed = this.configuration.getLookupTableSize();
+        final int sufixLength = this.configuration.getSufixLength();
+        final int stateMask = this.stateMask(bucketMask, sufixLength);
+
+        final LookupTable lookupTable;
+        try {
+            lookupTable = LookupTable.create(entriesPerSeed * hashes.length, this.configuration.getStorage());
+        } catch (final IOException e) {
+            throw new ComputationException(e);
+        }
+
+        final SufixTable sufixTable = new SufixTable(lookupTable, this.configuration.getAlphabet(), seed,
+                entriesPerSeed, sufixLength);
+        final int size = entriesPerSeed * hashes.length;
+        final int[] backwardHashes = new int[Math.min(size, BUILD_CHUNK_SIZE)];
+        final int threads = this.configuration.getWorkerThreads();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            try {
+                for (int start = 0; start < size; start += backwardHashes.length) {
+                    final int end = Math.min(start + backwardHashes.length, size);
+                    final int slice = (end - start + threads - 1) / threads;
+
+                    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+                    for (int from = start; from < end; from += slice) {
+                        tasks.add(new HashBackTask(sufixTable, hashes, stateMask, start, from,
+                                Math.min(from + slice, end), backwardHashes));
+                    }
+
+                    for (final Future<Void> future : executor.invokeAll(tasks)) {
+                        future.get();
+                    }
+
+                    // entries are added in order, so the first entry is kept when hashes are repeated
+                    for (int entry = start; entry < end; entry++) {
+                        lookupTable.putIfAbsent(backwardHashes[entry - start], entry);
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } catch (final Exception e) {
+            throw new ComputationException(e);
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Lookup table: " + lookupTable.size() + " distinct hashes in " + size + " entries ("
+                    + lookupTable.size() * 100L / size + "%)");
         }
 
-        return String.valueOf(random);
+        return sufixTable;
     }
 
-    private List<Callable<List<String>>> buildTasks(final Map<Integer, String> lookupMap, final int size,
-            final ProgressMonitor monitor) {
+    /**
+     * Hashes backwards a range of entries of the lookup table.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    private final class HashBackTask implements Callable<Void> {
+
+        private final SufixTable sufixTable;
+
+        private final int[] hashes;
+
+        private final int stateMask;
 
-        final int range = END_KEY - START_KEY + 1;
-        final int maxWorkers = Math.min(range, this.workerThreads);
+        private final int start;
 
-        if (maxWorkers != this.workerThreads && LOG.isWarnEnabled()) {
-            LOG.warn(MessageFormat.format("The number of MITM worker threads is too high ({0}). Using: {1} threads",
-                    this.workerThreads, maxWorkers));
+        private final int from;
+
+        private final int to;
+
+        private final int[] backwardHashes;
+
+        private HashBackTask(final SufixTable sufixTable, final int[] hashes, final int stateMask, final int start,
+                final int from, final int to, final int[] backwardHashes) {
+            this.sufixTable = sufixTable;
+            this.hashes = hashes;
+            this.stateMask = stateMask;
+            this.start = start;
+            this.from = from;
+            this.to = to;
+            this.backwardHashes = backwardHashes;
         }
 
-        final int interval = range / maxWorkers;
-        final AtomicInteger keyCounter = new AtomicInteger();
-        final Builder<Callable<List<String>>> tasks = ImmutableList.builder();
-        for (int i = 0; i < maxWorkers; i++) {
-            final char start = (char) (i * interval + START_KEY);
-            final char end = (i == maxWorkers - 1 ? END_KEY : (char) (start + interval - 1));
+        @Override
+        public Void call() {
+            final char[] chars = new char[AbstractMITMGenerator.this.configuration.getSufixLength()];
+            for (int entry = this.from; entry < this.to; entry++) {
+                this.sufixTable.writeSufix(entry, chars, 0);
+                this.backwardHashes[entry - this.start] = AbstractMITMGenerator.this.hashBack(new String(chars),
+                        this.hashes[this.sufixTable.familyOf(entry)]) & this.stateMask;
+            }
 
-            tasks.add(new MITMWorker(start, end, keyCounter, size, lookupMap, this.getHashAlgorithm(), monitor));
+            return null;
+        }
+    }
+
+    /**
+     * Runs a single worker in the calling thread, without progress monitoring.
+     * 
+     * @param lookupTable the lookup table of a single hash
+     * @param numberOfKeys number of keys to find
+     * @return the collisions found
+     */
+    List<String> crack(final SufixTable lookupTable, final int numberOfKeys) {
+        final ProgressMonitor monitor = MONITOR_FACTORY.createProgressMonitor(null, null);
+        final ListSink sink = new ListSink(numberOfKeys);
+        final UnitCollector collector = new UnitCollector(numberOfKeys, new int[1], 0, ImmutableList.of(sink), monitor,
+                null);
+
+        new MITMWorker(new AtomicInteger(), collector, lookupTable, this.getHashAlgorithm(), this.configuration, this
+                .getHashAlgorithm().initialState(), this.stateMask(this.configuration.getBucketMask(),
+                this.configuration.getSufixLength())).call();
+
+        return sink.keys;
+    }
+
+    private List<Callable<Void>> buildTasks(final SufixTable lookupTable, final int firstUnit,
+            final UnitCollector collector, final int initialState, final int stateMask) {
+
+        // work units are claimed on demand, so all workers are busy until the last unit or until all keys are found
+        final AtomicInteger nextUnit = new AtomicInteger(firstUnit);
+        final Builder<Callable<Void>> tasks = ImmutableList.builder();
+        for (int i = 0; i < this.configuration.getWorkerThreads(); i++) {
+            tasks.add(new MITMWorker(nextUnit, collector, lookupTable, this.getHashAlgorithm(), this.configuration,
+                    initialState, stateMask));
         }
 
         return tasks.build();
@@ -169,62 +538,332 @@ public abstract class AbstractMITMGenerator extends AbstractCollisionGenerator {
      */
     protected abstract int hashBack(final String key, final int end);
 
+    /**
+     * Gets the bits of the hash state that determine the masked hash code after hashing the specified number of
+     * characters. The lookup table is indexed on these bits, so the keys only agree with their seed under the bucket
+     * mask.
+     * <p>
+     * By default the low bits of the hash state only depend on the low bits of the previous state, like in
+     * multiplicative hashes, so the bucket mask itself is returned.
+     * 
+     * @param bucketMask the bucket mask, <code>2^n - 1</code>
+     * @param length number of hashed characters
+     * @return the mask of the hash state bits
+     */
+    protected int stateMask(final int bucketMask, final int length) {
+        return bucketMask;
+    }
+
     /**
      * Meet in the middle hash collision worker.
+     * <p>
+     * Repeatedly claims the next work unit, until all units are claimed or enough keys are found. Each unit is
+     * enumerated like an odometer over a reusable char array. The partial hash state of each prefix position is kept,
+     * so changing the last characters only costs the hash steps of the changed positions and no objects are allocated
+     * until a collision is found.
+     * <p>
+     * Each hit of the lookup table is kept in the family of the matching entry, and all the keys of the unit are
+     * handed to the {@link UnitCollector} once the unit ends.
      * 
      * @author ribeirux
      * @version $Revision$
      */
-    private static final class MITMWorker implements Callable<List<String>> {
+    private static final class MITMWorker implements Callable<Void> {
 
-        private final char start;
+        private final AtomicInteger nextUnit;
 
-        private final char end;
+        private final UnitCollector collector;
 
-        private final AtomicInteger keyCounter;
+        private final SufixTable sufixTable;
 
-        private final long maxNumberOfKeys;
+        // probed directly, skipping the sufix table indirection
+        private final LookupTable lookupTable;
 
-        private final Map<Integer, String> lookupMap;
+        private final int stateMask;
 
         private final HashAlgorithm hashAlgorithm;
 
-        private final ProgressMonitor monitor;
+        // hash state before the first character of the keys
+        private final int initialState;
 
-        private MITMWorker(final char start, final char end, final AtomicInteger keyCounter, final int maxNumberOfKeys,
-                final Map<Integer, String> lookupMap, final HashAlgorithm hashAlgorithm, final ProgressMonitor monitor) {
-            this.start = start;
-            this.end = end;
-            this.keyCounter = keyCounter;
-            this.maxNumberOfKeys = maxNumberOfKeys;
-            this.lookupMap = lookupMap;
+        private final char[] alphabet;
+
+        private final int prefixLength;
+
+        private final int sufixLength;
+
+        private final int unitKeySize;
+
+        private final int numberOfUnits;
+
+        private final int numberOfFamilies;
+
+        // families of the current unit with less keys than the collector needs
+        private int openFamilies;
+
+        private MITMWorker(final AtomicInteger nextUnit, final UnitCollector collector, final SufixTable lookupTable,
+                final HashAlgorithm hashAlgorithm, final MITMConfiguration configuration, final int initialState,
+                final int stateMask) {
+            this.nextUnit = nextUnit;
+            this.collector = collector;
+            this.sufixTable = lookupTable;
+            this.lookupTable = lookupTable.getLookupTable();
+            this.stateMask = stateMask;
             this.hashAlgorithm = hashAlgorithm;
-            this.monitor = monitor;
+            this.initialState = initialState;
+            this.alphabet = configuration.getAlphabet().toCharArray();
+            this.prefixLength = configuration.getPrefixLength();
+            this.sufixLength = configuration.getSufixLength();
+            this.unitKeySize = Math.max(0, Math.min(this.prefixLength - UNIT_SUFIX_SIZE, MAX_UNIT_KEY_SIZE));
+
+            int numberOfUnits = 1;
+            for (int i = 0; i < this.unitKeySize; i++) {
+                numberOfUnits *= this.alphabet.length;
+            }
+            this.numberOfUnits = numberOfUnits;
+            this.numberOfFamilies = collector.sinks.size();
         }
 
         @Override
-        public List<String> call() {
-            final List<String> collisions = new LinkedList<String>();
-            this.crack("", this.start, this.end, collisions);
+        public Void call() {
+            final char[] key = new char[this.prefixLength + this.sufixLength];
+
+            // hashes[i] is the hash state after the first i characters of the key
+            final int[] hashes = new int[this.prefixLength];
+            hashes[0] = this.initialState;
+
+            // digits[i] is the alphabet index of key[i]
+            final int[] digits = new int[this.prefixLength];
+
+            boolean completed = false;
+            try {
+                int unit = this.nextUnit.getAndIncrement();
+                while (unit < this.numberOfUnits && !this.collector.isDone()) {
+                    // keys found in the unit, by family
+                    final List<List<String>> unitCollisions = new ArrayList<List<String>>(this.numberOfFamilies);
+                    for (int i = 0; i < this.numberOfFamilies; i++) {
+                        unitCollisions.add(new ArrayList<String>());
+                    }
+                    this.openFamilies = this.numberOfFamilies;
+
+                    if (this.crackUnit(unit, key, digits, hashes, unitCollisions)) {
+                        try {
+                            this.collector.unitCompleted(unit, unitCollisions);
+                        } catch (final IOException e) {
+                            throw new ComputationException(e);
+                        }
+                    }
+
+                    unit = this.nextUnit.getAndIncrement();
+                }
+                completed = true;
+            } finally {
+                if (!completed) {
+                    // the units after the failed unit would never be collected, stop the other workers
+                    this.collector.abort();
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Enumerates a unit until it ends or enough keys are found.
+         * 
+         * @return true if the whole unit was enumerated or if the keys of the unit complete all families
+         */
+        private boolean crackUnit(final int unit, final char[] key, final int[] digits, final int[] hashes,
+                final List<List<String>> collisions) {
+            final int last = this.prefixLength - 1;
+
+            int remaining = unit;
+            for (int i = this.unitKeySize - 1; i >= 0; i--) {
+                digits[i] = remaining % this.alphabet.length;
+                key[i] = this.alphabet[digits[i]];
+                remaining /= this.alphabet.length;
+            }
+
+            for (int i = this.unitKeySize; i < this.prefixLength; i++) {
+                digits[i] = 0;
+                key[i] = this.alphabet[0];
+            }
+
+            int changed = 0;
+            while (!this.collector.isDone()) {
+                for (int i = changed; i < last; i++) {
+                    hashes[i + 1] = this.hashAlgorithm.step(hashes[i], key[i]);
+                }
+
+                this.crack(key, hashes[last], collisions);
+                if (this.openFamilies == 0) {
+                    return true;
+                }
+
+                // move to the next prefix of the unit, the last character is enumerated by crack
+                changed = last - 1;
+                while (changed >= this.unitKeySize && digits[changed] == this.alphabet.length - 1) {
+                    digits[changed] = 0;
+                    key[changed] = this.alphabet[0];
+                    changed--;
+                }
+
+                if (changed < this.unitKeySize) {
+                    return true;
+                }
+
+                key[changed] = this.alphabet[++digits[changed]];
+            }
 
-            return collisions;
+            return false;
         }
 
-        private void crack(final String prefix, final char startChar, final char endChar, final List<String> collisions) {
-            if (prefix.length() == KEY_SIZE) {
-                final String precomp = this.lookupMap.get(this.hashAlgorithm.hash(prefix));
-                if (precomp != null) {
-                    final int currentValue = this.keyCounter.getAndIncrement();
-                    if (currentValue < this.maxNumberOfKeys) {
-                        collisions.add(prefix + precomp);
-                        this.monitor.update(currentValue);
+        /**
+         * Tries all last characters of the key. The keys of each family are bounded by the number of keys the
+         * collector needs, since small bucket masks may hit on almost every probe.
+         */
+        private void crack(final char[] key, final int hash, final List<List<String>> collisions) {
+            for (final char c : this.alphabet) {
+                final int entry = this.lookupTable.get(this.hashAlgorithm.step(hash, c) & this.stateMask);
+                if (entry >= 0) {
+                    final List<String> familyCollisions = collisions.get(this.sufixTable.familyOf(entry));
+                    if (familyCollisions.size() < this.collector.keysPerFamily) {
+                        key[this.prefixLength - 1] = c;
+                        this.sufixTable.writeSufix(entry, key, this.prefixLength);
+                        familyCollisions.add(new String(key));
+                        if (familyCollisions.size() == this.collector.keysPerFamily) {
+                            this.openFamilies--;
+                        }
                     }
                 }
-            } else {
-                for (char i = startChar; (i <= endChar) && (this.maxNumberOfKeys > this.keyCounter.get()); i++) {
-                    this.crack(prefix + i, START_KEY, END_KEY, collisions);
+            }
+        }
+    }
+
+    /**
+     * Pushes the keys of the completed units in unit order, so the generated keys don't depend on the number of
+     * workers or on their scheduling. Units completed ahead of a slower unit wait until all previous units are done.
+     * <p>
+     * Each family takes the keys of the units in order until it is complete. Each unit is recorded in the checkpoint
+     * with all its keys, including the keys beyond the complete families, so a resumed run sees the same units. Units
+     * with as many keys of a family as a whole family may have been cut short by the worker, so neither they nor the
+     * following units are recorded; a resumed run enumerates them again.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    private static final class UnitCollector {
+
+        private final int keysPerFamily;
+
+        private final int[] found;
+
+        private final List<? extends CollisionSink> sinks;
+
+        private final ProgressMonitor monitor;
+
+        // null if disabled
+        private final Checkpoint checkpoint;
+
+        private final Map<Integer, List<List<String>>> pendingUnits = new HashMap<Integer, List<List<String>>>();
+
+        private int nextUnit;
+
+        private int openFamilies;
+
+        private int total;
+
+        private boolean recording = true;
+
+        private volatile boolean done;
+
+        // set when a worker fails
+        private volatile boolean aborted;
+
+        private UnitCollector(final int keysPerFamily, final int[] found, final int firstUnit,
+                final List<? extends CollisionSink> sinks, final ProgressMonitor monitor, final Checkpoint checkpoint) {
+            this.keysPerFamily = keysPerFamily;
+            this.found = found;
+            this.nextUnit = firstUnit;
+            this.sinks = sinks;
+            this.monitor = monitor;
+            this.checkpoint = checkpoint;
+
+            for (final int familyKeys : found) {
+                this.total += familyKeys;
+                if (familyKeys < keysPerFamily) {
+                    this.openFamilies++;
                 }
             }
+            this.done = this.openFamilies == 0;
+            monitor.update(this.total);
+        }
+
+        private boolean isDone() {
+            return this.done || this.aborted;
+        }
+
+        private void abort() {
+            this.aborted = true;
+        }
+
+        private synchronized void unitCompleted(final int unit, final List<List<String>> keys) throws IOException {
+            this.pendingUnits.put(unit, keys);
+
+            List<List<String>> next = this.pendingUnits.remove(this.nextUnit);
+            while (next != null && !this.done) {
+                for (final List<String> familyKeys : next) {
+                    this.recording &= familyKeys.size() < this.keysPerFamily;
+                }
+
+                if (this.checkpoint != null && this.recording) {
+                    this.checkpoint.unitCompleted(this.nextUnit, Iterables.concat(next));
+                }
+                this.accept(next);
+
+                this.nextUnit++;
+                next = this.pendingUnits.remove(this.nextUnit);
+            }
+        }
+
+        private void accept(final List<List<String>> keys) {
+            for (int family = 0; family < keys.size(); family++) {
+                final CollisionSink sink = this.sinks.get(family);
+                for (final String key : keys.get(family)) {
+                    if (this.found[family] == this.keysPerFamily) {
+                        break;
+                    }
+
+                    sink.accept(key);
+                    this.found[family]++;
+                    this.total++;
+                    if (this.found[family] == this.keysPerFamily) {
+                        this.openFamilies--;
+                    }
+                }
+            }
+
+            this.monitor.update(this.total);
+            this.done = this.openFamilies == 0;
+        }
+    }
+
+    /**
+     * Collects the keys in a list.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    private static final class ListSink implements CollisionSink {
+
+        private final List<String> keys;
+
+        private ListSink(final int expectedSize) {
+            this.keys = new ArrayList<String>(expectedSize);
+        }
+
+        @Override
+        public void accept(final String key) {
+            this.keys.add(key);
         }
     }
 }
@@ -0,0 +1,329 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+
+/**
+ * Append only log of a meet in the middle generation, used to resume interrupted runs.
+ * <p>
+ * The file starts with a header identifying the run, followed by one group of lines per completed work unit, in unit
+ * order: a <code>K</code> line for each key found in the unit and then a <code>U</code> line with the unit number.
+ * Lines are flushed periodically, so a crash loses at most the last flush interval, and may leave the keys of a unit
+ * without its <code>U</code> line: the lines after the last <code>U</code> line are discarded on open. The lookup
+ * table is built from the recorded seed, so units which were not completed are enumerated again with the same results.
+ * Runs with several target hashes list all of them in the header, the keys are not tagged since their hash identifies
+ * the target. The geometry line ends with the bucket mask, the target hashes are masked with it.
+ * 
+ * <pre>
+ * hashes-mitm-checkpoint 5
+ * algorithm V8
+ * hash 834792749
+ * geometry 7 3 262144 -1
+ * alphabet  *-.0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz
+ * table-seed -4962768465676381896
+ * K 00N3s0-.Bv
+ * U 0
+ * </pre>
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+final class Checkpoint implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(Checkpoint.class);
+
+    private static final String HEADER = "hashes-mitm-checkpoint 5";
+
+    private static final String ALGORITHM = "algorithm ";
+
+    private static final String HASH = "hash ";
+
+    private static final String GEOMETRY = "geometry ";
+
+    private static final String ALPHABET = "alphabet ";
+
+    private static final String TABLE_SEED = "table-seed ";
+
+    private static final String KEY = "K ";
+
+    private static final String UNIT = "U ";
+
+    private static final char LINE_SEPARATOR = '\n';
+
+    private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final long tableSeed;
+
+    private final List<String> keys;
+
+    private final Writer writer;
+
+    private int completedUnits;
+
+    private long lastFlush;
+
+    private Checkpoint(final File file, final long tableSeed, final List<String> keys, final int completedUnits)
+            throws IOException {
+        this.tableSeed = tableSeed;
+        this.keys = Collections.unmodifiableList(keys);
+        this.completedUnits = completedUnits;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), Charsets.UTF_8));
+        this.lastFlush = System.nanoTime();
+    }
+
+    /**
+     * Opens the checkpoint file of a run, creating it if it doesn't exist or is empty.
+     * 
+     * @param file the checkpoint file
+     * @param algorithm the algorithm name
+     * @param configuration the configuration of the run, the table seed is used if set, otherwise the recorded seed
+     *            or a random one
+     * @param hashes the target hashes, masked with the bucket mask
+     * @return the checkpoint
+     * @throws IOException if an I/O error occurs or the file belongs to another run
+     */
+    static Checkpoint open(final File file, final String algorithm, final MITMConfiguration configuration,
+            final int... hashes) throws IOException {
+        truncateIncompleteLine(file);
+        final Long tableSeed = configuration.getTableSeed();
+        final String hashLine = HASH + Joiner.on(' ').join(Ints.asList(hashes));
+        final String geometryLine = GEOMETRY + configuration.getPrefixLength() + ' ' + configuration.getSufixLength()
+                + ' ' + configuration.getLookupTableSize() + ' ' + configuration.getBucketMask();
+        final String alphabetLine = ALPHABET + configuration.getAlphabet();
+
+        if (file.length() == 0) {
+            final Checkpoint checkpoint = new Checkpoint(file, tableSeed == null ? new Random().nextLong() : tableSeed,
+                    new ArrayList<String>(), 0);
+            checkpoint.writeLine(HEADER);
+            checkpoint.writeLine(ALGORITHM + algorithm);
+            checkpoint.writeLine(hashLine);
+            checkpoint.writeLine(geometryLine);
+            checkpoint.writeLine(alphabetLine);
+            checkpoint.writeLine(TABLE_SEED + checkpoint.tableSeed);
+            checkpoint.writer.flush();
+
+            return checkpoint;
+        }
+
+        final long recordedTableSeed;
+        final List<String> keys = new ArrayList<String>();
+        int completedUnits = 0;
+        // bytes up to the end of the header or of the last completed unit
+        long completeLength = 0;
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                Charsets.UTF_8));
+        try {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("Not a MITM checkpoint file: " + file.getPath());
+            }
+
+            if (!(ALGORITHM + algorithm).equals(reader.readLine()) || !hashLine.equals(reader.readLine())) {
+                throw new IOException("Checkpoint of another algorithm or seed: " + file.getPath());
+            }
+
+            if (!geometryLine.equals(reader.readLine()) || !alphabetLine.equals(reader.readLine())) {
+                throw new IOException("Checkpoint of another lookup table geometry or alphabet: " + file.getPath());
+            }
+
+            final String tableSeedLine = reader.readLine();
+            if (tableSeedLine == null || !tableSeedLine.startsWith(TABLE_SEED)) {
+                throw new IOException("Corrupted checkpoint file: " + file.getPath());
+            }
+
+            recordedTableSeed = Long.parseLong(tableSeedLine.substring(TABLE_SEED.length()));
+            if (tableSeed != null && tableSeed != recordedTableSeed) {
+                throw new IOException("Checkpoint of another table seed: " + file.getPath());
+            }
+
+            for (final String line : new String[] { HEADER, ALGORITHM + algorithm, hashLine, geometryLine,
+                    alphabetLine, tableSeedLine }) {
+                completeLength += lineLength(line);
+            }
+
+            long length = completeLength;
+            final List<String> unitKeys = new ArrayList<String>();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                length += lineLength(line);
+                if (line.startsWith(KEY)) {
+                    unitKeys.add(line.substring(KEY.length()));
+                } else if (line.startsWith(UNIT) && Integer.parseInt(line.substring(UNIT.length())) == completedUnits) {
+                    completedUnits++;
+                    keys.addAll(unitKeys);
+                    unitKeys.clear();
+                    completeLength = length;
+                } else {
+                    throw new IOException("Corrupted checkpoint file: " + file.getPath());
+                }
+            }
+        } catch (final NumberFormatException e) {
+            throw new IOException("Corrupted checkpoint file: " + file.getPath(), e);
+        } finally {
+            try {
+                reader.close();
+            } catch (final IOException e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Could not close input stream of file: " + file.getPath(), e);
+                }
+            }
+        }
+
+        truncateIncompleteUnit(file, completeLength);
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Resuming from " + file.getPath() + ": " + keys.size() + " keys, " + completedUnits
+                    + " work units done");
+        }
+
+        return new Checkpoint(file, recordedTableSeed, keys, completedUnits);
+    }
+
+    private static int lineLength(final String line) {
+        return line.getBytes(Charsets.UTF_8).length + 1;
+    }
+
+    /**
+     * Removes the last line if the previous run died while writing it.
+     */
+    private static void truncateIncompleteLine(final File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long end = raf.length();
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == LINE_SEPARATOR) {
+                    break;
+                }
+                end--;
+            }
+
+            if (end < raf.length()) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn("Discarding incomplete line at the end of checkpoint file: " + file.getPath());
+                }
+                raf.setLength(end);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Removes the keys after the last completed unit, left by a previous run which died before writing the unit line.
+     */
+    private static void truncateIncompleteUnit(final File file, final long length) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (length < raf.length()) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn("Discarding keys of an incomplete work unit at the end of checkpoint file: "
+                            + file.getPath());
+                }
+                raf.setLength(length);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Gets the seed of the lookup table.
+     * 
+     * @return the seed of the lookup table
+     */
+    long getTableSeed() {
+        return this.tableSeed;
+    }
+
+    /**
+     * Gets the keys of the completed units.
+     * 
+     * @return an unmodifiable list with the keys found so far
+     */
+    List<String> getKeys() {
+        return this.keys;
+    }
+
+    /**
+     * Gets the number of completed units, units are completed in order.
+     * 
+     * @return the number of completed units
+     */
+    synchronized int getCompletedUnits() {
+        return this.completedUnits;
+    }
+
+    /**
+     * Records the next completed unit and its keys.
+     * 
+     * @param unit the unit, units must be completed in order
+     * @param unitKeys all keys found in the unit
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void unitCompleted(final int unit, final Iterable<String> unitKeys) throws IOException {
+        Preconditions.checkArgument(unit == this.completedUnits, "unit");
+        this.completedUnits++;
+
+        for (final String key : unitKeys) {
+            this.writeLine(KEY + key);
+        }
+        this.writeLine(UNIT + unit);
+
+        final long now = System.nanoTime();
+        if (now - this.lastFlush >= FLUSH_INTERVAL) {
+            this.writer.flush();
+            this.lastFlush = now;
+        }
+    }
+
+    private void writeLine(final String line) throws IOException {
+        this.writer.write(line);
+        this.writer.write(LINE_SEPARATOR);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.writer.close();
+    }
+}
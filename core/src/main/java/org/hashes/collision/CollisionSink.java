@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+/**
+ * Consumer of generated keys, e.g. a request body encoder or a file writer.
+ * <p>
+ * Keys are pushed as soon as they are produced, so the whole key list doesn't need to be held in memory. Generators
+ * never call the same sink from more than one thread at a time, so implementations don't need to be thread safe.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public interface CollisionSink {
+
+    /**
+     * Receives the next key.
+     * 
+     * @param key a key with the same hash code as all previous keys
+     */
+    void accept(String key);
+
+}
@@ -15,12 +15,8 @@
  */
 package org.hashes.collision;
 
-import java.util.List;
-
 import org.hashes.algorithm.DJBX31AHashAlgorithm;
 
-import com.google.common.collect.ImmutableList;
-
 /**
  * DJBX31A hash collision generator.
  * 
@@ -36,8 +32,12 @@ public class DJBX31ACollisionGenerator extends AbstractEquivalentSubstringsGener
         super(new DJBX31AHashAlgorithm());
     }
 
-    @Override
-    protected List<String> buildSeed() {
-        return ImmutableList.of("xw", "yX", "z9");
+    /**
+     * Creates a new instance with the specified alphabet.
+     * 
+     * @param alphabet the characters of the equivalent substrings, without repetitions
+     */
+    public DJBX31ACollisionGenerator(final String alphabet) {
+        super(new DJBX31AHashAlgorithm(), alphabet);
     }
 }
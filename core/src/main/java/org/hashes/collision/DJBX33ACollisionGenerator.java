@@ -15,12 +15,8 @@
  */
 package org.hashes.collision;
 
-import java.util.List;
-
 import org.hashes.algorithm.DJBX33AHashAlgorithm;
 
-import com.google.common.collect.ImmutableList;
-
 /**
  * DJBX33A hash collision generator.
  * 
@@ -36,8 +32,12 @@ public class DJBX33ACollisionGenerator extends AbstractEquivalentSubstringsGener
         super(new DJBX33AHashAlgorithm());
     }
 
-    @Override
-    protected List<String> buildSeed() {
-        return ImmutableList.of("Ez", "FY", "G8");
+    /**
+     * Creates a new instance with the specified alphabet.
+     * 
+     * @param alphabet the characters of the equivalent substrings, without repetitions
+     */
+    public DJBX33ACollisionGenerator(final String alphabet) {
+        super(new DJBX33AHashAlgorithm(), alphabet);
     }
 }
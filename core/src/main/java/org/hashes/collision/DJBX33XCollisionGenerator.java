@@ -46,6 +46,15 @@ public class DJBX33XCollisionGenerator extends AbstractMITMGenerator {
         super(new DJBX33XHashAlgorithm(), seed, workerThreads);
     }
 
+    /**
+     * Creates a new instance with specified configuration.
+     * 
+     * @param configuration MITM configuration
+     */
+    public DJBX33XCollisionGenerator(final MITMConfiguration configuration) {
+        super(new DJBX33XHashAlgorithm(), configuration);
+    }
+
     @Override
     protected int hashBack(final String key, final int end) {
         Preconditions.checkNotNull(key, "key");
@@ -57,4 +66,5 @@ public class DJBX33XCollisionGenerator extends AbstractMITMGenerator {
 
         return result;
     }
+
 }
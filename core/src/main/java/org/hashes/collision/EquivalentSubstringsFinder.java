@@ -0,0 +1,218 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hashes.algorithm.HashAlgorithm;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+
+/**
+ * Finds families of equivalent substrings: blocks of the same length that lead any hash state to the same state, so
+ * all keys built by concatenating blocks of a family have the same hash code.
+ * <p>
+ * All blocks of a length are enumerated over the alphabet and sorted by the state they reach from the initial state;
+ * the largest group of blocks reaching the same state is the candidate family. Hashes such as DJBX33A and DJBX31A
+ * multiply the state and add the character, so blocks reaching the same state from one state reach the same state from
+ * any state. The candidate family is still hashed from a few random states and only the blocks that agree on all of
+ * them are kept, so hashes without equivalent substrings, such as the xor step of DJBX33X, yield single block
+ * families.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class EquivalentSubstringsFinder {
+
+    /**
+     * Digits and ASCII letters, which are not encoded in URLs.
+     */
+    public static final String DEFAULT_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    // the state of each block is kept in an int[] while sorting
+    static final int MAX_BLOCKS = 1 << 24;
+
+    private static final Log LOG = LogFactory.getLog(EquivalentSubstringsFinder.class);
+
+    private static final int PROBES = 8;
+
+    // fixed, so the same family is always found
+    private static final long PROBE_SEED = 2012;
+
+    private final HashAlgorithm hashAlgorithm;
+
+    private final char[] alphabet;
+
+    /**
+     * Creates a new finder.
+     * 
+     * @param hashAlgorithm the hash algorithm
+     * @param alphabet the characters of the blocks, without repetitions
+     */
+    public EquivalentSubstringsFinder(final HashAlgorithm hashAlgorithm, final String alphabet) {
+        this.hashAlgorithm = Preconditions.checkNotNull(hashAlgorithm, "hashAlgorithm");
+        Preconditions.checkNotNull(alphabet, "alphabet");
+        Preconditions.checkArgument(alphabet.length() > 1, "The alphabet should have at least 2 characters");
+        for (int i = 0; i < alphabet.length(); i++) {
+            Preconditions.checkArgument(alphabet.indexOf(alphabet.charAt(i)) == i, "Repeated alphabet character: %s",
+                    alphabet.charAt(i));
+        }
+
+        this.alphabet = alphabet.toCharArray();
+    }
+
+    /**
+     * Gets the alphabet property.
+     * 
+     * @return the alphabet property
+     */
+    public String getAlphabet() {
+        return new String(this.alphabet);
+    }
+
+    /**
+     * Gets the number of blocks of the specified length.
+     * 
+     * @param blockLength the block length
+     * @return the number of blocks, or {@link Long#MAX_VALUE} if there are more than 2^24 blocks
+     */
+    long numberOfBlocks(final int blockLength) {
+        Preconditions.checkArgument(blockLength > 0, "blockLength");
+
+        long blocks = 1;
+        for (int i = 0; i < blockLength && blocks <= MAX_BLOCKS; i++) {
+            blocks *= this.alphabet.length;
+        }
+
+        return blocks > MAX_BLOCKS ? Long.MAX_VALUE : blocks;
+    }
+
+    /**
+     * Finds the largest family of equivalent blocks of the specified length. Ties are broken by the smallest state,
+     * so the same family is always found.
+     * 
+     * @param blockLength the block length, there must be at most 2^24 blocks of this length
+     * @return an immutable list of equivalent blocks, in alphabet order, with a single block if there are no
+     *         equivalent blocks
+     */
+    public List<String> find(final int blockLength) {
+        final long numberOfBlocks = this.numberOfBlocks(blockLength);
+        Preconditions.checkArgument(numberOfBlocks <= MAX_BLOCKS, "At most %s blocks are searched", MAX_BLOCKS);
+
+        final int initialState = this.hashAlgorithm.initialState();
+        final int[] states = new int[(int) numberOfBlocks];
+        final char[] block = new char[blockLength];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = this.hash(initialState, this.block(i, block));
+        }
+        Arrays.sort(states);
+
+        // first longest run of the sorted states
+        int state = states[0];
+        int size = 0;
+        for (int start = 0, end = 1; end <= states.length; end++) {
+            if (end == states.length || states[end] != states[start]) {
+                if (end - start > size) {
+                    state = states[start];
+                    size = end - start;
+                }
+                start = end;
+            }
+        }
+
+        final List<String> candidates = new ArrayList<String>(size);
+        for (int i = 0; i < states.length; i++) {
+            if (this.hash(initialState, this.block(i, block)) == state) {
+                candidates.add(new String(block));
+            }
+        }
+
+        final List<String> family = this.equivalent(candidates);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Largest family of blocks of length " + blockLength + ": " + family.size() + " blocks of "
+                    + candidates.size() + " candidates");
+        }
+
+        return family;
+    }
+
+    /**
+     * Keeps the largest group of blocks that reach the same states from random states.
+     */
+    private List<String> equivalent(final List<String> candidates) {
+        final Random random = new Random(PROBE_SEED);
+        final int[] probes = new int[PROBES];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = random.nextInt();
+        }
+
+        final Map<List<Integer>, List<String>> groups = new LinkedHashMap<List<Integer>, List<String>>();
+        for (final String candidate : candidates) {
+            final int[] signature = new int[probes.length];
+            for (int i = 0; i < probes.length; i++) {
+                signature[i] = this.hash(probes[i], candidate.toCharArray());
+            }
+
+            final List<Integer> key = Ints.asList(signature);
+            List<String> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<String>();
+                groups.put(key, group);
+            }
+            group.add(candidate);
+        }
+
+        List<String> largest = null;
+        for (final List<String> group : groups.values()) {
+            if (largest == null || group.size() > largest.size()) {
+                largest = group;
+            }
+        }
+
+        return ImmutableList.copyOf(largest);
+    }
+
+    /**
+     * Writes the block with the specified number, the first character is the most significant digit.
+     */
+    private char[] block(final int number, final char[] block) {
+        int remaining = number;
+        for (int i = block.length - 1; i >= 0; i--) {
+            block[i] = this.alphabet[remaining % this.alphabet.length];
+            remaining /= this.alphabet.length;
+        }
+
+        return block;
+    }
+
+    private int hash(final int state, final char[] block) {
+        int result = state;
+        for (final char c : block) {
+            result = this.hashAlgorithm.step(result, c);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.hashes.util.CollisionFile;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Sink which saves the keys to a file as they are generated: in the binary collision file format if the file name ends
+ * with .bin, or one key per line otherwise. Binary files record the bucket mask of the generator.
+ * <p>
+ * Since {@link #accept(String)} can't throw checked exceptions, the first error is kept, the following keys are
+ * ignored and the error is thrown by {@link #close()}.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class FileCollisionSink implements CollisionSink, Closeable {
+
+    private static final String BINARY_FILE_SUFIX = ".bin";
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final File file;
+
+    private final AbstractCollisionGenerator generator;
+
+    // null in binary mode
+    private final Writer textWriter;
+
+    // binary mode only, opened with the first key
+    private CollisionFile.Writer binaryWriter;
+
+    private IOException failure;
+
+    /**
+     * Creates a new sink, truncating the file.
+     * 
+     * @param file destination file
+     * @param charset the encoding of text files
+     * @param generator generator of the keys, for the header of binary files
+     * @throws IOException if the file can't be created
+     */
+    public FileCollisionSink(final File file, final Charset charset, final AbstractCollisionGenerator generator)
+            throws IOException {
+        this.file = Preconditions.checkNotNull(file, "file");
+        Preconditions.checkNotNull(charset, "charset");
+        this.generator = Preconditions.checkNotNull(generator, "generator");
+
+        if (file.getName().endsWith(BINARY_FILE_SUFIX)) {
+            this.textWriter = null;
+        } else {
+            this.textWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), charset));
+        }
+    }
+
+    @Override
+    public void accept(final String key) {
+        if (this.failure != null) {
+            return;
+        }
+
+        try {
+            if (this.textWriter != null) {
+                this.textWriter.write(key);
+                this.textWriter.write(LINE_SEPARATOR);
+            } else {
+                if (this.binaryWriter == null) {
+                    final int hash = this.generator.getHashAlgorithm().hash(key);
+                    this.binaryWriter = CollisionFile.openWriter(this.file, this.generator.getAlgorithmName(), hash,
+                            this.generator.getBucketMask(), key.length());
+                }
+                this.binaryWriter.write(key);
+            }
+        } catch (final IOException e) {
+            this.failure = e;
+        } catch (final IllegalArgumentException e) {
+            this.failure = new IOException("Could not save key to binary file: " + key, e);
+        }
+    }
+
+    /**
+     * Closes the file.
+     * 
+     * @throws IOException if an I/O error occurs or any key could not be saved
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.textWriter != null) {
+                this.textWriter.close();
+            } else if (this.binaryWriter != null) {
+                this.binaryWriter.close();
+            }
+        } catch (final IOException e) {
+            if (this.failure == null) {
+                this.failure = e;
+            }
+        }
+
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hashes.collision.MITMConfiguration.Storage;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Open addressing hash table with primitive <code>int</code> keys and non negative <code>int</code> values.
+ * <p>
+ * Each entry is packed into a single <code>long</code> slot (key in the high 32 bits, value + 1 in the low 32 bits),
+ * so neither inserting nor probing allocates objects and a probe usually touches a single cache line. Slots are kept in
+ * a <code>long[]</code> or outside the Java heap, see {@link Storage}.
+ * <p>
+ * Instances are not thread safe while being populated, but can be safely probed from several threads once
+ * published.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+abstract class LookupTable {
+
+    private static final Log LOG = LogFactory.getLog(LookupTable.class);
+
+    private static final long MAX_HEAP_CAPACITY = 1L << 30;
+
+    private static final long MAX_OFF_HEAP_CAPACITY = 1L << 31;
+
+    private static final int LOAD_FACTOR_DIVISOR = 2;
+
+    private static final long VALUE_MASK = 0xFFFFFFFFL;
+
+    private static final int MIX = 0x9E3779B9;
+
+    private final int mask;
+
+    private final int shift;
+
+    private int size;
+
+    private LookupTable(final long capacity) {
+        this.mask = (int) (capacity - 1);
+        this.shift = Long.numberOfLeadingZeros(capacity) - Integer.SIZE + 1;
+    }
+
+    /**
+     * Creates a new heap table able to hold the specified number of entries.
+     * 
+     * @param expectedSize expected number of entries
+     * @return the table
+     */
+    static LookupTable create(final int expectedSize) {
+        return new HeapLookupTable(capacityFor(expectedSize, MAX_HEAP_CAPACITY));
+    }
+
+    /**
+     * Creates a new table able to hold the specified number of entries.
+     * 
+     * @param expectedSize expected number of entries
+     * @param storage where the slots are kept
+     * @return the table
+     * @throws IOException if the memory mapped file could not be created
+     */
+    static LookupTable create(final int expectedSize, final Storage storage) throws IOException {
+        Preconditions.checkNotNull(storage, "storage");
+
+        switch (storage) {
+        case HEAP:
+            return create(expectedSize);
+        case DIRECT:
+            return new OffHeapLookupTable(capacityFor(expectedSize, MAX_OFF_HEAP_CAPACITY), false);
+        case MAPPED:
+            return new OffHeapLookupTable(capacityFor(expectedSize, MAX_OFF_HEAP_CAPACITY), true);
+        default:
+            throw new IllegalArgumentException("Unsupported storage: " + storage);
+        }
+    }
+
+    /**
+     * Gets the maximum number of entries of a table with the specified storage.
+     * 
+     * @param storage where the slots are kept
+     * @return the maximum number of entries
+     */
+    static int maxSize(final Storage storage) {
+        return (int) ((storage == Storage.HEAP ? MAX_HEAP_CAPACITY : MAX_OFF_HEAP_CAPACITY) / LOAD_FACTOR_DIVISOR);
+    }
+
+    private static long capacityFor(final int expectedSize, final long maxCapacity) {
+        Preconditions.checkArgument(expectedSize > 0, "expectedSize");
+        Preconditions.checkArgument(expectedSize <= maxCapacity / LOAD_FACTOR_DIVISOR, "expectedSize");
+
+        return Long.highestOneBit((long) expectedSize * LOAD_FACTOR_DIVISOR - 1) << 1;
+    }
+
+    /**
+     * Associates the specified value with the specified key, replacing any previous value.
+     * 
+     * @param key the key
+     * @param value the non negative value
+     */
+    void put(final int key, final int value) {
+        this.put(key, value, true);
+    }
+
+    /**
+     * Associates the specified value with the specified key, unless the key is already present.
+     * 
+     * @param key the key
+     * @param value the non negative value
+     * @return true if the key was added, false if it was already present
+     */
+    boolean putIfAbsent(final int key, final int value) {
+        return this.put(key, value, false);
+    }
+
+    private boolean put(final int key, final int value, final boolean replace) {
+        Preconditions.checkArgument(value >= 0, "value");
+
+        final long entry = ((long) key << 32) | (value + 1L);
+        int index = this.indexFor(key);
+        long slot = this.read(index);
+        while (slot != 0) {
+            if ((int) (slot >>> 32) == key) {
+                if (replace) {
+                    this.write(index, entry);
+                }
+                return false;
+            }
+            index = (index + 1) & this.mask;
+            slot = this.read(index);
+        }
+
+        Preconditions.checkState(this.size < this.mask, "table is full");
+        this.write(index, entry);
+        this.size++;
+
+        return true;
+    }
+
+    /**
+     * Gets the value associated with the specified key.
+     * 
+     * @param key the key
+     * @return the value or -1 if the key is not present
+     */
+    int get(final int key) {
+        int index = this.indexFor(key);
+        long slot = this.read(index);
+        while (slot != 0) {
+            if ((int) (slot >>> 32) == key) {
+                return (int) (slot & VALUE_MASK) - 1;
+            }
+            index = (index + 1) & this.mask;
+            slot = this.read(index);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the number of distinct keys.
+     * 
+     * @return the number of distinct keys
+     */
+    int size() {
+        return this.size;
+    }
+
+    private int indexFor(final int key) {
+        // keys are hash codes, but the low bits of some algorithms are poorly distributed
+        return (key * MIX) >>> this.shift;
+    }
+
+    /**
+     * Reads a slot.
+     * 
+     * @param index the slot index
+     * @return the slot, 0 if empty
+     */
+    protected abstract long read(int index);
+
+    /**
+     * Writes a slot.
+     * 
+     * @param index the slot index
+     * @param slot the slot
+     */
+    protected abstract void write(int index, long slot);
+
+    /**
+     * Slots kept in a <code>long[]</code>.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    private static final class HeapLookupTable extends LookupTable {
+
+        private final long[] slots;
+
+        private HeapLookupTable(final long capacity) {
+            super(capacity);
+            this.slots = new long[(int) capacity];
+        }
+
+        @Override
+        protected long read(final int index) {
+            return this.slots[index];
+        }
+
+        @Override
+        protected void write(final int index, final long slot) {
+            this.slots[index] = slot;
+        }
+    }
+
+    /**
+     * Slots kept in direct or memory mapped buffers, split in segments since a buffer is indexed by <code>int</code>
+     * bytes.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    private static final class OffHeapLookupTable extends LookupTable {
+
+        // 1 GiB segments
+        private static final int SEGMENT_SHIFT = 27;
+
+        private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+        private final LongBuffer[] segments;
+
+        private OffHeapLookupTable(final long capacity, final boolean mapped) throws IOException {
+            super(capacity);
+
+            final int segmentSize = (int) Math.min(capacity, 1L << SEGMENT_SHIFT);
+            this.segments = new LongBuffer[(int) (capacity / segmentSize)];
+
+            if (mapped) {
+                this.map(segmentSize);
+            } else {
+                for (int i = 0; i < this.segments.length; i++) {
+                    this.segments[i] = ByteBuffer.allocateDirect(segmentSize * 8).order(ByteOrder.nativeOrder())
+                            .asLongBuffer();
+                }
+            }
+        }
+
+        /**
+         * Maps the segments to a sparse temporary file, which is deleted once mapped.
+         */
+        private void map(final int segmentSize) throws IOException {
+            final long segmentBytes = segmentSize * 8L;
+            final File file = File.createTempFile("hashes-lookup-table", ".bin");
+            try {
+                final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.setLength(segmentBytes * this.segments.length);
+                    final FileChannel channel = raf.getChannel();
+                    for (int i = 0; i < this.segments.length; i++) {
+                        this.segments[i] = channel.map(MapMode.READ_WRITE, i * segmentBytes, segmentBytes)
+                                .order(ByteOrder.nativeOrder()).asLongBuffer();
+                    }
+                } finally {
+                    raf.close();
+                }
+            } finally {
+                if (!file.delete()) {
+                    if (LOG.isWarnEnabled()) {
+                        LOG.warn("Could not delete lookup table file, deleting on exit: " + file.getPath());
+                    }
+                    file.deleteOnExit();
+                }
+            }
+        }
+
+        @Override
+        protected long read(final int index) {
+            return this.segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+        }
+
+        @Override
+        protected void write(final int index, final long slot) {
+            this.segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, slot);
+        }
+    }
+}
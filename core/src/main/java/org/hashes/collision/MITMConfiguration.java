@@ -0,0 +1,448 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.io.File;
+import java.util.List;
+
+import org.hashes.util.WireCost;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Meet in the middle collision generator configuration.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class MITMConfiguration {
+
+    /**
+     * Where the lookup table is kept.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    public enum Storage {
+        /**
+         * Java heap, up to 2^29 entries.
+         */
+        HEAP,
+        /**
+         * Direct memory, up to 2^30 entries. The maximum is set by the <code>-XX:MaxDirectMemorySize</code> JVM option.
+         */
+        DIRECT,
+        /**
+         * Memory mapped temporary file, up to 2^30 entries. Not bounded by the JVM, but slower if the table doesn't fit
+         * in the page cache.
+         */
+        MAPPED
+    }
+
+    // mandatory
+    private final String seed;
+
+    // optional
+    private final List<String> additionalSeeds;
+
+    private final int workerThreads;
+
+    private final File checkpointFile;
+
+    private final int lookupTableSize;
+
+    private final Storage storage;
+
+    private final int prefixLength;
+
+    private final int sufixLength;
+
+    private final Long tableSeed;
+
+    private final int bucketMask;
+
+    private final String alphabet;
+
+    private final int stages;
+
+    /**
+     * MITM configuration builder.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    public static class MITMConfigurationBuilder {
+
+        // mandatory
+        private final String seed;
+
+        // optional
+        private List<String> additionalSeeds = ImmutableList.of();
+
+        private int workerThreads = Runtime.getRuntime().availableProcessors();
+
+        private File checkpointFile = null;
+
+        private int lookupTableSize = 1 << 18;
+
+        private Storage storage = Storage.HEAP;
+
+        private int prefixLength = 7;
+
+        private int sufixLength = 3;
+
+        private Long tableSeed = null;
+
+        private int bucketMask = -1;
+
+        private String alphabet = WireCost.UNENCODED;
+
+        private int stages = 1;
+
+        /**
+         * Creates a new builder with mandatory fields.
+         * 
+         * @param seed MITM seed, the generated keys have the same hash as the seed
+         */
+        public MITMConfigurationBuilder(final String seed) {
+            this.seed = Preconditions.checkNotNull(seed, "seed");
+        }
+
+        /**
+         * Sets the seeds of additional collision families. Each family is searched in the same pass as the main seed,
+         * so the key enumeration is shared by all seeds. Seeds must have distinct hash codes.
+         * <p>
+         * Default: none
+         * 
+         * @param additionalSeeds the additional seeds
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withAdditionalSeeds(final String... additionalSeeds) {
+            this.additionalSeeds = ImmutableList.copyOf(Preconditions.checkNotNull(additionalSeeds,
+                    "additionalSeeds"));
+
+            return this;
+        }
+
+        /**
+         * Sets the number of worker threads.
+         * <p>
+         * Default: number of available processors
+         * 
+         * @param workerThreads number of worker threads
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withWorkerThreads(final int workerThreads) {
+            Preconditions.checkArgument(workerThreads > 0, "workerThreads");
+            this.workerThreads = workerThreads;
+
+            return this;
+        }
+
+        /**
+         * Saves the progress to the specified file as the keys are found. If the file already exists, the generation
+         * resumes from it, so a run can be interrupted and restarted with the same file and seed.
+         * <p>
+         * Default: OFF
+         * 
+         * @param checkpointFile the checkpoint file
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withCheckpointFile(final File checkpointFile) {
+            this.checkpointFile = Preconditions.checkNotNull(checkpointFile, "checkpointFile");
+
+            return this;
+        }
+
+        /**
+         * Sets the number of lookup table entries of each seed. Each enumerated prefix finds about
+         * <code>lookupTableSize / 2^32</code> keys, so larger tables find keys faster at the cost of 16 bytes of
+         * memory per entry.
+         * <p>
+         * Default: 2^18
+         * 
+         * @param lookupTableSize number of lookup table entries of each seed
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withLookupTableSize(final int lookupTableSize) {
+            Preconditions.checkArgument(lookupTableSize > 0, "lookupTableSize");
+            this.lookupTableSize = lookupTableSize;
+
+            return this;
+        }
+
+        /**
+         * Sets where the lookup table is kept.
+         * <p>
+         * Default: {@link Storage#HEAP}
+         * 
+         * @param storage where the lookup table is kept
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withStorage(final Storage storage) {
+            this.storage = Preconditions.checkNotNull(storage, "storage");
+
+            return this;
+        }
+
+        /**
+         * Sets the number of enumerated characters of each key.
+         * <p>
+         * Default: 7
+         * 
+         * @param prefixLength number of enumerated characters
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withPrefixLength(final int prefixLength) {
+            Preconditions.checkArgument(prefixLength > 0, "prefixLength");
+            this.prefixLength = prefixLength;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of characters of each key stored in the lookup table. The sufix space should be larger than
+         * the lookup table, otherwise the same sufixes are stored several times.
+         * <p>
+         * Default: 3
+         * 
+         * @param sufixLength number of characters stored in the lookup table, between 1 and 9
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withSufixLength(final int sufixLength) {
+            Preconditions.checkArgument(sufixLength > 0 && sufixLength <= 9, "sufixLength");
+            this.sufixLength = sufixLength;
+
+            return this;
+        }
+
+        /**
+         * Sets the seed of the lookup table. The generated keys only depend on the seeds, the lookup table seed and
+         * geometry, so runs with the same settings generate the same keys regardless of the number of worker threads.
+         * <p>
+         * Default: random
+         * 
+         * @param tableSeed the seed of the lookup table
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withTableSeed(final long tableSeed) {
+            this.tableSeed = tableSeed;
+
+            return this;
+        }
+
+        /**
+         * Sets the bucket mask of the target hash table. Hash tables with <code>2^n</code> buckets only use the low
+         * <code>n</code> bits of the hash code, so the generated keys only need to agree with the seed under the mask
+         * <code>2^n - 1</code>. The lookup table is indexed on the bits of the hash state that determine the masked
+         * hash, so each enumerated prefix finds far more keys than with full hash code collisions.
+         * <p>
+         * Default: -1 (all bits, the keys have the same hash code as the seed)
+         * 
+         * @param bucketMask the bucket mask, <code>2^n - 1</code> with <code>n</code> between 1 and 32
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withBucketMask(final int bucketMask) {
+            Preconditions.checkArgument(bucketMask != 0 && (bucketMask & (bucketMask + 1)) == 0, "bucketMask");
+            this.bucketMask = bucketMask;
+
+            return this;
+        }
+
+        /**
+         * Sets the characters of the generated keys. Characters which are percent encoded in a form body take 3 bytes
+         * on the wire, see {@link WireCost}, so the default alphabet only has the characters encoded as a single byte.
+         * The lookup table should be smaller than the sufix space, <code>alphabet.length()^sufixLength</code>.
+         * <p>
+         * Default: {@link WireCost#UNENCODED}
+         * 
+         * @param alphabet printable ASCII characters, at least 2, without repetitions
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withAlphabet(final String alphabet) {
+            Preconditions.checkNotNull(alphabet, "alphabet");
+            Preconditions.checkArgument(alphabet.length() > 1, "The alphabet should have at least 2 characters");
+            for (int i = 0; i < alphabet.length(); i++) {
+                final char c = alphabet.charAt(i);
+                Preconditions.checkArgument(c >= ' ' && c <= '~', "Not a printable ASCII character: %s", (int) c);
+                Preconditions.checkArgument(alphabet.indexOf(c) == i, "Repeated alphabet character: %s", c);
+            }
+            this.alphabet = alphabet;
+
+            return this;
+        }
+
+        /**
+         * Sets the number of blocks of each key of the main seed. The hash code of the MITM algorithms is their whole
+         * hash state, so a key with the hash code of the seed followed by blocks which hash the seed hash code back to
+         * itself has the same hash code as the seed. The first blocks and the following blocks are searched in two
+         * runs sharing the lookup table, and the keys are enumerated lazily from the cartesian product of the blocks,
+         * so about <code>numberOfKeys^(1/stages)</code> blocks of each run are enough for <code>numberOfKeys</code>
+         * keys, at the cost of <code>stages</code> times longer keys.
+         * <p>
+         * The blocks are full hash code collisions regardless of the bucket mask. Collision families have a single
+         * block, and chained runs are not checkpointed.
+         * <p>
+         * Default: 1
+         * 
+         * @param stages number of blocks of each key
+         * @return the MITM configuration builder
+         */
+        public MITMConfigurationBuilder withStages(final int stages) {
+            Preconditions.checkArgument(stages > 0, "stages");
+            this.stages = stages;
+
+            return this;
+        }
+
+        /**
+         * Build immutable configuration.
+         * 
+         * @return the configuration.
+         */
+        public MITMConfiguration build() {
+            Preconditions.checkState(this.stages == 1 || this.checkpointFile == null,
+                    "Runs with several stages can't be checkpointed");
+
+            return new MITMConfiguration(this);
+        }
+
+    }
+
+    private MITMConfiguration(final MITMConfigurationBuilder builder) {
+        this.seed = builder.seed;
+        this.additionalSeeds = builder.additionalSeeds;
+        this.workerThreads = builder.workerThreads;
+        this.checkpointFile = builder.checkpointFile;
+        this.lookupTableSize = builder.lookupTableSize;
+        this.storage = builder.storage;
+        this.prefixLength = builder.prefixLength;
+        this.sufixLength = builder.sufixLength;
+        this.tableSeed = builder.tableSeed;
+        this.bucketMask = builder.bucketMask;
+        this.alphabet = builder.alphabet;
+        this.stages = builder.stages;
+    }
+
+    /**
+     * Gets the seed property.
+     * 
+     * @return the seed property
+     */
+    public String getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Gets all seeds, the main seed first.
+     * 
+     * @return an immutable list with all seeds
+     */
+    public List<String> getSeeds() {
+        return ImmutableList.<String> builder().add(this.seed).addAll(this.additionalSeeds).build();
+    }
+
+    /**
+     * Gets the workerThreads property.
+     * 
+     * @return the workerThreads property
+     */
+    public int getWorkerThreads() {
+        return this.workerThreads;
+    }
+
+    /**
+     * Gets the checkpointFile property.
+     * 
+     * @return the checkpoint file or null if disabled
+     */
+    public File getCheckpointFile() {
+        return this.checkpointFile;
+    }
+
+    /**
+     * Gets the lookupTableSize property.
+     * 
+     * @return the lookupTableSize property
+     */
+    public int getLookupTableSize() {
+        return this.lookupTableSize;
+    }
+
+    /**
+     * Gets the storage property.
+     * 
+     * @return the storage property
+     */
+    public Storage getStorage() {
+        return this.storage;
+    }
+
+    /**
+     * Gets the prefixLength property.
+     * 
+     * @return the prefixLength property
+     */
+    public int getPrefixLength() {
+        return this.prefixLength;
+    }
+
+    /**
+     * Gets the sufixLength property.
+     * 
+     * @return the sufixLength property
+     */
+    public int getSufixLength() {
+        return this.sufixLength;
+    }
+
+    /**
+     * Gets the tableSeed property.
+     * 
+     * @return the lookup table seed or null if random
+     */
+    public Long getTableSeed() {
+        return this.tableSeed;
+    }
+
+    /**
+     * Gets the bucketMask property.
+     * 
+     * @return the bucket mask, -1 if the keys have the same hash code as the seed
+     */
+    public int getBucketMask() {
+        return this.bucketMask;
+    }
+
+    /**
+     * Gets the alphabet property.
+     * 
+     * @return the alphabet property
+     */
+    public String getAlphabet() {
+        return this.alphabet;
+    }
+
+    /**
+     * Gets the stages property.
+     * 
+     * @return the number of blocks of each key of the main seed
+     */
+    public int getStages() {
+        return this.stages;
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Read only view over the cartesian product of several lists of strings, where each element is the concatenation of
+ * one string of each list.
+ * <p>
+ * Elements are numbered in mixed radix, the first list being the most significant digit, and computed on demand by
+ * {@link #get(int)}. Nothing but the factors is stored, so the view takes constant memory regardless of its size.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+final class ProductList extends AbstractList<String> implements RandomAccess {
+
+    private final List<List<String>> factors;
+
+    // weights[i] is the number of elements covered by each string of the i-th factor
+    private final long[] weights;
+
+    private final int size;
+
+    /**
+     * Creates a view over the first <code>size</code> elements of the product of the specified factors.
+     * 
+     * @param factors lists of strings to combine, the first list is the most significant
+     * @param size number of elements of the view
+     */
+    ProductList(final List<? extends List<String>> factors, final int size) {
+        Preconditions.checkNotNull(factors, "factors");
+        Preconditions.checkArgument(size >= 0, "size");
+
+        final ImmutableList.Builder<List<String>> builder = ImmutableList.builder();
+        for (final List<String> factor : factors) {
+            Preconditions.checkArgument(!factor.isEmpty(), "empty factor");
+            builder.add(ImmutableList.copyOf(factor));
+        }
+        this.factors = builder.build();
+
+        this.weights = new long[this.factors.size()];
+        long weight = 1;
+        for (int i = this.weights.length - 1; i >= 0; i--) {
+            this.weights[i] = weight;
+            // saturate, any weight above Integer.MAX_VALUE behaves the same
+            weight = Math.min(weight * this.factors.get(i).size(), Integer.MAX_VALUE + 1L);
+        }
+
+        Preconditions.checkArgument(size <= weight, "size is greater than the product size");
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of elements of the product of the specified factors.
+     * 
+     * @param factors lists of strings to combine
+     * @return the number of elements, or {@link Integer#MAX_VALUE} if it doesn't fit in an int
+     */
+    static int productSize(final List<? extends List<String>> factors) {
+        long product = 1;
+        for (final List<String> factor : factors) {
+            product = Math.min(product * factor.size(), Integer.MAX_VALUE);
+        }
+
+        return (int) product;
+    }
+
+    @Override
+    public String get(final int index) {
+        Preconditions.checkElementIndex(index, this.size);
+
+        final StringBuilder element = new StringBuilder();
+        for (int i = 0; i < this.weights.length; i++) {
+            final List<String> factor = this.factors.get(i);
+            element.append(factor.get((int) (index / this.weights[i] % factor.size())));
+        }
+
+        return element.toString();
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+}
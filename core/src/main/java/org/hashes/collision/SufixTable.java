@@ -0,0 +1,134 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Meet in the middle lookup table: maps the hash of sufixes hashed backwards from the target hashes to the entry that
+ * produced them.
+ * <p>
+ * Entries are numbered from 0, <code>entriesPerSeed</code> consecutive entries for each target hash. The sufix of an
+ * entry is derived from the table seed and the entry number, so only the entry number is stored and the sufix length
+ * is not bounded by the table values. The entries of each target hash are mapped to the sufix space by an affine
+ * permutation, so there are no repeated sufixes until the whole sufix space is used.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+final class SufixTable {
+
+    private final LookupTable lookupTable;
+
+    private final char[] alphabet;
+
+    private final int entriesPerSeed;
+
+    private final int sufixLength;
+
+    private final long sufixSpace;
+
+    // sufix = (multiplier * index + offset) mod sufixSpace, the multiplier is coprime with the sufix space
+    private final long multiplier;
+
+    private final long offset;
+
+    /**
+     * Creates a new table.
+     * 
+     * @param lookupTable the table of backward hashes, populated by the caller
+     * @param alphabet the characters of the sufixes
+     * @param seed the seed of the sufixes
+     * @param entriesPerSeed number of entries of each target hash
+     * @param sufixLength number of characters of each sufix
+     */
+    SufixTable(final LookupTable lookupTable, final String alphabet, final long seed, final int entriesPerSeed,
+            final int sufixLength) {
+        this.lookupTable = Preconditions.checkNotNull(lookupTable, "lookupTable");
+        this.alphabet = alphabet.toCharArray();
+        this.entriesPerSeed = entriesPerSeed;
+        this.sufixLength = sufixLength;
+
+        long sufixSpace = 1;
+        for (int i = 0; i < sufixLength; i++) {
+            sufixSpace *= this.alphabet.length;
+        }
+        this.sufixSpace = sufixSpace;
+
+        // the multiplier is about 2^32 at most and the index is below 2^30, so the product doesn't overflow
+        long multiplier = mix(seed + 1) >>> 32;
+        while (gcd(multiplier, this.alphabet.length) != 1) {
+            multiplier++;
+        }
+        this.multiplier = multiplier;
+        this.offset = (mix(seed + 2) >>> 1) % this.sufixSpace;
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(final long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The sufix space is a power of the alphabet size, so numbers coprime with the alphabet size are coprime with the
+     * sufix space.
+     */
+    private static long gcd(final long a, final long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Gets the table of backward hashes, mapping the hash state before each sufix to its entry.
+     * 
+     * @return the table of backward hashes
+     */
+    LookupTable getLookupTable() {
+        return this.lookupTable;
+    }
+
+    /**
+     * Gets the index of the target hash of an entry.
+     * 
+     * @param entry the entry
+     * @return the index of the target hash
+     */
+    int familyOf(final int entry) {
+        return entry / this.entriesPerSeed;
+    }
+
+    /**
+     * Writes the sufix of an entry.
+     * 
+     * @param entry the entry
+     * @param dest destination array
+     * @param offset position of the first sufix character in the destination array
+     */
+    void writeSufix(final int entry, final char[] dest, final int offset) {
+        final long index = entry % this.entriesPerSeed % this.sufixSpace;
+
+        long remaining = (this.multiplier * index % this.sufixSpace + this.offset) % this.sufixSpace;
+        for (int i = offset + this.sufixLength - 1; i >= offset; i--) {
+            dest[i] = this.alphabet[(int) (remaining % this.alphabet.length)];
+            remaining /= this.alphabet.length;
+        }
+    }
+}
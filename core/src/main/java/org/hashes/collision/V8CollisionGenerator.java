@@ -48,6 +48,15 @@ public class V8CollisionGenerator extends AbstractMITMGenerator {
         super(new V8HashAlgorithm(), seed, workerThreads);
     }
 
+    /**
+     * Creates a new instance with specified configuration.
+     * 
+     * @param configuration MITM configuration
+     */
+    public V8CollisionGenerator(final MITMConfiguration configuration) {
+        super(new V8HashAlgorithm(), configuration);
+    }
+
     @Override
     public int hashBack(final String key, final int hash) {
         Preconditions.checkNotNull(key, "key");
@@ -67,4 +76,15 @@ public class V8CollisionGenerator extends AbstractMITMGenerator {
         return result;
     }
 
+    /**
+     * Each step only shifts the state right by 6 bits, so the low <code>n</code> bits of the hash depend on the low
+     * <code>n + 6</code> bits of the state before the last character.
+     */
+    @Override
+    protected int stateMask(final int bucketMask, final int length) {
+        final int bits = Integer.SIZE - Integer.numberOfLeadingZeros(bucketMask) + 6 * length;
+
+        return bits >= Integer.SIZE ? -1 : (1 << bits) - 1;
+    }
+
 }
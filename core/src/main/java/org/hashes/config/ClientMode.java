@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.config;
+
+import java.util.Locale;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Supported client execution modes.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public enum ClientMode {
+
+    /**
+     * One thread per client, using blocking sockets.
+     */
+    BLOCKING("blocking"),
+    /**
+     * One virtual thread per client, using blocking sockets. Requires a Java runtime with virtual threads, otherwise
+     * falls back to {@link #BLOCKING}.
+     */
+    VIRTUAL_THREADS("virtual"),
+    /**
+     * Clients are multiplexed on a few event loop threads, using non blocking socket channels. Only HTTP is
+     * supported.
+     */
+    NON_BLOCKING("nio");
+
+    private final String modeName;
+
+    private ClientMode(final String modeName) {
+        this.modeName = modeName;
+    }
+
+    /**
+     * Gets the modeName property.
+     * 
+     * @return the modeName property
+     */
+    public String getModeName() {
+        return this.modeName;
+    }
+
+    /**
+     * Load client mode from mode name.
+     * 
+     * @param modeName the mode name
+     * @return the client mode
+     * @throws IllegalArgumentException if the mode name is not supported
+     */
+    public static ClientMode fromModeName(final String modeName) {
+        final String lowerCaseName = Preconditions.checkNotNull(modeName, "modeName").toLowerCase(Locale.ENGLISH);
+
+        ClientMode result = null;
+
+        for (final ClientMode mode : ClientMode.values()) {
+            if (mode.getModeName().equals(lowerCaseName)) {
+                result = mode;
+                break;
+            }
+        }
+
+        if (result == null) {
+            throw new IllegalArgumentException("Unsupported client mode: " + modeName);
+        }
+
+        return result;
+    }
+}
@@ -51,6 +51,8 @@ public final class Configuration {
 
     private final File collisionsFile;
 
+    private final File metricsFile;
+
     private final boolean waitResponse;
 
     private final boolean generateNewKeys;
@@ -61,6 +63,14 @@ public final class Configuration {
 
     private final int numberOfClients;
 
+    private final ClientMode clientMode;
+
+    private final int eventLoops;
+
+    private final int benchmarkSamples;
+
+    private final KeyRamp keyRamp;
+
     private final Map<String, String> headers;
 
     /**
@@ -89,6 +99,8 @@ public final class Configuration {
 
         private File collisionsFile = null;
 
+        private File metricsFile = null;
+
         private boolean waitResponse = false;
 
         private boolean generateNewKeys = false;
@@ -99,6 +111,14 @@ public final class Configuration {
 
         private int numberOfClients = 1;
 
+        private ClientMode clientMode = ClientMode.BLOCKING;
+
+        private int eventLoops = Runtime.getRuntime().availableProcessors();
+
+        private int benchmarkSamples = 0;
+
+        private KeyRamp keyRamp = null;
+
         private int connectTimeout = 60000;
 
         private int readTimeout = 60000;
@@ -197,6 +217,21 @@ public final class Configuration {
             return this;
         }
 
+        /**
+         * Save the request metrics to the specified {@link File}, as JSON if the file name ends with .json or as CSV
+         * otherwise.
+         * <p>
+         * Default: metrics will not saved to file
+         * 
+         * @param metricsFile the name of the file
+         * @return the configuration builder
+         */
+        public ConfigurationBuilder saveMetricsToFile(final File metricsFile) {
+            this.metricsFile = Preconditions.checkNotNull(metricsFile, "metricsFile");
+
+            return this;
+        }
+
         /**
          * Wait for response.
          * <p>
@@ -266,6 +301,66 @@ public final class Configuration {
             return this;
         }
 
+        /**
+         * Defines how clients are executed.
+         * <p>
+         * Default: BLOCKING
+         * 
+         * @param clientMode the client mode
+         * @return the configuration builder.
+         */
+        public ConfigurationBuilder withClientMode(final ClientMode clientMode) {
+            this.clientMode = Preconditions.checkNotNull(clientMode, "clientMode");
+
+            return this;
+        }
+
+        /**
+         * Number of event loop threads shared by all clients when running in {@link ClientMode#NON_BLOCKING} mode.
+         * <p>
+         * Default: number of available processors
+         * 
+         * @param eventLoops the number of event loop threads
+         * @return the configuration builder.
+         */
+        public ConfigurationBuilder withEventLoops(final int eventLoops) {
+            Preconditions.checkArgument(eventLoops > 0, "eventLoops");
+            this.eventLoops = eventLoops;
+
+            return this;
+        }
+
+        /**
+         * Instead of injecting collisions, compare the response times of the colliding payload against a non
+         * colliding payload of the same size, sending the specified number of requests with each payload.
+         * <p>
+         * Default: 0 (disabled)
+         * 
+         * @param benchmarkSamples the number of samples per payload, zero to disable the benchmark
+         * @return the configuration builder.
+         */
+        public ConfigurationBuilder withBenchmarkSamples(final int benchmarkSamples) {
+            Preconditions.checkArgument(benchmarkSamples >= 0, "benchmarkSamples");
+            this.benchmarkSamples = benchmarkSamples;
+
+            return this;
+        }
+
+        /**
+         * Instead of injecting collisions, measure the response time of growing prefixes of a single colliding key
+         * list, to find where it turns quadratic and where a key limit cuts in.
+         * <p>
+         * Default: disabled
+         * 
+         * @param keyRamp the key counts to measure
+         * @return the configuration builder.
+         */
+        public ConfigurationBuilder withKeyRamp(final KeyRamp keyRamp) {
+            this.keyRamp = Preconditions.checkNotNull(keyRamp, "keyRamp");
+
+            return this;
+        }
+
         /**
          * Connect timeout.
          * 
@@ -322,11 +417,16 @@ public final class Configuration {
         this.collisionGenerator = builder.collisionGenerator;
         this.progressMonitorFactory = builder.progressMonitorFactory;
         this.collisionsFile = builder.collisionsFile;
+        this.metricsFile = builder.metricsFile;
         this.waitResponse = builder.waitResponse;
         this.generateNewKeys = builder.generateNewKeys;
         this.numberOfKeys = builder.numberOfKeys;
         this.requestsPerClient = builder.requestsPerClient;
         this.numberOfClients = builder.numberOfClients;
+        this.clientMode = builder.clientMode;
+        this.eventLoops = builder.eventLoops;
+        this.benchmarkSamples = builder.benchmarkSamples;
+        this.keyRamp = builder.keyRamp;
         this.target = new HttpHost(builder.protocol, builder.hostname, builder.port, builder.connectTimeout,
                 builder.readTimeout);
         this.headers = new ImmutableMap.Builder<String, String>().putAll(builder.headers).build();
@@ -395,6 +495,15 @@ public final class Configuration {
         return this.collisionsFile;
     }
 
+    /**
+     * Gets the metricsFile property.
+     * 
+     * @return the metricsFile property
+     */
+    public File getMetricsFile() {
+        return this.metricsFile;
+    }
+
     /**
      * Gets the waitResponse property.
      * 
@@ -439,4 +548,40 @@ public final class Configuration {
     public int getNumberOfClients() {
         return this.numberOfClients;
     }
+
+    /**
+     * Gets the clientMode property.
+     * 
+     * @return the clientMode property
+     */
+    public ClientMode getClientMode() {
+        return this.clientMode;
+    }
+
+    /**
+     * Gets the eventLoops property.
+     * 
+     * @return the eventLoops property
+     */
+    public int getEventLoops() {
+        return this.eventLoops;
+    }
+
+    /**
+     * Gets the benchmarkSamples property.
+     * 
+     * @return the benchmarkSamples property
+     */
+    public int getBenchmarkSamples() {
+        return this.benchmarkSamples;
+    }
+
+    /**
+     * Gets the keyRamp property.
+     * 
+     * @return the keyRamp property or null if disabled
+     */
+    public KeyRamp getKeyRamp() {
+        return this.keyRamp;
+    }
 }
@@ -0,0 +1,109 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.config;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Geometric sweep of key counts, from a minimum to a maximum number of keys.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class KeyRamp {
+
+    /**
+     * Default number of steps.
+     */
+    public static final int DEFAULT_STEPS = 10;
+
+    private final int minKeys;
+
+    private final int maxKeys;
+
+    private final int steps;
+
+    /**
+     * Creates a new ramp.
+     * 
+     * @param minKeys number of keys of the first step
+     * @param maxKeys number of keys of the last step
+     * @param steps number of steps, including the first and the last
+     */
+    public KeyRamp(final int minKeys, final int maxKeys, final int steps) {
+        Preconditions.checkArgument(minKeys > 0, "minKeys");
+        Preconditions.checkArgument(maxKeys >= minKeys, "maxKeys");
+        Preconditions.checkArgument(steps > 1, "steps");
+
+        this.minKeys = minKeys;
+        this.maxKeys = maxKeys;
+        this.steps = steps;
+    }
+
+    /**
+     * Gets the minKeys property.
+     * 
+     * @return the minKeys property
+     */
+    public int getMinKeys() {
+        return this.minKeys;
+    }
+
+    /**
+     * Gets the maxKeys property.
+     * 
+     * @return the maxKeys property
+     */
+    public int getMaxKeys() {
+        return this.maxKeys;
+    }
+
+    /**
+     * Gets the steps property.
+     * 
+     * @return the steps property
+     */
+    public int getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Key counts of each step, growing by a constant factor. Duplicated counts of narrow ramps are removed.
+     * 
+     * @return the increasing key counts
+     */
+    public int[] getKeyCounts() {
+        final int[] keyCounts = new int[this.steps];
+        final double factor = Math.pow((double) this.maxKeys / this.minKeys, 1.0 / (this.steps - 1));
+
+        int size = 0;
+        for (int i = 0; i < this.steps; i++) {
+            final int keys = i == this.steps - 1 ? this.maxKeys : (int) Math.round(this.minKeys * Math.pow(factor, i));
+            if (size == 0 || keys > keyCounts[size - 1]) {
+                keyCounts[size++] = keys;
+            }
+        }
+
+        return Arrays.copyOf(keyCounts, size);
+    }
+
+    @Override
+    public String toString() {
+        return this.minKeys + ":" + this.maxKeys + ":" + this.steps;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Lock free log-linear latency histogram.
+ * <p>
+ * Values below {@value #LINEAR_LIMIT} are counted exactly. Larger values fall into one of {@value #SUB_BUCKETS}
+ * linear sub-buckets per power of two, so any reported percentile is within ~3% of the recorded value. Recording is a
+ * couple of atomic increments and never allocates, which keeps the histogram out of the measured path.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+
+    // the highest magnitude of a non negative long is 62
+    private static final int BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the specified value.
+     * 
+     * @param value the non negative value to record
+     */
+    public void record(final long value) {
+        Preconditions.checkArgument(value >= 0, "value");
+
+        this.counts.incrementAndGet(indexFor(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+        updateMax(this.max, value);
+    }
+
+    /**
+     * Adds all values recorded by the specified histogram to this histogram.
+     * 
+     * @param other the histogram to merge
+     */
+    public void merge(final LatencyHistogram other) {
+        Preconditions.checkNotNull(other, "other");
+
+        for (int i = 0; i < BUCKETS; i++) {
+            final long bucketCount = other.counts.get(i);
+            if (bucketCount != 0) {
+                this.counts.addAndGet(i, bucketCount);
+            }
+        }
+
+        this.count.addAndGet(other.count.get());
+        this.sum.addAndGet(other.sum.get());
+        updateMax(this.max, other.max.get());
+    }
+
+    /**
+     * Gets the number of recorded values.
+     * 
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Gets the highest recorded value.
+     * 
+     * @return the highest recorded value or 0 if the histogram is empty
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     * 
+     * @return the mean or 0 if the histogram is empty
+     */
+    public double getMean() {
+        final long total = this.count.get();
+
+        return total == 0 ? 0 : (double) this.sum.get() / total;
+    }
+
+    /**
+     * Gets the value below which the specified percentage of the recorded values fall.
+     * 
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the specified percentile or 0 if the histogram is empty
+     */
+    public long getValueAtPercentile(final double percentile) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "percentile");
+
+        final long total = this.count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueFor(i), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    static int indexFor(final long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueFor(final int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKETS - 1;
+        final long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static void updateMax(final AtomicLong max, final long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
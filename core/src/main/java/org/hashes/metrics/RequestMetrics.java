@@ -0,0 +1,236 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Per request timings of injected requests.
+ * <p>
+ * Each {@link Phase} is recorded in its own {@link LatencyHistogram}. Clients keep their own instance, which is
+ * merged into a single summary once all clients are done.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class RequestMetrics {
+
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+
+    private static final String NEW_LINE = "\n";
+
+    /**
+     * Measured request phases.
+     */
+    public enum Phase {
+        /**
+         * Time to establish the connection.
+         */
+        CONNECT("connect"),
+        /**
+         * Time to write the whole payload.
+         */
+        WRITE("write"),
+        /**
+         * Time between the end of the write and the first response byte.
+         */
+        FIRST_BYTE("first_byte"),
+        /**
+         * Time between the start of the connection and the end of the response.
+         */
+        RESPONSE("response");
+
+        private final String phaseName;
+
+        private Phase(final String phaseName) {
+            this.phaseName = phaseName;
+        }
+
+        /**
+         * Gets the phaseName property.
+         * 
+         * @return the phaseName property
+         */
+        public String getPhaseName() {
+            return this.phaseName;
+        }
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Creates empty metrics.
+     */
+    public RequestMetrics() {
+        for (int i = 0; i < this.histograms.length; i++) {
+            this.histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the duration of a request phase.
+     * 
+     * @param phase the request phase
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(final Phase phase, final long nanos) {
+        this.histograms[phase.ordinal()].record(Math.max(0, nanos));
+    }
+
+    /**
+     * Records a failed request.
+     */
+    public void recordError() {
+        this.errors.incrementAndGet();
+    }
+
+    /**
+     * Records several failed requests.
+     * 
+     * @param count the number of failed requests
+     */
+    public void recordErrors(final long count) {
+        Preconditions.checkArgument(count >= 0, "count");
+        this.errors.addAndGet(count);
+    }
+
+    /**
+     * Adds all values recorded by the specified metrics to these metrics.
+     * 
+     * @param other the metrics to merge
+     */
+    public void merge(final RequestMetrics other) {
+        Preconditions.checkNotNull(other, "other");
+
+        for (int i = 0; i < this.histograms.length; i++) {
+            this.histograms[i].merge(other.histograms[i]);
+        }
+        this.errors.addAndGet(other.errors.get());
+    }
+
+    /**
+     * Gets the histogram of the specified phase.
+     * 
+     * @param phase the request phase
+     * @return the histogram of the specified phase
+     */
+    public LatencyHistogram getHistogram(final Phase phase) {
+        return this.histograms[phase.ordinal()];
+    }
+
+    /**
+     * Gets the number of failed requests.
+     * 
+     * @return the number of failed requests
+     */
+    public long getErrors() {
+        return this.errors.get();
+    }
+
+    /**
+     * Writes these metrics as a JSON object. All durations are in nanoseconds.
+     * 
+     * @param out where to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeJson(final Appendable out) throws IOException {
+        out.append("{").append(NEW_LINE);
+        out.append("  \"unit\": \"ns\",").append(NEW_LINE);
+        out.append("  \"errors\": ").append(String.valueOf(this.errors.get())).append(",").append(NEW_LINE);
+        out.append("  \"phases\": {").append(NEW_LINE);
+
+        final Phase[] phases = Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            final LatencyHistogram histogram = this.getHistogram(phases[i]);
+            out.append("    \"").append(phases[i].getPhaseName()).append("\": {");
+            out.append("\"count\": ").append(String.valueOf(histogram.getCount()));
+            out.append(", \"mean\": ").append(String.valueOf(Math.round(histogram.getMean())));
+            for (final double percentile : PERCENTILES) {
+                out.append(", \"p").append(String.valueOf((int) percentile)).append("\": ");
+                out.append(String.valueOf(histogram.getValueAtPercentile(percentile)));
+            }
+            out.append(", \"max\": ").append(String.valueOf(histogram.getMax())).append("}");
+            out.append(i < phases.length - 1 ? "," : "").append(NEW_LINE);
+        }
+
+        out.append("  }").append(NEW_LINE);
+        out.append("}").append(NEW_LINE);
+    }
+
+    /**
+     * Writes these metrics as CSV, one line per phase followed by a line with the number of failed requests. All
+     * durations are in nanoseconds.
+     * 
+     * @param out where to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeCsv(final Appendable out) throws IOException {
+        out.append("phase,count,mean_ns");
+        for (final double percentile : PERCENTILES) {
+            out.append(",p").append(String.valueOf((int) percentile)).append("_ns");
+        }
+        out.append(",max_ns").append(NEW_LINE);
+
+        for (final Phase phase : Phase.values()) {
+            final LatencyHistogram histogram = this.getHistogram(phase);
+            out.append(phase.getPhaseName());
+            out.append(",").append(String.valueOf(histogram.getCount()));
+            out.append(",").append(String.valueOf(Math.round(histogram.getMean())));
+            for (final double percentile : PERCENTILES) {
+                out.append(",").append(String.valueOf(histogram.getValueAtPercentile(percentile)));
+            }
+            out.append(",").append(String.valueOf(histogram.getMax())).append(NEW_LINE);
+        }
+
+        // errors are not related to a phase
+        out.append("errors,").append(String.valueOf(this.errors.get())).append(NEW_LINE);
+    }
+
+    /**
+     * Human readable summary, in milliseconds.
+     * 
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        final StringBuilder summary = new StringBuilder("Request metrics (errors: ").append(this.errors.get())
+                .append(")");
+
+        for (final Phase phase : Phase.values()) {
+            final LatencyHistogram histogram = this.getHistogram(phase);
+            if (histogram.getCount() != 0) {
+                summary.append(NEW_LINE).append(String.format(Locale.ENGLISH,
+                        "%-10s count=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms", phase.getPhaseName(),
+                        histogram.getCount(), toMillis(histogram.getValueAtPercentile(PERCENTILES[0])),
+                        toMillis(histogram.getValueAtPercentile(PERCENTILES[1])),
+                        toMillis(histogram.getValueAtPercentile(PERCENTILES[2])), toMillis(histogram.getMax())));
+            }
+        }
+
+        return summary.toString();
+    }
+
+    private static double toMillis(final long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
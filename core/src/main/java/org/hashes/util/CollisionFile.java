@@ -0,0 +1,392 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+/**
+ * Compact binary file of keys with the same hash code, or the same hash code under a bucket mask.
+ * <p>
+ * All keys have the same length and one byte per character (ISO-8859-1). The file layout is:
+ * 
+ * <pre>
+ * int     magic number (HASH)
+ * short   format version
+ * short   algorithm name length, followed by the algorithm name (US-ASCII)
+ * int     hash code shared by all keys, under the bucket mask
+ * int     bucket mask, -1 if the keys share the whole hash code
+ * short   key length
+ * int     number of keys
+ * byte[]  keys, packed without separators
+ * </pre>
+ * 
+ * Files are memory mapped and keys are only decoded when accessed, so opening a file takes constant time regardless
+ * of the number of keys. Files of the first format version, without the bucket mask, can still be read.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class CollisionFile {
+
+    private static final Log LOG = LogFactory.getLog(CollisionFile.class);
+
+    private static final int MAGIC = 0x48415348;
+
+    private static final short VERSION = 2;
+
+    // without the bucket mask
+    private static final short FULL_HASH_VERSION = 1;
+
+    private static final int MAX_CHAR = 0xFF;
+
+    private final String algorithm;
+
+    private final int hash;
+
+    private final int bucketMask;
+
+    private final int keyLength;
+
+    private final int size;
+
+    // keys only, read with absolute gets so it can be shared between threads
+    private final ByteBuffer keys;
+
+    private CollisionFile(final String algorithm, final int hash, final int bucketMask, final int keyLength,
+            final int size, final ByteBuffer keys) {
+        this.algorithm = algorithm;
+        this.hash = hash;
+        this.bucketMask = bucketMask;
+        this.keyLength = keyLength;
+        this.size = size;
+        this.keys = keys;
+    }
+
+    /**
+     * Opens the specified collision file.
+     * <p>
+     * The file is looked up like {@link FileUtils#mapFile(String)}.
+     * 
+     * @param fileName name of the file
+     * @return the collision file
+     * @throws IOException if an I/O error occurs or the file is not a valid collision file
+     */
+    public static CollisionFile open(final String fileName) throws IOException {
+        final ByteBuffer buffer = FileUtils.mapFile(fileName);
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a collision file: " + fileName);
+            }
+
+            final short version = buffer.getShort();
+            if (version != VERSION && version != FULL_HASH_VERSION) {
+                throw new IOException("Unsupported collision file version " + version + ": " + fileName);
+            }
+
+            final byte[] algorithm = new byte[buffer.getShort()];
+            buffer.get(algorithm);
+            final int hash = buffer.getInt();
+            final int bucketMask = version == VERSION ? buffer.getInt() : -1;
+            final int keyLength = buffer.getShort();
+            final int size = buffer.getInt();
+
+            if (keyLength <= 0 || size < 0 || (long) keyLength * size > buffer.remaining()
+                    || !isBucketMask(bucketMask)) {
+                throw new IOException("Corrupted collision file: " + fileName);
+            }
+
+            return new CollisionFile(new String(algorithm, Charsets.US_ASCII), hash, bucketMask, keyLength, size,
+                    buffer.slice());
+        } catch (final BufferUnderflowException e) {
+            throw new IOException("Corrupted collision file: " + fileName, e);
+        }
+    }
+
+    /**
+     * Writes the specified keys to a collision file.
+     * 
+     * @param file destination file
+     * @param algorithm name of the hash algorithm
+     * @param hash hash code shared by all keys
+     * @param keys keys to write, all with the same length and only ISO-8859-1 characters
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(final File file, final String algorithm, final int hash, final List<String> keys)
+            throws IOException {
+        Preconditions.checkNotNull(keys, "keys");
+        Preconditions.checkArgument(!keys.isEmpty(), "keys");
+
+        final Writer writer = openWriter(file, algorithm, hash, -1, keys.get(0).length());
+
+        try {
+            for (final String key : keys) {
+                writer.write(key);
+            }
+
+            // don't swallow close exception if copy completes normally
+            writer.close();
+        } finally {
+            try {
+                writer.close();
+            } catch (final IOException e) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("Could not close output stream of file: " + file.getPath(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a writer which streams keys to a collision file. The number of keys is written when the writer is closed.
+     * 
+     * @param file destination file
+     * @param algorithm name of the hash algorithm
+     * @param hash hash code shared by all keys
+     * @param keyLength length of all keys
+     * @return the writer
+     * @throws IOException if an I/O error occurs
+     */
+    public static Writer openWriter(final File file, final String algorithm, final int hash, final int keyLength)
+            throws IOException {
+        return openWriter(file, algorithm, hash, -1, keyLength);
+    }
+
+    /**
+     * Opens a writer which streams keys that only share their hash code under a bucket mask. The number of keys is
+     * written when the writer is closed.
+     * 
+     * @param file destination file
+     * @param algorithm name of the hash algorithm
+     * @param hash hash code shared by all keys under the bucket mask, only its masked bits are written
+     * @param bucketMask the bucket mask, <code>2^n - 1</code>, or -1 if the keys share the whole hash code
+     * @param keyLength length of all keys
+     * @return the writer
+     * @throws IOException if an I/O error occurs
+     */
+    public static Writer openWriter(final File file, final String algorithm, final int hash, final int bucketMask,
+            final int keyLength) throws IOException {
+        Preconditions.checkNotNull(file, "file");
+        Preconditions.checkNotNull(algorithm, "algorithm");
+        Preconditions.checkArgument(isBucketMask(bucketMask), "bucketMask");
+        Preconditions.checkArgument(keyLength > 0 && keyLength <= Short.MAX_VALUE, "key length");
+
+        return new Writer(file, algorithm, hash & bucketMask, bucketMask, keyLength);
+    }
+
+    private static boolean isBucketMask(final int bucketMask) {
+        return bucketMask != 0 && (bucketMask & (bucketMask + 1)) == 0;
+    }
+
+    /**
+     * Gets the algorithm property.
+     * 
+     * @return the algorithm property
+     */
+    public String getAlgorithm() {
+        return this.algorithm;
+    }
+
+    /**
+     * Gets the hash property.
+     * 
+     * @return the hash property
+     */
+    public int getHash() {
+        return this.hash;
+    }
+
+    /**
+     * Gets the bucket mask under which all keys share the hash code, -1 if they share the whole hash code.
+     * 
+     * @return the bucket mask
+     */
+    public int getBucketMask() {
+        return this.bucketMask;
+    }
+
+    /**
+     * Gets the keyLength property.
+     * 
+     * @return the keyLength property
+     */
+    public int getKeyLength() {
+        return this.keyLength;
+    }
+
+    /**
+     * Gets the number of keys in the file.
+     * 
+     * @return the number of keys
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets a read only view of the first keys of the file.
+     * <p>
+     * Keys are decoded on demand, the view doesn't copy the file contents.
+     * 
+     * @param numberOfKeys maximum number of keys
+     * @return a view with at most <code>numberOfKeys</code> keys
+     */
+    public List<String> getKeys(final int numberOfKeys) {
+        Preconditions.checkArgument(numberOfKeys >= 0, "numberOfKeys");
+
+        return new KeyList(Math.min(numberOfKeys, this.size));
+    }
+
+    /**
+     * View over the mapped keys.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    private final class KeyList extends AbstractList<String> implements RandomAccess {
+
+        private final int size;
+
+        private KeyList(final int size) {
+            this.size = size;
+        }
+
+        @Override
+        public String get(final int index) {
+            Preconditions.checkElementIndex(index, this.size);
+
+            final int keyLength = CollisionFile.this.keyLength;
+            final int offset = index * keyLength;
+            final char[] key = new char[keyLength];
+            for (int i = 0; i < keyLength; i++) {
+                key[i] = (char) (CollisionFile.this.keys.get(offset + i) & MAX_CHAR);
+            }
+
+            return new String(key);
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+
+    /**
+     * Streaming collision file writer.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    public static final class Writer implements Closeable {
+
+        private final File file;
+
+        private final int keyLength;
+
+        private final byte[] bytes;
+
+        // position of the number of keys in the header
+        private final int sizeOffset;
+
+        private final DataOutputStream out;
+
+        private int size;
+
+        private boolean closed;
+
+        private Writer(final File file, final String algorithm, final int hash, final int bucketMask,
+                final int keyLength) throws IOException {
+            this.file = file;
+            this.keyLength = keyLength;
+            this.bytes = new byte[keyLength];
+
+            final byte[] algorithmName = algorithm.getBytes(Charsets.US_ASCII);
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+            this.out.writeInt(MAGIC);
+            this.out.writeShort(VERSION);
+            this.out.writeShort(algorithmName.length);
+            this.out.write(algorithmName);
+            this.out.writeInt(hash);
+            this.out.writeInt(bucketMask);
+            this.out.writeShort(keyLength);
+            this.sizeOffset = this.out.size();
+            // patched on close
+            this.out.writeInt(0);
+        }
+
+        /**
+         * Appends a key.
+         * 
+         * @param key key with the same length as all other keys and only ISO-8859-1 characters
+         * @throws IOException if an I/O error occurs
+         */
+        public void write(final String key) throws IOException {
+            Preconditions.checkState(!this.closed, "closed");
+            Preconditions.checkArgument(key.length() == this.keyLength, "All keys should have the same length");
+
+            for (int i = 0; i < this.keyLength; i++) {
+                final char c = key.charAt(i);
+                Preconditions.checkArgument(c <= MAX_CHAR, "Unsupported character: %s", c);
+                this.bytes[i] = (byte) c;
+            }
+            this.out.write(this.bytes);
+            this.size++;
+        }
+
+        /**
+         * Gets the number of keys written.
+         * 
+         * @return the number of keys written
+         */
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.out.close();
+
+            final RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+            try {
+                raf.seek(this.sizeOffset);
+                raf.writeInt(this.size);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hashes.algorithm.HashAlgorithm;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Files;
+
+/**
+ * Converts pre-built text collision files, one key per line, to the binary {@link CollisionFile} format.
+ * <p>
+ * The distribution build runs it on the <code>etc</code> directory, so only the text files are kept in the source
+ * tree. The hash algorithm is resolved from the algorithm name, e.g. V8 for <code>V8.txt</code> is hashed by
+ * {@link org.hashes.algorithm.V8HashAlgorithm}.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class CollisionFileConverter {
+
+    private static final Log LOG = LogFactory.getLog(CollisionFileConverter.class);
+
+    private static final String USAGE = "usage: CollisionFileConverter <source directory> <target directory>"
+            + " <algorithm>...";
+
+    private static final String ALGORITHM_PACKAGE = "org.hashes.algorithm.";
+
+    private static final String ALGORITHM_SUFIX = "HashAlgorithm";
+
+    private static final String TEXT_FILE_SUFIX = ".txt";
+
+    private static final String BINARY_FILE_SUFIX = ".bin";
+
+    private CollisionFileConverter() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Converts <code>&lt;algorithm&gt;.txt</code> of the source directory to <code>&lt;algorithm&gt;.bin</code> of the
+     * target directory.
+     * 
+     * @param sourceDirectory directory of the text file
+     * @param targetDirectory directory of the binary file, created if needed
+     * @param algorithm algorithm name
+     * @return the binary file
+     * @throws IOException if an I/O error occurs or the text file has no keys
+     */
+    public static File convert(final File sourceDirectory, final File targetDirectory, final String algorithm)
+            throws IOException {
+        Preconditions.checkNotNull(sourceDirectory, "sourceDirectory");
+        Preconditions.checkNotNull(targetDirectory, "targetDirectory");
+        Preconditions.checkNotNull(algorithm, "algorithm");
+
+        final File textFile = new File(sourceDirectory, algorithm + TEXT_FILE_SUFIX);
+        final List<String> keys = Files.readLines(textFile, Charsets.UTF_8);
+        if (keys.isEmpty()) {
+            throw new IOException("No keys in file: " + textFile.getPath());
+        }
+
+        if (!targetDirectory.isDirectory() && !targetDirectory.mkdirs()) {
+            throw new IOException("Could not create directory: " + targetDirectory.getPath());
+        }
+
+        final File binaryFile = new File(targetDirectory, algorithm + BINARY_FILE_SUFIX);
+        CollisionFile.write(binaryFile, algorithm, getHashAlgorithm(algorithm).hash(keys.get(0)), keys);
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Converted " + keys.size() + " keys of " + textFile.getPath() + " to " + binaryFile.getPath());
+        }
+
+        return binaryFile;
+    }
+
+    private static HashAlgorithm getHashAlgorithm(final String algorithm) {
+        try {
+            return (HashAlgorithm) Class.forName(ALGORITHM_PACKAGE + algorithm + ALGORITHM_SUFIX).newInstance();
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown hash algorithm: " + algorithm, e);
+        } catch (final InstantiationException e) {
+            throw new IllegalArgumentException("Could not create hash algorithm: " + algorithm, e);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalArgumentException("Could not create hash algorithm: " + algorithm, e);
+        }
+    }
+
+    /**
+     * Converts the text files of the specified algorithms.
+     * 
+     * @param args source directory, target directory and algorithm names
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if arguments are missing or an algorithm is unknown
+     */
+    public static void main(final String[] args) throws IOException {
+        // run inside the build JVM, so fail without exiting
+        Preconditions.checkArgument(args.length >= 3, USAGE);
+
+        final File sourceDirectory = new File(args[0]);
+        final File targetDirectory = new File(args[1]);
+        for (int i = 2; i < args.length; i++) {
+            convert(sourceDirectory, targetDirectory, args[i]);
+        }
+    }
+}
@@ -17,12 +17,18 @@ package org.hashes.util;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.util.Collection;
@@ -34,6 +40,7 @@ import org.apache.commons.logging.LogFactory;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.io.ByteStreams;
 
 /**
  * Holds the logic of looking up a file, in the following sequence:
@@ -163,4 +170,71 @@ public final class FileUtils {
 
         return lines.build();
     }
+
+    /**
+     * Maps the contents of the specified file into memory, looking up the file in the following sequence:
+     * <ol>
+     * <li>try to load it with the current thread's context ClassLoader</li>
+     * <li>if fails, try to load it as a file from the disk</li>
+     * </ol>
+     * Files are memory mapped in read only mode. Class path resources that are not plain files (e.g. inside a jar)
+     * are read into a heap buffer.
+     * 
+     * @param filename might be the name of the file (too look it up in the class path) or an url to a file.
+     * @return a read only buffer with the file contents
+     * @throws IOException if an I/O error occurs
+     */
+    public static ByteBuffer mapFile(final String filename) throws IOException {
+        Preconditions.checkNotNull(filename, "filename");
+
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        final URL resource = classLoader.getResource(filename);
+
+        ByteBuffer buffer;
+        if (resource == null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(MessageFormat.format(
+                        "Unable to find file {0} in classpath. Searching for this file on the filesystem instead.",
+                        filename));
+            }
+
+            buffer = map(new File(filename));
+        } else if ("file".equals(resource.getProtocol())) {
+            try {
+                buffer = map(new File(resource.toURI()));
+            } catch (final URISyntaxException e) {
+                throw new IOException("Invalid file URL: " + resource, e);
+            }
+        } else {
+            final InputStream input = resource.openStream();
+            try {
+                buffer = ByteBuffer.wrap(ByteStreams.toByteArray(input)).asReadOnlyBuffer();
+            } finally {
+                closeQuietly(input, filename);
+            }
+        }
+
+        return buffer;
+    }
+
+    private static ByteBuffer map(final File file) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        try {
+            // the mapping remains valid after the channel is closed
+            return input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+        } finally {
+            closeQuietly(input, file.getPath());
+        }
+    }
+
+    private static void closeQuietly(final Closeable closeable, final String fileName) {
+        try {
+            closeable.close();
+        } catch (final IOException e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Could not close input stream of file: " + fileName, e);
+            }
+        }
+    }
 }
@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.util;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Number of bytes of keys in an <code>application/x-www-form-urlencoded</code> body encoded with UTF-8, as written by
+ * {@link org.hashes.FormUrlEncoder}: alphanumeric characters and <code>.-*_</code> are kept, space becomes
+ * <code>+</code> and any other character is percent encoded, 3 bytes for each of its UTF-8 bytes.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class WireCost {
+
+    /**
+     * Characters encoded as a single byte.
+     */
+    public static final String UNENCODED = " *-.0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    private static final int ASCII = 128;
+
+    private static final int TWO_BYTES = 0x800;
+
+    private static final int PERCENT_ENCODED = 3;
+
+    private WireCost() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Gets the number of bytes of the encoded character. Each char of a surrogate pair counts half of the pair.
+     * 
+     * @param c the character
+     * @return the number of bytes of the encoded character
+     */
+    public static int of(final char c) {
+        if (UNENCODED.indexOf(c) >= 0) {
+            return 1;
+        } else if (c < ASCII) {
+            return PERCENT_ENCODED;
+        } else if (c < TWO_BYTES || Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+            return 2 * PERCENT_ENCODED;
+        }
+
+        return 3 * PERCENT_ENCODED;
+    }
+
+    /**
+     * Gets the number of bytes of the encoded characters.
+     * 
+     * @param chars the characters
+     * @return the number of bytes of the encoded characters
+     */
+    public static int of(final CharSequence chars) {
+        Preconditions.checkNotNull(chars, "chars");
+
+        int cost = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            cost += of(chars.charAt(i));
+        }
+
+        return cost;
+    }
+
+    /**
+     * Keeps the characters encoded as a single byte.
+     * 
+     * @param alphabet the characters
+     * @return the characters of the alphabet encoded as a single byte, in the same order
+     */
+    public static String unencoded(final String alphabet) {
+        Preconditions.checkNotNull(alphabet, "alphabet");
+
+        final StringBuilder unencoded = new StringBuilder();
+        for (int i = 0; i < alphabet.length(); i++) {
+            if (of(alphabet.charAt(i)) == 1) {
+                unencoded.append(alphabet.charAt(i));
+            }
+        }
+
+        return unencoded.toString();
+    }
+}
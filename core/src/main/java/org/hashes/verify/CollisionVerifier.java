@@ -0,0 +1,416 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.verify;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hashes.algorithm.HashAlgorithm;
+import org.hashes.collision.ComputationException;
+import org.hashes.util.CollisionFile;
+import org.hashes.util.FileUtils;
+import org.hashes.verify.VerificationResult.Failure;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Verifies that a list of keys really collides: every key must have the same hash and appear only once.
+ * <p>
+ * Keys are streamed in batches to a pool of threads, which check the hash and insert a 64 bit fingerprint of each
+ * key in a sharded primitive set, so multi-million key files can be verified without holding the keys in memory. A
+ * duplicate reported by the fingerprints is confirmed against the keys themselves; in the unlikely event of a
+ * fingerprint collision the verification is repeated with another fingerprint seed.
+ * <p>
+ * Keys may also be verified under a bucket mask, for keys that only need to fall in the same bucket of a hash table
+ * with <code>2^n</code> buckets.
+ * <p>
+ * Only the first offending line is reported, so lines after it are skipped as soon as it is found.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class CollisionVerifier {
+
+    private static final Log LOG = LogFactory.getLog(CollisionVerifier.class);
+
+    private static final String BINARY_FILE_SUFIX = ".bin";
+
+    private static final int BATCH_SIZE = 4096;
+
+    private static final int DEFAULT_EXPECTED_SIZE = 1 << 16;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+    private final HashAlgorithm hashAlgorithm;
+
+    private final int threads;
+
+    private final int bucketMask;
+
+    /**
+     * Creates a new verifier using all available processors.
+     * 
+     * @param hashAlgorithm the hash algorithm of the keys
+     */
+    public CollisionVerifier(final HashAlgorithm hashAlgorithm) {
+        this(hashAlgorithm, null);
+    }
+
+    /**
+     * Creates a new verifier.
+     * 
+     * @param hashAlgorithm the hash algorithm of the keys
+     * @param threads number of verification threads, If null the number of available processors is used
+     */
+    public CollisionVerifier(final HashAlgorithm hashAlgorithm, final Integer threads) {
+        this(hashAlgorithm, threads, -1);
+    }
+
+    /**
+     * Creates a new verifier of keys which only need to agree under a bucket mask.
+     * 
+     * @param hashAlgorithm the hash algorithm of the keys
+     * @param threads number of verification threads, If null the number of available processors is used
+     * @param bucketMask the bucket mask, <code>2^n - 1</code>, or -1 to compare the whole hash codes
+     */
+    public CollisionVerifier(final HashAlgorithm hashAlgorithm, final Integer threads, final int bucketMask) {
+        Preconditions.checkArgument(bucketMask != 0 && (bucketMask & (bucketMask + 1)) == 0, "bucketMask");
+        this.bucketMask = bucketMask;
+        this.hashAlgorithm = Preconditions.checkNotNull(hashAlgorithm, "hashAlgorithm");
+        if (threads == null) {
+            this.threads = Runtime.getRuntime().availableProcessors();
+        } else {
+            Preconditions.checkArgument(threads > 0, "threads");
+            this.threads = threads;
+        }
+    }
+
+    /**
+     * Verifies a list of keys. The hash of the first key is the expected hash.
+     * 
+     * @param keys the keys
+     * @return the verification result
+     */
+    public VerificationResult verify(final List<String> keys) {
+        Preconditions.checkNotNull(keys, "keys");
+        Preconditions.checkArgument(!keys.isEmpty(), "keys");
+
+        return this.verify(keys, this.hashAlgorithm.hash(keys.get(0)));
+    }
+
+    /**
+     * Verifies the keys of a collision file against the hash and the bucket mask of its header. The bucket mask of the
+     * header replaces the bucket mask of this verifier.
+     * 
+     * @param file the collision file
+     * @return the verification result
+     */
+    public VerificationResult verify(final CollisionFile file) {
+        Preconditions.checkNotNull(file, "file");
+
+        if (file.getBucketMask() != this.bucketMask) {
+            return new CollisionVerifier(this.hashAlgorithm, this.threads, file.getBucketMask()).verify(file);
+        }
+
+        return this.verify(file.getKeys(file.size()), file.getHash());
+    }
+
+    /**
+     * Verifies a collision file if the file name ends with .bin, or a text file with one key per line otherwise. The
+     * hash of the first line of a text file is the expected hash.
+     * <p>
+     * The file is looked up like {@link FileUtils#lookupFile(String)}. Text files are streamed, they are only read
+     * again to confirm a duplicate.
+     * 
+     * @param fileName name of the file
+     * @param charset the encoding of text files
+     * @return the verification result
+     * @throws IOException if an I/O error occurs or the file is empty
+     */
+    public VerificationResult verify(final String fileName, final Charset charset) throws IOException {
+        Preconditions.checkNotNull(fileName, "fileName");
+        Preconditions.checkNotNull(charset, "charset");
+
+        if (fileName.endsWith(BINARY_FILE_SUFIX)) {
+            return this.verify(CollisionFile.open(fileName));
+        }
+
+        for (long seed = FNV_OFFSET_BASIS;; seed += SEED_INCREMENT) {
+            Verification verification = null;
+            final BufferedReader reader = open(fileName, charset);
+            try {
+                String line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("No keys in file: " + fileName);
+                }
+
+                verification = new Verification(this.hashAlgorithm.hash(line), seed, DEFAULT_EXPECTED_SIZE);
+                while (line != null && verification.add(line)) {
+                    line = reader.readLine();
+                }
+            } finally {
+                if (verification != null) {
+                    verification.finish();
+                }
+                closeQuietly(reader, fileName);
+            }
+
+            // lines may be checked out of order, so the reported key may be at either line
+            final VerificationResult result = verification.finish();
+            if (result.getFailure() != Failure.DUPLICATE
+                    || readLine(fileName, charset, result.getPreviousLine()).equals(
+                            readLine(fileName, charset, result.getLine()))) {
+                return result;
+            }
+
+            logFingerprintCollision(result);
+        }
+    }
+
+    private VerificationResult verify(final List<String> keys, final int hash) {
+        for (long seed = FNV_OFFSET_BASIS;; seed += SEED_INCREMENT) {
+            final Verification verification = new Verification(hash, seed, keys.size());
+            for (final String key : keys) {
+                if (!verification.add(key)) {
+                    break;
+                }
+            }
+
+            // lines may be checked out of order, so the reported key may be at either line
+            final VerificationResult result = verification.finish();
+            if (result.getFailure() != Failure.DUPLICATE
+                    || keys.get(result.getPreviousLine() - 1).equals(keys.get(result.getLine() - 1))) {
+                return result;
+            }
+
+            logFingerprintCollision(result);
+        }
+    }
+
+    /**
+     * Computes a 64 bit FNV-1a fingerprint of the key, with a final avalanche step so every bit depends on all
+     * characters.
+     * 
+     * @param key the key
+     * @param seed fingerprint seed
+     * @return the fingerprint
+     */
+    static long fingerprint(final String key, final long seed) {
+        long fingerprint = seed;
+        for (int i = 0; i < key.length(); i++) {
+            fingerprint = (fingerprint ^ key.charAt(i)) * FNV_PRIME;
+        }
+
+        // murmur3 finalizer
+        fingerprint = (fingerprint ^ (fingerprint >>> 33)) * 0xFF51AFD7ED558CCDL;
+        fingerprint = (fingerprint ^ (fingerprint >>> 33)) * 0xC4CEB9FE1A85EC53L;
+
+        return fingerprint ^ (fingerprint >>> 33);
+    }
+
+    private static void logFingerprintCollision(final VerificationResult result) {
+        if (LOG.isWarnEnabled()) {
+            LOG.warn("Fingerprint collision between lines " + result.getPreviousLine() + " and " + result.getLine()
+                    + ", verifying again");
+        }
+    }
+
+    private static BufferedReader open(final String fileName, final Charset charset) throws IOException {
+        return new BufferedReader(new InputStreamReader(FileUtils.lookupFile(fileName), charset));
+    }
+
+    private static String readLine(final String fileName, final Charset charset, final int lineNumber)
+            throws IOException {
+        final BufferedReader reader = open(fileName, charset);
+        try {
+            for (int i = 1; i < lineNumber; i++) {
+                reader.readLine();
+            }
+
+            return reader.readLine();
+        } finally {
+            closeQuietly(reader, fileName);
+        }
+    }
+
+    private static void closeQuietly(final BufferedReader reader, final String fileName) {
+        try {
+            reader.close();
+        } catch (final IOException e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Could not close input stream of file: " + fileName, e);
+            }
+        }
+    }
+
+    /**
+     * A single verification pass. Keys are added by one thread and checked by the thread pool.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    private final class Verification {
+
+        private final int hash;
+
+        private final long seed;
+
+        private final FingerprintSet fingerprints;
+
+        private final ExecutorService executor;
+
+        private String[] batch = new String[BATCH_SIZE];
+
+        private int batchSize;
+
+        private int numberOfKeys;
+
+        // written under the monitor, read without it to skip lines after the first failure
+        private volatile int failureLine = Integer.MAX_VALUE;
+
+        private Failure failure;
+
+        private int previousLine;
+
+        private String failedKey;
+
+        private VerificationResult result;
+
+        private Verification(final int hash, final long seed, final int expectedSize) {
+            final int threads = CollisionVerifier.this.threads;
+
+            this.hash = hash;
+            this.seed = seed;
+            this.fingerprints = new FingerprintSet(expectedSize, threads);
+            // the bounded queue makes the reader run batches itself when the pool falls behind
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(threads * 2), new CallerRunsPolicy());
+        }
+
+        /**
+         * Adds the key of the next line.
+         * 
+         * @param key the key
+         * @return false if a previous line already failed, so there is no point in adding more keys
+         */
+        private boolean add(final String key) {
+            this.batch[this.batchSize++] = key;
+            this.numberOfKeys++;
+            if (this.batchSize == BATCH_SIZE) {
+                this.submit();
+            }
+
+            return this.numberOfKeys < this.failureLine;
+        }
+
+        private void submit() {
+            final String[] keys = this.batch;
+            final int size = this.batchSize;
+            final int firstLine = this.numberOfKeys - size + 1;
+            this.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    Verification.this.check(keys, size, firstLine);
+                }
+            });
+
+            this.batch = new String[BATCH_SIZE];
+            this.batchSize = 0;
+        }
+
+        private void check(final String[] keys, final int size, final int firstLine) {
+            final HashAlgorithm hashAlgorithm = CollisionVerifier.this.hashAlgorithm;
+            final int bucketMask = CollisionVerifier.this.bucketMask;
+
+            for (int i = 0; i < size; i++) {
+                final int line = firstLine + i;
+                // duplicates are reported at their later line, so later lines can't produce an earlier failure
+                if (line > this.failureLine) {
+                    return;
+                }
+
+                final String key = keys[i];
+                if (((hashAlgorithm.hash(key) ^ this.hash) & bucketMask) != 0) {
+                    this.fail(Failure.HASH_MISMATCH, line, 0, key);
+                    return;
+                }
+
+                final int previous = this.fingerprints.add(fingerprint(key, this.seed), line);
+                if (previous != 0) {
+                    this.fail(Failure.DUPLICATE, Math.max(line, previous), Math.min(line, previous), key);
+                }
+            }
+        }
+
+        private synchronized void fail(final Failure newFailure, final int line, final int previous, final String key) {
+            if (line < this.failureLine) {
+                this.failure = newFailure;
+                this.failureLine = line;
+                this.previousLine = previous;
+                this.failedKey = key;
+            }
+        }
+
+        /**
+         * Waits for all keys to be checked, can be called several times.
+         * 
+         * @return the result
+         */
+        private VerificationResult finish() {
+            if (this.result == null) {
+                if (this.batchSize > 0) {
+                    this.submit();
+                }
+
+                this.executor.shutdown();
+                try {
+                    while (!this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Waiting for the verification to finish");
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    this.executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new ComputationException(e);
+                }
+
+                synchronized (this) {
+                    final int line = this.failure == null ? 0 : this.failureLine;
+                    this.result = new VerificationResult(this.numberOfKeys, this.hash, this.failure, line,
+                            this.previousLine, this.failedKey);
+                }
+            }
+
+            return this.result;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.verify;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Concurrent set of 64 bit key fingerprints, mapping each fingerprint to the lowest line where it was seen.
+ * <p>
+ * Fingerprints are stored in primitive open addressing tables (12 bytes per slot), split in independently locked
+ * shards so several threads can insert with little contention.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+final class FingerprintSet {
+
+    private static final int SHARD_BITS = 40;
+
+    private static final int MIN_SHARD_CAPACITY = 16;
+
+    private final Shard[] shards;
+
+    private final int shardMask;
+
+    /**
+     * Creates a new set.
+     * 
+     * @param expectedSize expected number of fingerprints, the set grows if exceeded
+     * @param concurrency expected number of concurrent writers
+     */
+    FingerprintSet(final int expectedSize, final int concurrency) {
+        Preconditions.checkArgument(expectedSize >= 0, "expectedSize");
+        Preconditions.checkArgument(concurrency > 0, "concurrency");
+
+        // a few shards per writer keep lock contention low
+        final int numberOfShards = Integer.highestOneBit(concurrency * 16 - 1) << 1;
+        final int shardCapacity = Math.max(MIN_SHARD_CAPACITY,
+                Integer.highestOneBit(Math.max(1, expectedSize / numberOfShards * 2)) << 1);
+
+        this.shards = new Shard[numberOfShards];
+        for (int i = 0; i < numberOfShards; i++) {
+            this.shards[i] = new Shard(shardCapacity);
+        }
+        this.shardMask = numberOfShards - 1;
+    }
+
+    /**
+     * Adds a fingerprint seen at the specified line.
+     * 
+     * @param fingerprint the fingerprint
+     * @param line the line, greater than 0
+     * @return 0 if the fingerprint is new, or the lowest line where it was seen before
+     */
+    int add(final long fingerprint, final int line) {
+        Preconditions.checkArgument(line > 0, "line");
+
+        final Shard shard = this.shards[(int) (fingerprint >>> SHARD_BITS) & this.shardMask];
+        synchronized (shard) {
+            return shard.add(fingerprint, line);
+        }
+    }
+
+    /**
+     * Open addressing table, empty slots have line 0.
+     */
+    private static final class Shard {
+
+        private long[] fingerprints;
+
+        private int[] lines;
+
+        private int size;
+
+        private Shard(final int capacity) {
+            this.fingerprints = new long[capacity];
+            this.lines = new int[capacity];
+        }
+
+        private int add(final long fingerprint, final int line) {
+            final int mask = this.lines.length - 1;
+            int index = (int) fingerprint & mask;
+            while (this.lines[index] != 0) {
+                if (this.fingerprints[index] == fingerprint) {
+                    final int previous = this.lines[index];
+                    if (line < previous) {
+                        this.lines[index] = line;
+                    }
+                    return previous;
+                }
+                index = (index + 1) & mask;
+            }
+
+            this.fingerprints[index] = fingerprint;
+            this.lines[index] = line;
+            this.size++;
+
+            // load factor 3/4
+            if (this.size > this.lines.length - (this.lines.length >>> 2)) {
+                this.resize();
+            }
+
+            return 0;
+        }
+
+        private void resize() {
+            final long[] oldFingerprints = this.fingerprints;
+            final int[] oldLines = this.lines;
+            Preconditions.checkState(oldLines.length < 1 << 30, "too many fingerprints");
+
+            this.fingerprints = new long[oldLines.length << 1];
+            this.lines = new int[oldLines.length << 1];
+            final int mask = this.lines.length - 1;
+            for (int i = 0; i < oldLines.length; i++) {
+                if (oldLines[i] != 0) {
+                    int index = (int) oldFingerprints[i] & mask;
+                    while (this.lines[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    this.fingerprints[index] = oldFingerprints[i];
+                    this.lines[index] = oldLines[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.verify;
+
+/**
+ * Outcome of a {@link CollisionVerifier} run.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class VerificationResult {
+
+    /**
+     * Reason why a key list doesn't collide.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    public enum Failure {
+
+        /**
+         * The key hash differs from the expected hash.
+         */
+        HASH_MISMATCH,
+
+        /**
+         * The key already appeared in a previous line.
+         */
+        DUPLICATE
+    }
+
+    private final int numberOfKeys;
+
+    private final int hash;
+
+    private final Failure failure;
+
+    private final int line;
+
+    private final int previousLine;
+
+    private final String key;
+
+    /**
+     * Creates a new result.
+     * 
+     * @param numberOfKeys number of keys checked
+     * @param hash expected hash
+     * @param failure the failure or null if all keys collide
+     * @param line first offending line, 1 based
+     * @param previousLine line of the first occurrence of a duplicate key
+     * @param key offending key
+     */
+    VerificationResult(final int numberOfKeys, final int hash, final Failure failure, final int line,
+            final int previousLine, final String key) {
+        this.numberOfKeys = numberOfKeys;
+        this.hash = hash;
+        this.failure = failure;
+        this.line = line;
+        this.previousLine = previousLine;
+        this.key = key;
+    }
+
+    /**
+     * Checks if all keys have the expected hash and are unique.
+     * 
+     * @return true if the keys collide
+     */
+    public boolean isValid() {
+        return this.failure == null;
+    }
+
+    /**
+     * Gets the number of keys checked. Keys after the first offending line may not have been checked.
+     * 
+     * @return the number of keys checked
+     */
+    public int getNumberOfKeys() {
+        return this.numberOfKeys;
+    }
+
+    /**
+     * Gets the hash shared by all keys.
+     * 
+     * @return the expected hash
+     */
+    public int getHash() {
+        return this.hash;
+    }
+
+    /**
+     * Gets the failure property.
+     * 
+     * @return the failure or null if all keys collide
+     */
+    public Failure getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Gets the first offending line.
+     * 
+     * @return the 1 based line or 0 if all keys collide
+     */
+    public int getLine() {
+        return this.line;
+    }
+
+    /**
+     * Gets the line where a duplicate key first appeared.
+     * 
+     * @return the 1 based line or 0 if the failure is not {@link Failure#DUPLICATE}
+     */
+    public int getPreviousLine() {
+        return this.previousLine;
+    }
+
+    /**
+     * Gets the offending key.
+     * 
+     * @return the key or null if all keys collide
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    @Override
+    public String toString() {
+        if (this.failure == null) {
+            return "All " + this.numberOfKeys + " keys are unique and hash to " + this.hash;
+        } else if (this.failure == Failure.DUPLICATE) {
+            return "Line " + this.line + " duplicates line " + this.previousLine + ": " + this.key;
+        }
+
+        return "Line " + this.line + " doesn't hash to " + this.hash + ": " + this.key;
+    }
+}
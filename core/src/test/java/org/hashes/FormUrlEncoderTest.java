@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes;
+
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Form URL encoder tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "FormUrlEncoderTest")
+public class FormUrlEncoderTest {
+
+    /**
+     * Tests that all ASCII characters are encoded like {@link URLEncoder}.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testAscii() throws Exception {
+        final StringBuilder ascii = new StringBuilder();
+        for (char c = 0; c < 128; c++) {
+            ascii.append(c);
+        }
+
+        this.testEncode(Charsets.UTF_8, ImmutableList.of(ascii.toString()));
+    }
+
+    /**
+     * Tests that non ASCII characters are encoded like {@link URLEncoder}.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testNonAscii() throws Exception {
+        final List<String> keys = ImmutableList.of("ç€", "aç😀&b", "", "  k(/^j\\");
+
+        this.testEncode(Charsets.UTF_8, keys);
+        this.testEncode(Charsets.ISO_8859_1, ImmutableList.of("ç", "aç&bÿ", "", "  k(/^j\\"));
+    }
+
+    /**
+     * Tests that characters the charset can't encode are rejected instead of being replaced.
+     */
+    @Test(expectedExceptions = { UnsupportedPayloadEncodingException.class })
+    public void testUnmappable() {
+        new FormUrlEncoder(Charsets.ISO_8859_1).addKey("a€");
+    }
+
+    /**
+     * Tests that the length of keys the charset can't encode is rejected too.
+     */
+    @Test(expectedExceptions = { UnsupportedPayloadEncodingException.class })
+    public void testUnmappableLength() {
+        new FormUrlEncoder(Charsets.US_ASCII).encodedLength("aç");
+    }
+
+    /**
+     * Tests that the buffer grows as needed.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testGrowth() throws Exception {
+        final ImmutableList.Builder<String> keys = ImmutableList.builder();
+        for (int i = 0; i < 1000; i++) {
+            keys.add("k&" + i);
+        }
+
+        this.testEncode(Charsets.UTF_8, keys.build());
+    }
+
+    private void testEncode(final Charset charset, final List<String> keys) throws Exception {
+        final FormUrlEncoder encoder = new FormUrlEncoder(charset, 1);
+        final ImmutableList.Builder<String> expected = ImmutableList.builder();
+        int length = 0;
+
+        for (final String key : keys) {
+            encoder.addKey(key);
+            final String encoded = URLEncoder.encode(key, charset.name());
+            Assert.assertEquals(encoder.encodedLength(key), encoded.length());
+            expected.add(encoded + "=");
+            length += encoded.length() + 1;
+        }
+
+        final byte[] body = Joiner.on('&').join(expected.build()).getBytes(Charsets.US_ASCII);
+        Assert.assertEquals(encoder.getNumberOfKeys(), keys.size());
+        Assert.assertEquals(encoder.size(), length + keys.size() - 1);
+        Assert.assertEquals(encoder.toByteArray(), body);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.algorithm;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Hash algorithm tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "algorithm.HashAlgorithmTest")
+public class HashAlgorithmTest {
+
+    private static final String KEY = "hashesç€~ EzFYG8";
+
+    private static final String PADDING = "##";
+
+    /**
+     * Tests that DJBX31A is the java string hash code.
+     */
+    public void testDJBX31A() {
+        final HashAlgorithm algorithm = new DJBX31AHashAlgorithm();
+        Assert.assertEquals(algorithm.hash(KEY), KEY.hashCode());
+        this.testKnownAnswers(algorithm, 0, -1224424900, -882496516);
+        this.testIncremental(algorithm);
+    }
+
+    /**
+     * Tests DJBX33A known answers and incremental hashing.
+     */
+    public void testDJBX33A() {
+        final HashAlgorithm algorithm = new DJBX33AHashAlgorithm();
+        this.testKnownAnswers(algorithm, 5381, 26453633, -1354669201);
+        this.testIncremental(algorithm);
+    }
+
+    /**
+     * Tests DJBX33X known answers and incremental hashing.
+     */
+    public void testDJBX33X() {
+        final HashAlgorithm algorithm = new DJBX33XHashAlgorithm();
+        this.testKnownAnswers(algorithm, 5381, 1586529857, -1130885013);
+        this.testIncremental(algorithm);
+    }
+
+    /**
+     * Tests V8 known answers and incremental hashing.
+     */
+    public void testV8() {
+        final HashAlgorithm algorithm = new V8HashAlgorithm();
+        this.testKnownAnswers(algorithm, 0, 834792749, 1468849170);
+        this.testIncremental(algorithm);
+    }
+
+    // expected values computed independently from the reference definitions of the algorithms
+    private void testKnownAnswers(final HashAlgorithm algorithm, final int empty, final int ascii, final int key) {
+        Assert.assertEquals(algorithm.hash(""), empty);
+        Assert.assertEquals(algorithm.hash("hashes"), ascii);
+        Assert.assertEquals(algorithm.hash(KEY), key);
+    }
+
+    private void testIncremental(final HashAlgorithm algorithm) {
+        final int expected = algorithm.hash(KEY);
+
+        int state = algorithm.initialState();
+        for (int i = 0; i < KEY.length(); i++) {
+            state = algorithm.step(state, KEY.charAt(i));
+        }
+        Assert.assertEquals(algorithm.finish(state), expected);
+
+        final String padded = PADDING + KEY + PADDING;
+        final int start = PADDING.length();
+        Assert.assertEquals(algorithm.hash(new StringBuilder(padded), start, start + KEY.length()), expected);
+        Assert.assertEquals(algorithm.hash(padded.toCharArray(), start, KEY.length()), expected);
+
+        Assert.assertEquals(algorithm.hash(""), algorithm.finish(algorithm.initialState()));
+    }
+}
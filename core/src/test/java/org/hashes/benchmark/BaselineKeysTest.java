@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.hashes.FormUrlEncoder;
+import org.hashes.algorithm.DJBX31AHashAlgorithm;
+import org.hashes.algorithm.HashAlgorithm;
+import org.hashes.collision.DJBX33ACollisionGenerator;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Baseline keys tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "benchmark.BaselineKeysTest")
+public class BaselineKeysTest {
+
+    private static final int NUMBER_OF_KEYS = 10000;
+
+    /**
+     * Tests that control keys keep the characters of the colliding keys but have distinct hashes.
+     */
+    public void testGenerate() {
+        final DJBX33ACollisionGenerator generator = new DJBX33ACollisionGenerator();
+        final HashAlgorithm hashAlgorithm = generator.getHashAlgorithm();
+        final List<String> collisions = generator.generateCollisions(NUMBER_OF_KEYS, new NoProgressMonitorFactory(),
+                true);
+
+        final List<String> baseline = BaselineKeys.generate(collisions, hashAlgorithm, new FormUrlEncoder(
+                Charsets.UTF_8), new Random(NUMBER_OF_KEYS));
+
+        Assert.assertEquals(baseline.size(), collisions.size());
+        final Set<Integer> hashes = new HashSet<Integer>();
+        for (int i = 0; i < baseline.size(); i++) {
+            final char[] expected = collisions.get(i).toCharArray();
+            final char[] actual = baseline.get(i).toCharArray();
+            Arrays.sort(expected);
+            Arrays.sort(actual);
+            Assert.assertEquals(new String(actual), new String(expected));
+            Assert.assertTrue(hashes.add(Integer.valueOf(hashAlgorithm.hash(baseline.get(i)))));
+        }
+    }
+
+    /**
+     * Tests that characters borrowed when all permutations are taken keep the encoded length of the keys.
+     */
+    public void testBorrowedCharacters() {
+        // each key has only two permutations, so the third copy must borrow characters
+        final ImmutableList.Builder<String> builder = ImmutableList.builder();
+        for (int i = 0; i < 3 * 100; i++) {
+            builder.add(new String(new char[] { (char) ('a' + i / 3 % 26), (char) ('\u00E0' + i / 3 % 32) }));
+        }
+        final List<String> collisions = builder.build();
+        final HashAlgorithm hashAlgorithm = new DJBX31AHashAlgorithm();
+        final FormUrlEncoder encoder = new FormUrlEncoder(Charsets.UTF_8);
+
+        final List<String> baseline = BaselineKeys.generate(collisions, hashAlgorithm, encoder, new Random(0));
+
+        final Set<Integer> hashes = new HashSet<Integer>();
+        for (int i = 0; i < baseline.size(); i++) {
+            Assert.assertEquals(encoder.encodedLength(baseline.get(i)), encoder.encodedLength(collisions.get(i)));
+            Assert.assertTrue(hashes.add(Integer.valueOf(hashAlgorithm.hash(baseline.get(i)))));
+        }
+    }
+}
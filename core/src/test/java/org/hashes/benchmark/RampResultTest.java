@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Ramp result tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "benchmark.RampResultTest")
+public class RampResultTest {
+
+    private static final double DELTA = 1e-9;
+
+    private static final int[] KEY_COUNTS = { 1000, 2000, 4000, 8000, 16000, 32000, 64000, 128000, 256000, 512000 };
+
+    /**
+     * Tests a curve that is linear, then quadratic and then flat.
+     */
+    public void testKneeAndLimit() {
+        final long[] medians = new long[KEY_COUNTS.length];
+        for (int i = 0; i < KEY_COUNTS.length; i++) {
+            // quadratic from 8000 keys, capped at 128000 keys
+            final long keys = Math.min(KEY_COUNTS[i], 128000);
+            medians[i] = keys <= 8000 ? keys * 1000 : keys * keys / 8;
+        }
+
+        final RampResult result = new RampResult(KEY_COUNTS, medians);
+
+        Assert.assertEquals(result.getExponent(0), 1, DELTA);
+        Assert.assertEquals(result.getExponent(3), 2, DELTA);
+        Assert.assertEquals(result.getExponent(7), 0, DELTA);
+        Assert.assertEquals(result.getQuadraticKnee(), 8000);
+        Assert.assertEquals(result.getLimit(), 128000);
+        Assert.assertTrue(result.toString().contains("between 64000 and 128000 keys"), result.toString());
+    }
+
+    /**
+     * Tests a linear curve, without knee nor limit.
+     */
+    public void testLinear() {
+        final long[] medians = new long[KEY_COUNTS.length];
+        for (int i = 0; i < KEY_COUNTS.length; i++) {
+            medians[i] = KEY_COUNTS[i] * 1000L;
+        }
+
+        final RampResult result = new RampResult(KEY_COUNTS, medians);
+
+        Assert.assertEquals(result.getFittedExponent(), 1, DELTA);
+        Assert.assertEquals(result.getQuadraticKnee(), -1);
+        Assert.assertEquals(result.getLimit(), -1);
+    }
+
+    /**
+     * Tests that rejected requests are reported as a limit.
+     */
+    public void testRejected() {
+        final long[] medians = new long[KEY_COUNTS.length];
+        for (int i = 0; i < KEY_COUNTS.length; i++) {
+            medians[i] = KEY_COUNTS[i] < 64000 ? (long) KEY_COUNTS[i] * KEY_COUNTS[i] : -1;
+        }
+
+        final RampResult result = new RampResult(KEY_COUNTS, medians);
+
+        Assert.assertEquals(result.getQuadraticKnee(), 1000);
+        Assert.assertEquals(result.getLimit(), 64000);
+        Assert.assertTrue(Double.isNaN(result.getExponent(5)));
+        Assert.assertEquals(result.getFittedExponent(), 2, DELTA);
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.benchmark;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Benchmark statistics tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "benchmark.StatisticsTest")
+public class StatisticsTest {
+
+    private static final double DELTA = 1e-6;
+
+    /**
+     * Tests medians of odd and even samples.
+     */
+    public void testMedian() {
+        Assert.assertEquals(Statistics.median(new long[] { 5, 1, 3 }), 3, DELTA);
+        Assert.assertEquals(Statistics.median(new long[] { 4, 1, 3, 2 }), 2.5, DELTA);
+    }
+
+    /**
+     * Tests the U statistic, with and without ties.
+     */
+    public void testMannWhitneyU() {
+        Assert.assertEquals(Statistics.mannWhitneyU(new long[] { 1, 2, 3 }, new long[] { 4, 5, 6 }), 0, DELTA);
+        Assert.assertEquals(Statistics.mannWhitneyU(new long[] { 4, 5, 6 }, new long[] { 1, 2, 3 }), 9, DELTA);
+        Assert.assertEquals(Statistics.mannWhitneyU(new long[] { 1, 2 }, new long[] { 2, 3 }), 0.5, DELTA);
+    }
+
+    /**
+     * Tests the normal approximation against reference values.
+     */
+    public void testMannWhitneyZ() {
+        final double z = Statistics.mannWhitneyZ(new long[] { 4, 5, 6 }, new long[] { 1, 2, 3 });
+
+        Assert.assertEquals(z, 4.5 / Math.sqrt(5.25), DELTA);
+        Assert.assertEquals(Statistics.twoSidedPValue(z), 0.0495, 1e-4);
+        Assert.assertEquals(Statistics.twoSidedPValue(0), 1, DELTA);
+        Assert.assertEquals(Statistics.twoSidedPValue(1.959964), 0.05, DELTA);
+        Assert.assertEquals(Statistics.mannWhitneyZ(new long[] { 7, 7 }, new long[] { 7, 7 }), 0, DELTA);
+    }
+
+    /**
+     * Tests that a clearly slower sample is reported as susceptible.
+     */
+    public void testResult() {
+        final long[] baseline = new long[50];
+        final long[] collision = new long[50];
+        for (int i = 0; i < baseline.length; i++) {
+            baseline[i] = 1000 + i;
+            collision[i] = 1030 + i;
+        }
+
+        final BenchmarkResult slower = new BenchmarkResult(baseline, collision, 0);
+        Assert.assertTrue(slower.isSusceptible());
+        Assert.assertEquals(slower.getRatio(), 1054.5 / 1024.5, DELTA);
+
+        final BenchmarkResult same = new BenchmarkResult(baseline, baseline, 0);
+        Assert.assertFalse(same.isSusceptible());
+        Assert.assertEquals(same.getPValue(), 1, 1e-6);
+    }
+}
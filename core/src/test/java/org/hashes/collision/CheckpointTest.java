@@ -0,0 +1,143 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+
+import org.hashes.algorithm.HashAlgorithm;
+import org.hashes.collision.MITMConfiguration.MITMConfigurationBuilder;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+/**
+ * MITM checkpoint and resume tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "collision.CheckpointTest")
+public class CheckpointTest {
+
+    private static final String SEED = "hashes";
+
+    private static final int NUMBER_OF_KEYS = 500;
+
+    /**
+     * Tests that a resumed run continues where the previous run stopped.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testResume() throws Exception {
+        final File checkpointFile = createCheckpointFile();
+
+        final List<String> first = generate(checkpointFile, SEED, NUMBER_OF_KEYS);
+        assertCollisions(first, NUMBER_OF_KEYS);
+
+        // the last unit is enumerated again with the same lookup table
+        Assert.assertEquals(generate(checkpointFile, SEED, NUMBER_OF_KEYS), first);
+
+        final List<String> second = generate(checkpointFile, SEED, NUMBER_OF_KEYS * 2);
+        assertCollisions(second, NUMBER_OF_KEYS * 2);
+        Assert.assertEquals(second.subList(0, NUMBER_OF_KEYS), first);
+    }
+
+    /**
+     * Tests that an incomplete line left by a crash is discarded.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testIncompleteLine() throws Exception {
+        final File checkpointFile = createCheckpointFile();
+        final List<String> first = generate(checkpointFile, SEED, NUMBER_OF_KEYS);
+
+        final FileWriter writer = new FileWriter(checkpointFile, true);
+        writer.write("K !!!");
+        writer.close();
+
+        Assert.assertEquals(generate(checkpointFile, SEED, NUMBER_OF_KEYS), first);
+    }
+
+    /**
+     * Tests that the keys of a unit whose unit line was not written before a crash are discarded.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testIncompleteUnit() throws Exception {
+        final File checkpointFile = createCheckpointFile();
+        final List<String> first = generate(checkpointFile, SEED, NUMBER_OF_KEYS);
+
+        // drop the last unit line, leaving the keys of the last unit behind
+        final List<String> lines = Files.readLines(checkpointFile, Charsets.UTF_8);
+        Assert.assertTrue(lines.get(lines.size() - 1).startsWith("U "));
+        Assert.assertTrue(lines.get(lines.size() - 2).startsWith("K "));
+        Files.write(Joiner.on('\n').join(lines.subList(0, lines.size() - 1)) + '\n', checkpointFile, Charsets.UTF_8);
+
+        Assert.assertEquals(generate(checkpointFile, SEED, NUMBER_OF_KEYS), first);
+
+        final List<String> second = generate(checkpointFile, SEED, NUMBER_OF_KEYS * 2);
+        assertCollisions(second, NUMBER_OF_KEYS * 2);
+        Assert.assertEquals(second.subList(0, NUMBER_OF_KEYS), first);
+    }
+
+    /**
+     * Tests that the checkpoint of another seed is rejected.
+     * 
+     * @throws Exception in case of a problem
+     */
+    @Test(expectedExceptions = { ComputationException.class })
+    public void testAnotherSeed() throws Exception {
+        final File checkpointFile = createCheckpointFile();
+        generate(checkpointFile, SEED, NUMBER_OF_KEYS);
+
+        generate(checkpointFile, "another seed", NUMBER_OF_KEYS);
+    }
+
+    private static File createCheckpointFile() throws IOException {
+        final File checkpointFile = File.createTempFile("Checkpoint", "testResume");
+        checkpointFile.deleteOnExit();
+
+        return checkpointFile;
+    }
+
+    private static List<String> generate(final File checkpointFile, final String seed, final int numberOfKeys) {
+        // a single worker enumerates the units in order
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(seed).withWorkerThreads(1)
+                .withCheckpointFile(checkpointFile).build();
+
+        return new DJBX33XCollisionGenerator(configuration).generateCollisions(numberOfKeys,
+                new NoProgressMonitorFactory(), true);
+    }
+
+    private static void assertCollisions(final List<String> collisions, final int numberOfKeys) {
+        Assert.assertEquals(collisions.size(), numberOfKeys);
+        Assert.assertEquals(new HashSet<String>(collisions).size(), numberOfKeys);
+
+        final HashAlgorithm hashAlgorithm = new DJBX33XCollisionGenerator(SEED).getHashAlgorithm();
+        final int hash = hashAlgorithm.hash(SEED);
+        for (final String key : collisions) {
+            Assert.assertEquals(hashAlgorithm.hash(key), hash);
+        }
+    }
+}
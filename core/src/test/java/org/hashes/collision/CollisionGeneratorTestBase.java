@@ -43,6 +43,18 @@ public class CollisionGeneratorTestBase {
      * @param forceNew forces the generation of new keys instead of using pre-built
      */
     public void testCollisionGenerator(final AbstractCollisionGenerator algorithm, final boolean forceNew) {
+        this.testCollisionGenerator(algorithm, forceNew, -1);
+    }
+
+    /**
+     * Test hash collision algorithm, the keys only need to agree under the bucket mask.
+     * 
+     * @param algorithm collision generator algorithm
+     * @param forceNew forces the generation of new keys instead of using pre-built
+     * @param bucketMask the bucket mask
+     */
+    public void testCollisionGenerator(final AbstractCollisionGenerator algorithm, final boolean forceNew,
+            final int bucketMask) {
 
         final List<String> collisions = algorithm.generateCollisions(NUMBER_OF_KEYS, MONITOR_FACTORY, forceNew);
 
@@ -54,9 +66,9 @@ public class CollisionGeneratorTestBase {
 
         // validate hash code
         final HashAlgorithm hashAlgorithm = algorithm.getHashAlgorithm();
-        final int hash = hashAlgorithm.hash(collisions.get(0));
+        final int hash = hashAlgorithm.hash(collisions.get(0)) & bucketMask;
         for (final String key : collisions) {
-            Assert.assertEquals(hashAlgorithm.hash(key), hash);
+            Assert.assertEquals(hashAlgorithm.hash(key) & bucketMask, hash);
         }
     }
 }
@@ -0,0 +1,167 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.hashes.collision.MITMConfiguration.MITMConfigurationBuilder;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.hashes.progress.ProgressMonitorFactory;
+import org.hashes.util.CollisionFile;
+import org.hashes.util.FileUtils;
+import org.hashes.verify.CollisionVerifier;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Collision sink tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "collision.CollisionSinkTest")
+public class CollisionSinkTest {
+
+    private static final ProgressMonitorFactory MONITOR_FACTORY = new NoProgressMonitorFactory();
+
+    private static final int NUMBER_OF_KEYS = 1000;
+
+    /**
+     * Tests that the sink receives the same keys as the list, pre-built or new.
+     */
+    public void testSameKeysAsList() {
+        final AbstractCollisionGenerator generator = new DJBX33ACollisionGenerator();
+
+        for (final boolean forceNew : new boolean[] { false, true }) {
+            final ListSink sink = new ListSink();
+            generator.generateCollisions(NUMBER_OF_KEYS, MONITOR_FACTORY, forceNew, sink);
+
+            Assert.assertEquals(sink.keys, generator.generateCollisions(NUMBER_OF_KEYS, MONITOR_FACTORY, forceNew));
+        }
+    }
+
+    /**
+     * Tests that MITM workers push distinct colliding keys.
+     */
+    public void testMITM() {
+        final AbstractCollisionGenerator generator = new V8CollisionGenerator("hashes", 2);
+        final ListSink sink = new ListSink();
+
+        generator.generateCollisions(NUMBER_OF_KEYS, MONITOR_FACTORY, true, sink);
+
+        Assert.assertEquals(sink.keys.size(), NUMBER_OF_KEYS);
+        Assert.assertEquals(new HashSet<String>(sink.keys).size(), NUMBER_OF_KEYS);
+        final int hash = generator.getHashAlgorithm().hash("hashes");
+        for (final String key : sink.keys) {
+            Assert.assertEquals(generator.getHashAlgorithm().hash(key), hash);
+        }
+    }
+
+    /**
+     * Tests that the file sink saves text and binary files.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testFileSink() throws Exception {
+        final AbstractCollisionGenerator generator = new DJBX33ACollisionGenerator();
+        final List<String> keys = generator.generateCollisions(NUMBER_OF_KEYS);
+
+        final File textFile = File.createTempFile("CollisionSink", ".txt");
+        final FileCollisionSink textSink = new FileCollisionSink(textFile, Charsets.UTF_8, generator);
+        generator.generateCollisions(NUMBER_OF_KEYS, MONITOR_FACTORY, false, textSink);
+        textSink.close();
+        Assert.assertEquals(FileUtils.readLines(textFile.getPath(), Integer.MAX_VALUE, Charsets.UTF_8), keys);
+
+        final File binaryFile = File.createTempFile("CollisionSink", ".bin");
+        final FileCollisionSink binarySink = new FileCollisionSink(binaryFile, Charsets.UTF_8, generator);
+        generator.generateCollisions(NUMBER_OF_KEYS, MONITOR_FACTORY, false, binarySink);
+        binarySink.close();
+        final CollisionFile collisionFile = CollisionFile.open(binaryFile.getPath());
+        Assert.assertEquals(collisionFile.getAlgorithm(), "DJBX33A");
+        Assert.assertEquals(collisionFile.getHash(), generator.getHashAlgorithm().hash(keys.get(0)));
+        Assert.assertEquals(collisionFile.getKeys(Integer.MAX_VALUE), keys);
+    }
+
+    /**
+     * Tests that binary files of keys in the same bucket record the bucket mask, so they verify without it.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testFileSinkBucketMask() throws Exception {
+        final int bucketMask = (1 << 16) - 1;
+        final AbstractCollisionGenerator generator = new DJBX33XCollisionGenerator(new MITMConfigurationBuilder(
+                "hashes").withBucketMask(bucketMask).build());
+
+        final File binaryFile = File.createTempFile("CollisionSink", ".bin");
+        final FileCollisionSink binarySink = new FileCollisionSink(binaryFile, Charsets.UTF_8, generator);
+        generator.generateCollisions(NUMBER_OF_KEYS, MONITOR_FACTORY, true, binarySink);
+        binarySink.close();
+
+        final CollisionFile collisionFile = CollisionFile.open(binaryFile.getPath());
+        final String firstKey = collisionFile.getKeys(1).get(0);
+        Assert.assertEquals(collisionFile.getBucketMask(), bucketMask);
+        Assert.assertEquals(collisionFile.getHash(), generator.getHashAlgorithm().hash(firstKey) & bucketMask);
+        Assert.assertTrue(new CollisionVerifier(generator.getHashAlgorithm()).verify(collisionFile).isValid());
+    }
+
+    /**
+     * Tests that errors are reported on close.
+     * 
+     * @throws Exception in case of a problem
+     */
+    @Test(expectedExceptions = { IOException.class })
+    public void testFileSinkError() throws Exception {
+        final File binaryFile = File.createTempFile("CollisionSink", ".bin");
+        final FileCollisionSink sink = new FileCollisionSink(binaryFile, Charsets.UTF_8,
+                new DJBX33ACollisionGenerator());
+
+        sink.accept("Ez");
+        sink.accept("EzFY");
+        sink.close();
+    }
+
+    /**
+     * Tests that a failing MITM worker stops the other workers.
+     */
+    @Test(expectedExceptions = { ComputationException.class }, timeOut = 60000)
+    public void testMITMWorkerFailure() {
+        final AbstractCollisionGenerator generator = new V8CollisionGenerator("hashes", 2);
+
+        generator.generateCollisions(Integer.MAX_VALUE, MONITOR_FACTORY, true, new CollisionSink() {
+
+            @Override
+            public void accept(final String key) {
+                throw new IllegalStateException("sink failure");
+            }
+        });
+    }
+
+    private static final class ListSink implements CollisionSink {
+
+        private final List<String> keys = new ArrayList<String>();
+
+        @Override
+        public void accept(final String key) {
+            this.keys.add(key);
+        }
+    }
+}
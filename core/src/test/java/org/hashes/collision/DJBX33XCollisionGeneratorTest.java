@@ -15,8 +15,16 @@
  */
 package org.hashes.collision;
 
+import java.io.File;
+
+import org.hashes.collision.MITMConfiguration.MITMConfigurationBuilder;
+import org.hashes.collision.MITMConfiguration.Storage;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.base.CharMatcher;
+
 /**
  * DJBX33X hash collision generator tests.
  * 
@@ -41,4 +49,62 @@ public class DJBX33XCollisionGeneratorTest extends CollisionGeneratorTestBase {
     public void testPreBuiltDJBX33X() {
         this.testCollisionGenerator(new DJBX33XCollisionGenerator(SEED), false);
     }
+
+    /**
+     * Test DJBX33X hash collision algorithm with an off-heap lookup table and a custom geometry.
+     */
+    public void testGeometryDJBX33X() {
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(SEED).withLookupTableSize(1 << 20)
+                .withStorage(Storage.DIRECT).withPrefixLength(5).withSufixLength(4).build();
+
+        this.testCollisionGenerator(new DJBX33XCollisionGenerator(configuration), true);
+    }
+
+    /**
+     * Test DJBX33X hash collision algorithm with keys in the same bucket of a table with 2^16 buckets.
+     */
+    public void testBucketMaskDJBX33X() {
+        final int bucketMask = (1 << 16) - 1;
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(SEED).withBucketMask(bucketMask).build();
+
+        this.testCollisionGenerator(new DJBX33XCollisionGenerator(configuration), true, bucketMask);
+    }
+
+    /**
+     * Test DJBX33X hash collision algorithm with keys made of lower case letters.
+     */
+    public void testAlphabetDJBX33X() {
+        final String alphabet = "abcdefghijklmnopqrstuvwxyz";
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(SEED).withAlphabet(alphabet)
+                .withLookupTableSize(1 << 14).build();
+        final DJBX33XCollisionGenerator generator = new DJBX33XCollisionGenerator(configuration);
+
+        this.testCollisionGenerator(generator, true);
+        for (final String key : generator.generateCollisions(1000, new NoProgressMonitorFactory(), true)) {
+            Assert.assertTrue(CharMatcher.anyOf(alphabet).matchesAllOf(key), key);
+        }
+    }
+
+    /**
+     * Test DJBX33X hash collision algorithm with keys of 3 blocks.
+     */
+    public void testStagesDJBX33X() {
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(SEED).withStages(3).build();
+        final DJBX33XCollisionGenerator generator = new DJBX33XCollisionGenerator(configuration);
+
+        this.testCollisionGenerator(generator, true);
+        final int hash = generator.getHashAlgorithm().hash(SEED);
+        for (final String key : generator.generateCollisions(1000, new NoProgressMonitorFactory(), true)) {
+            Assert.assertEquals(key.length(), 3 * (configuration.getPrefixLength() + configuration.getSufixLength()));
+            Assert.assertEquals(generator.getHashAlgorithm().hash(key), hash, key);
+        }
+    }
+
+    /**
+     * Test that runs with several stages can't be checkpointed.
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testStagesCheckpoint() {
+        new MITMConfigurationBuilder(SEED).withStages(2).withCheckpointFile(new File("checkpoint")).build();
+    }
 }
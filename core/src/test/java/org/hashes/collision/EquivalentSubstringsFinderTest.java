@@ -0,0 +1,120 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.util.List;
+
+import org.hashes.algorithm.DJBX31AHashAlgorithm;
+import org.hashes.algorithm.DJBX33AHashAlgorithm;
+import org.hashes.algorithm.DJBX33XHashAlgorithm;
+import org.hashes.algorithm.HashAlgorithm;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Equivalent substrings finder tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "collision.EquivalentSubstringsFinderTest")
+public class EquivalentSubstringsFinderTest {
+
+    /**
+     * Tests the families of DJBX33A over digits and letters.
+     */
+    public void testDJBX33A() {
+        final HashAlgorithm hashAlgorithm = new DJBX33AHashAlgorithm();
+        final EquivalentSubstringsFinder finder = new EquivalentSubstringsFinder(hashAlgorithm,
+                EquivalentSubstringsFinder.DEFAULT_ALPHABET);
+
+        assertEquivalent(hashAlgorithm, finder.find(2), 3);
+        assertEquivalent(hashAlgorithm, finder.find(3), 9);
+        assertEquivalent(hashAlgorithm, finder.find(4), 27);
+    }
+
+    /**
+     * Tests that a larger alphabet finds larger families.
+     */
+    public void testAlphabet() {
+        final HashAlgorithm hashAlgorithm = new DJBX31AHashAlgorithm();
+        final StringBuilder printable = new StringBuilder();
+        for (char c = ' '; c <= '~'; c++) {
+            printable.append(c);
+        }
+
+        assertEquivalent(hashAlgorithm, new EquivalentSubstringsFinder(hashAlgorithm, printable.toString()).find(3),
+                14);
+    }
+
+    /**
+     * Tests that the xor step of DJBX33X has no equivalent substrings.
+     */
+    public void testDJBX33X() {
+        final EquivalentSubstringsFinder finder = new EquivalentSubstringsFinder(new DJBX33XHashAlgorithm(),
+                EquivalentSubstringsFinder.DEFAULT_ALPHABET);
+
+        Assert.assertEquals(finder.find(2).size(), 1);
+    }
+
+    /**
+     * Tests that the shortest keys are composed.
+     */
+    public void testCompose() {
+        final List<List<String>> families = ImmutableList.<List<String>> of(ImmutableList.of("Ez", "FY", "G8"),
+                ImmutableList.of("aaaa", "bbbb", "cccc", "dddd", "eeee", "ffff", "gggg", "hhhh", "iiii"));
+
+        // keys of 8 characters provide at most 81 keys, keys of 10 characters 243
+        final List<List<String>> factors = AbstractEquivalentSubstringsGenerator.compose(families, 200);
+        Assert.assertEquals(ProductList.productSize(factors), 243);
+        Assert.assertEquals(new ProductList(factors, 1).get(0).length(), 10);
+
+        Assert.assertEquals(AbstractEquivalentSubstringsGenerator.compose(families, 1).size(), 1);
+    }
+
+    /**
+     * Tests that blocks of characters which are not percent encoded are preferred.
+     */
+    public void testWireCost() {
+        final List<List<String>> families = ImmutableList.<List<String>> of(ImmutableList.of("%%", "&&", "((", "))"),
+                ImmutableList.of("Ez", "FY", "G8"));
+
+        // 9 keys of 4 bytes, against 16 keys of 12 bytes
+        final List<List<String>> factors = AbstractEquivalentSubstringsGenerator.compose(families, 9);
+        Assert.assertEquals(ProductList.productSize(factors), 9);
+    }
+
+    /**
+     * Tests that repeated alphabet characters are rejected.
+     */
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void testRepeatedCharacter() {
+        new EquivalentSubstringsFinder(new DJBX33AHashAlgorithm(), "abca");
+    }
+
+    private static void assertEquivalent(final HashAlgorithm hashAlgorithm, final List<String> family,
+            final int size) {
+        Assert.assertEquals(family.size(), size);
+
+        // equivalent blocks keep the same hash code when appended to any prefix
+        final int hash = hashAlgorithm.hash("prefix" + family.get(0));
+        for (final String block : family) {
+            Assert.assertEquals(hashAlgorithm.hash("prefix" + block), hash);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.hashes.collision.MITMConfiguration.Storage;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Lookup table tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "collision.LookupTableTest")
+public class LookupTableTest {
+
+    private static final int SIZE = 1 << 16;
+
+    /**
+     * Tests that the lookup table behaves like a {@link HashMap}.
+     */
+    public void testPutAndGet() {
+        assertLikeHashMap(LookupTable.create(SIZE));
+    }
+
+    /**
+     * Tests that the direct memory lookup table behaves like a {@link HashMap}.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testDirect() throws Exception {
+        assertLikeHashMap(LookupTable.create(SIZE, Storage.DIRECT));
+    }
+
+    /**
+     * Tests that the memory mapped lookup table behaves like a {@link HashMap}.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testMapped() throws Exception {
+        assertLikeHashMap(LookupTable.create(SIZE, Storage.MAPPED));
+    }
+
+    /**
+     * Tests edge keys and values.
+     */
+    public void testEdgeCases() {
+        final LookupTable table = LookupTable.create(1);
+
+        Assert.assertEquals(table.get(0), -1);
+
+        table.put(0, 0);
+        Assert.assertEquals(table.get(0), 0);
+
+        table.put(0, Integer.MAX_VALUE);
+        Assert.assertEquals(table.get(0), Integer.MAX_VALUE);
+        Assert.assertEquals(table.get(-1), -1);
+        Assert.assertEquals(table.size(), 1);
+    }
+
+    /**
+     * Tests that present keys are not replaced.
+     */
+    public void testPutIfAbsent() {
+        final LookupTable table = LookupTable.create(2);
+
+        Assert.assertTrue(table.putIfAbsent(1, 1));
+        Assert.assertFalse(table.putIfAbsent(1, 2));
+        Assert.assertEquals(table.get(1), 1);
+        Assert.assertTrue(table.putIfAbsent(2, 2));
+        Assert.assertEquals(table.size(), 2);
+    }
+
+    private static void assertLikeHashMap(final LookupTable table) {
+        final Random random = new Random(SIZE);
+        final Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+
+        for (int i = 0; i < SIZE; i++) {
+            final int key = random.nextInt();
+            final int value = random.nextInt(Integer.MAX_VALUE);
+            expected.put(key, value);
+            table.put(key, value);
+        }
+
+        Assert.assertEquals(table.size(), expected.size());
+        for (final Entry<Integer, Integer> entry : expected.entrySet()) {
+            Assert.assertEquals(table.get(entry.getKey()), entry.getValue().intValue());
+        }
+    }
+}
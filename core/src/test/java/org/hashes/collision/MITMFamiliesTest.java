@@ -0,0 +1,118 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+
+import org.hashes.algorithm.HashAlgorithm;
+import org.hashes.collision.MITMConfiguration.MITMConfigurationBuilder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Multi-target MITM generation tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "collision.MITMFamiliesTest")
+public class MITMFamiliesTest {
+
+    private static final String[] ADDITIONAL_SEEDS = { "collision", "family" };
+
+    private static final int KEYS_PER_FAMILY = 500;
+
+    /**
+     * Tests that each family collides with its seed.
+     */
+    public void testFamilies() {
+        final MITMConfiguration configuration = new MITMConfigurationBuilder("hashes").withWorkerThreads(2)
+                .withAdditionalSeeds(ADDITIONAL_SEEDS).build();
+        final AbstractMITMGenerator generator = new V8CollisionGenerator(configuration);
+
+        assertFamilies(generator, generator.generateCollisionFamilies(KEYS_PER_FAMILY), KEYS_PER_FAMILY);
+    }
+
+    /**
+     * Tests that a resumed run routes the recorded keys to their families.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testResume() throws Exception {
+        final File checkpointFile = File.createTempFile("Checkpoint", "testResumeFamilies");
+        checkpointFile.deleteOnExit();
+
+        // a single worker enumerates the units in order
+        final MITMConfiguration configuration = new MITMConfigurationBuilder("hashes").withWorkerThreads(1)
+                .withAdditionalSeeds(ADDITIONAL_SEEDS).withCheckpointFile(checkpointFile).build();
+        final AbstractMITMGenerator generator = new DJBX33XCollisionGenerator(configuration);
+
+        final List<List<String>> first = generator.generateCollisionFamilies(KEYS_PER_FAMILY);
+        assertFamilies(generator, first, KEYS_PER_FAMILY);
+
+        final List<List<String>> second = generator.generateCollisionFamilies(KEYS_PER_FAMILY * 2);
+        assertFamilies(generator, second, KEYS_PER_FAMILY * 2);
+        for (int i = 0; i < first.size(); i++) {
+            Assert.assertEquals(second.get(i).subList(0, KEYS_PER_FAMILY), first.get(i));
+        }
+    }
+
+    /**
+     * Tests that runs with the same table seed generate the same keys, whatever the number of workers.
+     */
+    public void testTableSeed() {
+        final MITMConfigurationBuilder builder = new MITMConfigurationBuilder("hashes").withTableSeed(2012)
+                .withAdditionalSeeds(ADDITIONAL_SEEDS);
+
+        final List<List<String>> first = new V8CollisionGenerator(builder.withWorkerThreads(1).build())
+                .generateCollisionFamilies(KEYS_PER_FAMILY);
+        final List<List<String>> second = new V8CollisionGenerator(builder.withWorkerThreads(3).build())
+                .generateCollisionFamilies(KEYS_PER_FAMILY);
+
+        Assert.assertEquals(second, first);
+    }
+
+    /**
+     * Tests that seeds with the same hash code are rejected.
+     */
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void testSameHash() {
+        final MITMConfiguration configuration = new MITMConfigurationBuilder("hashes").withAdditionalSeeds("hashes")
+                .build();
+
+        new DJBX33XCollisionGenerator(configuration).generateCollisionFamilies(KEYS_PER_FAMILY);
+    }
+
+    private static void assertFamilies(final AbstractMITMGenerator generator, final List<List<String>> families,
+            final int keysPerFamily) {
+        final List<String> seeds = generator.getConfiguration().getSeeds();
+        Assert.assertEquals(families.size(), seeds.size());
+
+        final HashAlgorithm hashAlgorithm = generator.getHashAlgorithm();
+        for (int i = 0; i < seeds.size(); i++) {
+            final List<String> family = families.get(i);
+            Assert.assertEquals(family.size(), keysPerFamily);
+            Assert.assertEquals(new HashSet<String>(family).size(), keysPerFamily);
+
+            final int hash = hashAlgorithm.hash(seeds.get(i));
+            for (final String key : family) {
+                Assert.assertEquals(hashAlgorithm.hash(key), hash);
+            }
+        }
+    }
+}
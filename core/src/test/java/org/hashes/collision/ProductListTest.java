@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.collision;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Product list tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "collision.ProductListTest")
+public class ProductListTest {
+
+    /**
+     * Tests the order of the elements.
+     */
+    public void testOrder() {
+        final List<List<String>> factors = ImmutableList.<List<String>> of(ImmutableList.of("a", "b"),
+                ImmutableList.of("x", "y", "z"));
+
+        Assert.assertEquals(ProductList.productSize(factors), 6);
+        Assert.assertEquals(new ProductList(factors, 6), ImmutableList.of("ax", "ay", "az", "bx", "by", "bz"));
+        Assert.assertEquals(new ProductList(factors, 4), ImmutableList.of("ax", "ay", "az", "bx"));
+    }
+
+    /**
+     * Tests a product bigger than an int.
+     */
+    public void testHugeProduct() {
+        final List<List<String>> factors = Collections.nCopies(40, (List<String>) ImmutableList.of("Ez", "FY", "G8"));
+
+        Assert.assertEquals(ProductList.productSize(factors), Integer.MAX_VALUE);
+
+        final List<String> keys = new ProductList(factors, Integer.MAX_VALUE);
+        Assert.assertEquals(keys.get(0).length(), 80);
+        Assert.assertTrue(keys.get(0).endsWith("EzEz"));
+        Assert.assertTrue(keys.get(8).endsWith("EzG8G8"));
+        // 2147483646 in base 3 is 12112122212110202100
+        Assert.assertTrue(keys.get(Integer.MAX_VALUE - 1).startsWith("EzEz"));
+        Assert.assertTrue(keys.get(Integer.MAX_VALUE - 1).endsWith("EzG8EzG8FYEzEz"));
+    }
+
+    /**
+     * Tests the number of elements of a product.
+     */
+    public void testProductSize() {
+        final List<String> small = Collections.nCopies(46340, "a");
+        final List<String> big = Collections.nCopies(46341, "a");
+
+        Assert.assertEquals(ProductList.productSize(ImmutableList.<List<String>> of()), 1);
+        Assert.assertEquals(ProductList.productSize(ImmutableList.of(small, ImmutableList.<String> of())), 0);
+        Assert.assertEquals(ProductList.productSize(ImmutableList.of(small, small)), 46340 * 46340);
+        Assert.assertEquals(ProductList.productSize(ImmutableList.of(big, big)), Integer.MAX_VALUE);
+        // saturated products stay saturated, unless a factor is empty
+        Assert.assertEquals(ProductList.productSize(ImmutableList.of(big, big, big)), Integer.MAX_VALUE);
+        Assert.assertEquals(ProductList.productSize(ImmutableList.of(big, big, ImmutableList.<String> of())), 0);
+    }
+
+    /**
+     * Tests that elements outside the view are not accessible.
+     */
+    @Test(expectedExceptions = { IndexOutOfBoundsException.class })
+    public void testOutOfBounds() {
+        new ProductList(ImmutableList.of(ImmutableList.of("a", "b")), 1).get(1);
+    }
+}
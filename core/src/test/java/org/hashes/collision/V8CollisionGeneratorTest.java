@@ -15,6 +15,12 @@
  */
 package org.hashes.collision;
 
+import org.hashes.collision.MITMConfiguration.MITMConfigurationBuilder;
+import org.hashes.collision.MITMConfiguration.Storage;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.hashes.progress.ProgressMonitorFactory;
+import org.hashes.util.WireCost;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 /**
@@ -28,6 +34,8 @@ public class V8CollisionGeneratorTest extends CollisionGeneratorTestBase {
 
     private static final String SEED = "hashes";
 
+    private static final ProgressMonitorFactory MONITOR_FACTORY = new NoProgressMonitorFactory();
+
     /**
      * Test V8 hash collision algorithm.
      */
@@ -41,4 +49,42 @@ public class V8CollisionGeneratorTest extends CollisionGeneratorTestBase {
     public void testPreBuiltV8() {
         this.testCollisionGenerator(new V8CollisionGenerator(SEED), false);
     }
+
+    /**
+     * Test V8 hash collision algorithm with a memory mapped lookup table and a custom geometry.
+     */
+    public void testGeometryV8() {
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(SEED).withLookupTableSize(1 << 18)
+                .withStorage(Storage.MAPPED).withPrefixLength(8).build();
+
+        this.testCollisionGenerator(new V8CollisionGenerator(configuration), true);
+    }
+
+    /**
+     * Test V8 hash collision algorithm with keys in the same bucket of a table with 2^10 buckets.
+     */
+    public void testBucketMaskV8() {
+        final int bucketMask = (1 << 10) - 1;
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(SEED).withBucketMask(bucketMask).build();
+
+        this.testCollisionGenerator(new V8CollisionGenerator(configuration), true, bucketMask);
+    }
+
+    /**
+     * Test that the V8 keys are sent as a single byte per character by default.
+     */
+    public void testWireCostV8() {
+        for (final String key : new V8CollisionGenerator(SEED).generateCollisions(1000, MONITOR_FACTORY, true)) {
+            Assert.assertEquals(WireCost.of(key), key.length(), key);
+        }
+    }
+
+    /**
+     * Test V8 hash collision algorithm with keys of 2 blocks.
+     */
+    public void testStagesV8() {
+        final MITMConfiguration configuration = new MITMConfigurationBuilder(SEED).withStages(2).build();
+
+        this.testCollisionGenerator(new V8CollisionGenerator(configuration), true);
+    }
 }
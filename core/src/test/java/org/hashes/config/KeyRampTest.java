@@ -0,0 +1,57 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.config;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Key ramp tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "config.KeyRampTest")
+public class KeyRampTest {
+
+    /**
+     * Tests geometric steps.
+     */
+    public void testKeyCounts() {
+        final int[] keyCounts = new KeyRamp(1000, 512000, 10).getKeyCounts();
+
+        Assert.assertEquals(keyCounts.length, 10);
+        for (int i = 0; i < keyCounts.length; i++) {
+            Assert.assertEquals(keyCounts[i], 1000 << i);
+        }
+
+        final int[] uneven = new KeyRamp(1000, 500000, 10).getKeyCounts();
+        Assert.assertEquals(uneven[0], 1000);
+        Assert.assertEquals(uneven[uneven.length - 1], 500000);
+    }
+
+    /**
+     * Tests that narrow ramps do not repeat key counts.
+     */
+    public void testNarrowRamp() {
+        final int[] keyCounts = new KeyRamp(3, 5, 10).getKeyCounts();
+
+        Assert.assertEquals(keyCounts.length, 3);
+        Assert.assertEquals(keyCounts[0], 3);
+        Assert.assertEquals(keyCounts[1], 4);
+        Assert.assertEquals(keyCounts[2], 5);
+    }
+}
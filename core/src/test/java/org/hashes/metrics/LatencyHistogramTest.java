@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.metrics;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Latency histogram tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "metrics.LatencyHistogramTest")
+public class LatencyHistogramTest {
+
+    private static final int SIZE = 100000;
+
+    private static final double MAX_RELATIVE_ERROR = 1.0 / 32;
+
+    /**
+     * Tests that bucket boundaries are contiguous and cover all non negative longs.
+     */
+    public void testBuckets() {
+        Assert.assertEquals(LatencyHistogram.indexFor(0), 0);
+        Assert.assertEquals(LatencyHistogram.indexFor(63), 63);
+
+        for (int index = 1; index <= LatencyHistogram.indexFor(Long.MAX_VALUE); index++) {
+            final long lowest = LatencyHistogram.highestValueFor(index - 1) + 1;
+            Assert.assertEquals(LatencyHistogram.indexFor(lowest), index);
+            Assert.assertEquals(LatencyHistogram.indexFor(LatencyHistogram.highestValueFor(index)), index);
+        }
+        Assert.assertEquals(LatencyHistogram.highestValueFor(LatencyHistogram.indexFor(Long.MAX_VALUE)),
+                Long.MAX_VALUE);
+    }
+
+    /**
+     * Tests percentiles against the exact values.
+     */
+    public void testPercentiles() {
+        final Random random = new Random(SIZE);
+        final long[] values = new long[SIZE];
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < SIZE; i++) {
+            // log-normal like latencies, from microseconds to seconds
+            values[i] = (long) Math.exp(7 + 3 * Math.abs(random.nextGaussian()));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        Assert.assertEquals(histogram.getCount(), SIZE);
+        Assert.assertEquals(histogram.getMax(), values[SIZE - 1]);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), values[SIZE - 1]);
+        for (final double percentile : new double[] { 1, 50, 90, 99, 99.9 }) {
+            final long expected = values[(int) Math.ceil(percentile / 100 * SIZE) - 1];
+            final long actual = histogram.getValueAtPercentile(percentile);
+            Assert.assertTrue(actual >= expected, "p" + percentile);
+            Assert.assertTrue(actual <= expected + expected * MAX_RELATIVE_ERROR, "p" + percentile);
+        }
+    }
+
+    /**
+     * Tests that merging several histograms is equivalent to recording into a single one.
+     * 
+     * @throws InterruptedException if interrupted while waiting for the recording threads
+     */
+    public void testConcurrentRecordAndMerge() throws InterruptedException {
+        final int threads = 4;
+        final LatencyHistogram shared = new LatencyHistogram();
+        final LatencyHistogram[] perThread = new LatencyHistogram[threads];
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            perThread[t] = new LatencyHistogram();
+            final LatencyHistogram own = perThread[t];
+            final long seed = t;
+            new Thread() {
+
+                @Override
+                public void run() {
+                    final Random random = new Random(seed);
+                    for (int i = 0; i < SIZE; i++) {
+                        final long value = random.nextInt(Integer.MAX_VALUE);
+                        own.record(value);
+                        shared.record(value);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+
+        final LatencyHistogram merged = new LatencyHistogram();
+        for (final LatencyHistogram histogram : perThread) {
+            merged.merge(histogram);
+        }
+
+        Assert.assertEquals(shared.getCount(), (long) threads * SIZE);
+        Assert.assertEquals(merged.getCount(), shared.getCount());
+        Assert.assertEquals(merged.getMax(), shared.getMax());
+        Assert.assertEquals(merged.getMean(), shared.getMean(), 0);
+        for (final double percentile : new double[] { 50, 90, 99 }) {
+            Assert.assertEquals(merged.getValueAtPercentile(percentile), shared.getValueAtPercentile(percentile));
+        }
+    }
+
+    /**
+     * Tests an empty histogram.
+     */
+    public void testEmpty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getMax(), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(99), 0);
+        Assert.assertEquals(histogram.getMean(), 0, 0);
+    }
+}
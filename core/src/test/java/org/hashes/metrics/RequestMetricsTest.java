@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.metrics;
+
+import java.io.IOException;
+
+import org.hashes.metrics.RequestMetrics.Phase;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Request metrics tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "metrics.RequestMetricsTest")
+public class RequestMetricsTest {
+
+    /**
+     * Tests that merged metrics add the values and the errors of both metrics.
+     */
+    public void testMerge() {
+        final RequestMetrics metrics = this.createMetrics();
+
+        Assert.assertEquals(metrics.getErrors(), 3);
+        Assert.assertEquals(metrics.getHistogram(Phase.CONNECT).getCount(), 4);
+        Assert.assertEquals(metrics.getHistogram(Phase.CONNECT).getMax(), 40);
+        Assert.assertEquals(metrics.getHistogram(Phase.RESPONSE).getCount(), 1);
+        Assert.assertEquals(metrics.getHistogram(Phase.WRITE).getCount(), 0);
+    }
+
+    /**
+     * Tests the JSON export.
+     * 
+     * @throws IOException in case of a problem
+     */
+    public void testWriteJson() throws IOException {
+        final StringBuilder json = new StringBuilder();
+        this.createMetrics().writeJson(json);
+
+        Assert.assertEquals(json.toString(), "{\n" //
+                + "  \"unit\": \"ns\",\n" //
+                + "  \"errors\": 3,\n" //
+                + "  \"phases\": {\n" //
+                + "    \"connect\": {\"count\": 4, \"mean\": 25, \"p50\": 20, \"p90\": 40, \"p99\": 40, \"max\": 40},\n"
+                + "    \"write\": {\"count\": 0, \"mean\": 0, \"p50\": 0, \"p90\": 0, \"p99\": 0, \"max\": 0},\n"
+                + "    \"first_byte\": {\"count\": 0, \"mean\": 0, \"p50\": 0, \"p90\": 0, \"p99\": 0, \"max\": 0},\n"
+                + "    \"response\": {\"count\": 1, \"mean\": 50, \"p50\": 50, \"p90\": 50, \"p99\": 50, \"max\": 50}\n"
+                + "  }\n" //
+                + "}\n");
+    }
+
+    /**
+     * Tests the CSV export, with the errors in their own line.
+     * 
+     * @throws IOException in case of a problem
+     */
+    public void testWriteCsv() throws IOException {
+        final StringBuilder csv = new StringBuilder();
+        this.createMetrics().writeCsv(csv);
+
+        Assert.assertEquals(csv.toString(), "phase,count,mean_ns,p50_ns,p90_ns,p99_ns,max_ns\n" //
+                + "connect,4,25,20,40,40,40\n" //
+                + "write,0,0,0,0,0,0\n" //
+                + "first_byte,0,0,0,0,0,0\n" //
+                + "response,1,50,50,50,50,50\n" //
+                + "errors,3\n");
+    }
+
+    // values below 64 are recorded exactly
+    private RequestMetrics createMetrics() {
+        final RequestMetrics metrics = new RequestMetrics();
+        metrics.record(Phase.CONNECT, 10);
+        metrics.record(Phase.CONNECT, 20);
+        metrics.recordError();
+
+        final RequestMetrics other = new RequestMetrics();
+        other.record(Phase.CONNECT, 30);
+        other.record(Phase.CONNECT, 40);
+        other.record(Phase.RESPONSE, 50);
+        other.recordErrors(2);
+
+        metrics.merge(other);
+
+        return metrics;
+    }
+}
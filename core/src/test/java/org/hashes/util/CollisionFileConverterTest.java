@@ -0,0 +1,70 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.util;
+
+import java.io.File;
+import java.util.List;
+
+import org.hashes.algorithm.V8HashAlgorithm;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+/**
+ * Collision file converter tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "util.CollisionFileConverterTest")
+public class CollisionFileConverterTest {
+
+    /**
+     * Tests that the binary file has the keys and the hash of the text file.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testConvert() throws Exception {
+        final List<String> keys = FileUtils.readLines("V8.txt", Integer.MAX_VALUE, Charsets.UTF_8);
+        final File sourceDirectory = Files.createTempDir();
+        Files.write(Joiner.on('\n').join(keys), new File(sourceDirectory, "V8.txt"), Charsets.UTF_8);
+
+        final File binaryFile = CollisionFileConverter.convert(sourceDirectory, new File(sourceDirectory, "bin"),
+                "V8");
+
+        final CollisionFile file = CollisionFile.open(binaryFile.getPath());
+        Assert.assertEquals(file.getAlgorithm(), "V8");
+        Assert.assertEquals(file.getHash(), new V8HashAlgorithm().hash(keys.get(0)));
+        Assert.assertEquals(file.getBucketMask(), -1);
+        Assert.assertEquals(file.getKeys(Integer.MAX_VALUE), keys);
+    }
+
+    /**
+     * Tests that unknown algorithms are rejected.
+     * 
+     * @throws Exception in case of a problem
+     */
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void testUnknownAlgorithm() throws Exception {
+        final File sourceDirectory = Files.createTempDir();
+        Files.write("Ez\nFY", new File(sourceDirectory, "MD5.txt"), Charsets.UTF_8);
+
+        CollisionFileConverter.convert(sourceDirectory, sourceDirectory, "MD5");
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Collision file tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "util.CollisionFileTest")
+public class CollisionFileTest {
+
+    private static final String FILE = "V8.bin";
+
+    private static final String TEXT_FILE = "V8.txt";
+
+    /**
+     * Tests that the binary file has the same keys as the text file.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testReadFromClasspath() throws Exception {
+        final List<String> expected = FileUtils.readLines(TEXT_FILE, Integer.MAX_VALUE, Charsets.UTF_8);
+
+        final CollisionFile file = CollisionFile.open(FILE);
+
+        Assert.assertEquals(file.getAlgorithm(), "V8");
+        Assert.assertEquals(file.getKeyLength(), expected.get(0).length());
+        Assert.assertEquals(file.size(), expected.size());
+        Assert.assertEquals(file.getKeys(Integer.MAX_VALUE), expected);
+        Assert.assertEquals(file.getKeys(10), expected.subList(0, 10));
+    }
+
+    /**
+     * Test if a collection of keys are well written to a temporary file and subsequently loaded.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testWriteAndRead() throws Exception {
+        final File tempFile = File.createTempFile("CollisionFile", "testWrite");
+
+        final List<String> write = ImmutableList.of(//
+                "EzEzEz", //
+                "EzEzFY", //
+                "EzEzG8", //
+                "EzFYEz", //
+                "EzFYFY");
+
+        CollisionFile.write(tempFile, "DJBX33A", 1, write);
+
+        final CollisionFile read = CollisionFile.open(tempFile.getPath());
+        Assert.assertEquals(read.getAlgorithm(), "DJBX33A");
+        Assert.assertEquals(read.getHash(), 1);
+        Assert.assertEquals(read.getBucketMask(), -1);
+        Assert.assertEquals(read.getKeys(write.size()), write);
+    }
+
+    /**
+     * Tests that only the masked bits of the hash are written with a bucket mask.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testBucketMask() throws Exception {
+        final File tempFile = File.createTempFile("CollisionFile", "testBucketMask");
+
+        final CollisionFile.Writer writer = CollisionFile.openWriter(tempFile, "DJBX33X", 0x12345678, 0xFFFF, 2);
+        writer.write("Ez");
+        writer.close();
+
+        final CollisionFile read = CollisionFile.open(tempFile.getPath());
+        Assert.assertEquals(read.getHash(), 0x5678);
+        Assert.assertEquals(read.getBucketMask(), 0xFFFF);
+        Assert.assertEquals(read.getKeys(1), ImmutableList.of("Ez"));
+    }
+
+    /**
+     * Tests that keys with different lengths are rejected.
+     * 
+     * @throws Exception in case of a problem
+     */
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void testVariableKeyLength() throws Exception {
+        final File tempFile = File.createTempFile("CollisionFile", "testVariableKeyLength");
+
+        CollisionFile.write(tempFile, "DJBX33A", 1, ImmutableList.of("Ez", "EzFY"));
+    }
+
+    /**
+     * Tests that text files are rejected.
+     * 
+     * @throws Exception in case of a problem
+     */
+    @Test(expectedExceptions = { IOException.class })
+    public void testNotACollisionFile() throws Exception {
+        CollisionFile.open(TEXT_FILE);
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.util;
+
+import org.hashes.FormUrlEncoder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Wire cost tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "util.WireCostTest")
+public class WireCostTest {
+
+    /**
+     * Tests that the cost of each character is the length of its form encoding.
+     */
+    public void testSameAsFormUrlEncoder() {
+        final FormUrlEncoder encoder = new FormUrlEncoder(Charsets.UTF_8);
+        for (char c = 0; c < Character.MIN_SURROGATE; c++) {
+            Assert.assertEquals(WireCost.of(c), encoder.encodedLength(String.valueOf(c)), "char " + (int) c);
+        }
+
+        final String key = "Ez FY%G8\u00e7\u20ac\ud83d\ude00";
+        Assert.assertEquals(WireCost.of(key), encoder.encodedLength(key));
+    }
+
+    /**
+     * Tests that only the characters encoded as a single byte are kept.
+     */
+    public void testUnencoded() {
+        Assert.assertEquals(WireCost.unencoded("a%b c&~"), "ab c");
+        Assert.assertEquals(WireCost.unencoded(WireCost.UNENCODED), WireCost.UNENCODED);
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.verify;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hashes.algorithm.AbstractHashAlgorithm;
+import org.hashes.algorithm.DJBX33AHashAlgorithm;
+import org.hashes.algorithm.V8HashAlgorithm;
+import org.hashes.collision.DJBX33ACollisionGenerator;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.hashes.util.CollisionFile;
+import org.hashes.util.FileUtils;
+import org.hashes.verify.VerificationResult.Failure;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Collision verifier tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "verify.CollisionVerifierTest")
+public class CollisionVerifierTest {
+
+    private static final int NUMBER_OF_KEYS = 20000;
+
+    private static final int THREADS = 4;
+
+    private final CollisionVerifier verifier = new CollisionVerifier(new DJBX33AHashAlgorithm(), THREADS);
+
+    /**
+     * Tests that generated keys are valid.
+     */
+    public void testValidList() {
+        final List<String> keys = generateKeys();
+
+        final VerificationResult result = this.verifier.verify(keys);
+
+        Assert.assertTrue(result.isValid(), result.toString());
+        Assert.assertEquals(result.getNumberOfKeys(), NUMBER_OF_KEYS);
+        Assert.assertEquals(result.getHash(), new DJBX33AHashAlgorithm().hash(keys.get(0)));
+        Assert.assertNull(result.getFailure());
+        Assert.assertEquals(result.getLine(), 0);
+    }
+
+    /**
+     * Tests that the first duplicate is reported at its later line.
+     */
+    public void testDuplicate() {
+        final List<String> keys = generateKeys();
+        // line 15001 duplicates line 101, line 9001 duplicates line 11
+        keys.set(15000, keys.get(100));
+        keys.set(9000, keys.get(10));
+
+        final VerificationResult result = this.verifier.verify(keys);
+
+        Assert.assertFalse(result.isValid());
+        Assert.assertEquals(result.getFailure(), Failure.DUPLICATE);
+        Assert.assertEquals(result.getLine(), 9001);
+        Assert.assertEquals(result.getPreviousLine(), 11);
+        Assert.assertEquals(result.getKey(), keys.get(10));
+    }
+
+    /**
+     * Tests that a key with another hash is reported.
+     */
+    public void testHashMismatch() {
+        final List<String> keys = generateKeys();
+        keys.set(17000, keys.get(17000) + "x");
+        keys.set(19000, keys.get(5));
+
+        final VerificationResult result = this.verifier.verify(keys);
+
+        Assert.assertEquals(result.getFailure(), Failure.HASH_MISMATCH);
+        Assert.assertEquals(result.getLine(), 17001);
+        Assert.assertEquals(result.getKey(), keys.get(17000));
+    }
+
+    /**
+     * Tests the streaming verification of a text file.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testTextFile() throws Exception {
+        final File tempFile = File.createTempFile("CollisionVerifier", "testTextFile");
+        final List<String> keys = generateKeys();
+        FileUtils.writeLines(tempFile, keys, Charsets.UTF_8);
+
+        Assert.assertTrue(this.verifier.verify(tempFile.getPath(), Charsets.UTF_8).isValid());
+
+        keys.set(NUMBER_OF_KEYS - 1, keys.get(0));
+        FileUtils.writeLines(tempFile, keys, Charsets.UTF_8);
+
+        final VerificationResult result = this.verifier.verify(tempFile.getPath(), Charsets.UTF_8);
+        Assert.assertEquals(result.getFailure(), Failure.DUPLICATE);
+        Assert.assertEquals(result.getLine(), NUMBER_OF_KEYS);
+        Assert.assertEquals(result.getPreviousLine(), 1);
+    }
+
+    /**
+     * Tests that the pre-built files are valid.
+     * 
+     * @throws Exception in case of a problem
+     */
+    public void testPrebuiltFiles() throws Exception {
+        final CollisionVerifier v8 = new CollisionVerifier(new V8HashAlgorithm(), THREADS);
+
+        Assert.assertTrue(v8.verify("V8.txt", Charsets.UTF_8).isValid());
+        Assert.assertTrue(v8.verify(CollisionFile.open("V8.bin")).isValid());
+        Assert.assertTrue(v8.verify("V8.bin", Charsets.UTF_8).isValid());
+    }
+
+    /**
+     * Tests that keys in the same bucket are only valid under the bucket mask.
+     */
+    public void testBucketMask() {
+        final DJBX33AHashAlgorithm hashAlgorithm = new DJBX33AHashAlgorithm();
+        final int bucketMask = (1 << 8) - 1;
+        final int bucket = hashAlgorithm.hash("0") & bucketMask;
+
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; keys.size() < NUMBER_OF_KEYS; i++) {
+            final String key = String.valueOf(i);
+            if ((hashAlgorithm.hash(key) & bucketMask) == bucket) {
+                keys.add(key);
+            }
+        }
+
+        final VerificationResult result = new CollisionVerifier(hashAlgorithm, THREADS, bucketMask).verify(keys);
+        Assert.assertTrue(result.isValid(), result.toString());
+        Assert.assertEquals(result.getNumberOfKeys(), NUMBER_OF_KEYS);
+
+        Assert.assertEquals(this.verifier.verify(keys).getFailure(), Failure.HASH_MISMATCH);
+    }
+
+    /**
+     * Tests that the fingerprints are seeded.
+     */
+    public void testFingerprint() {
+        Assert.assertEquals(CollisionVerifier.fingerprint("EzFY", 1), CollisionVerifier.fingerprint("EzFY", 1));
+        Assert.assertFalse(CollisionVerifier.fingerprint("EzFY", 1) == CollisionVerifier.fingerprint("FYEz", 1));
+        Assert.assertFalse(CollisionVerifier.fingerprint("EzFY", 1) == CollisionVerifier.fingerprint("EzFY", 2));
+    }
+
+    /**
+     * Tests that a fingerprint collision is not reported as a duplicate when the later line is checked first.
+     */
+    public void testFingerprintCollision() {
+        // same fingerprint with the first seed
+        final String earlier = "\u6AAB\u5D5A\u67E7\u58C3\u4E48";
+        final String later = "\u6AC7\u5120\u6D75\u613B\u5270";
+        Assert.assertEquals(CollisionVerifier.fingerprint(earlier, 0xCBF29CE484222325L),
+                CollisionVerifier.fingerprint(later, 0xCBF29CE484222325L));
+
+        // the earlier line is in the first batch, the later line in the second batch
+        final List<String> keys = new ArrayList<String>();
+        keys.add("first");
+        keys.add(earlier);
+        while (keys.size() < 4096) {
+            keys.add(Integer.toString(keys.size()));
+        }
+        keys.add(later);
+        keys.add("last");
+
+        final VerificationResult result = new CollisionVerifier(new OrderedHashAlgorithm(earlier, "last"), THREADS)
+                .verify(keys);
+
+        Assert.assertTrue(result.isValid(), result.toString());
+        Assert.assertEquals(result.getNumberOfKeys(), keys.size());
+    }
+
+    private static List<String> generateKeys() {
+        return new ArrayList<String>(new DJBX33ACollisionGenerator().generateCollisions(NUMBER_OF_KEYS,
+                new NoProgressMonitorFactory(), true));
+    }
+
+    /**
+     * Constant hash algorithm which holds back a key until another key is hashed, so the lines after the other key are
+     * checked first.
+     * 
+     * @author ribeirux
+     * @version $Revision$
+     */
+    private static final class OrderedHashAlgorithm extends AbstractHashAlgorithm {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private final String heldKey;
+
+        private final String releaseKey;
+
+        private OrderedHashAlgorithm(final String heldKey, final String releaseKey) {
+            this.heldKey = heldKey;
+            this.releaseKey = releaseKey;
+        }
+
+        @Override
+        public int hash(final String key) {
+            if (key.equals(this.heldKey)) {
+                try {
+                    Assert.assertTrue(this.latch.await(1, TimeUnit.MINUTES));
+                } catch (final InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            } else if (key.equals(this.releaseKey)) {
+                this.latch.countDown();
+            }
+
+            return super.hash(key);
+        }
+
+        @Override
+        public int initialState() {
+            return 0;
+        }
+
+        @Override
+        public int step(final int state, final char c) {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.server;
+
+import org.hashes.algorithm.HashAlgorithm;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Separate chaining hash table, with a power of two number of buckets indexed by the low bits of the hash, like the
+ * tables of PHP, ASP.NET and V8.
+ * <p>
+ * Every insertion walks the whole bucket looking for a duplicate key, so <code>n</code> colliding keys cost
+ * <code>O(n^2)</code> comparisons.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public class ChainedHashTable implements KeyTable {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final HashAlgorithm hashAlgorithm;
+
+    private Entry[] buckets = new Entry[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * Table entry.
+     */
+    private static final class Entry {
+
+        private final String key;
+
+        private final int hash;
+
+        private String value;
+
+        private Entry next;
+
+        Entry(final String key, final int hash, final String value, final Entry next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Creates a new table keyed by the specified algorithm.
+     * 
+     * @param hashAlgorithm the hash algorithm
+     */
+    public ChainedHashTable(final HashAlgorithm hashAlgorithm) {
+        this.hashAlgorithm = Preconditions.checkNotNull(hashAlgorithm, "hashAlgorithm");
+    }
+
+    @Override
+    public void put(final String key, final String value) {
+        final int hash = this.hashAlgorithm.hash(key);
+        final int index = hash & (this.buckets.length - 1);
+
+        for (Entry entry = this.buckets[index]; entry != null; entry = entry.next) {
+            if (entry.hash == hash && entry.key.equals(key)) {
+                entry.value = value;
+                return;
+            }
+        }
+
+        this.buckets[index] = new Entry(key, hash, value, this.buckets[index]);
+        if (++this.size > this.buckets.length) {
+            this.resize();
+        }
+    }
+
+    @Override
+    public String get(final String key) {
+        final int hash = this.hashAlgorithm.hash(key);
+
+        for (Entry entry = this.buckets[hash & (this.buckets.length - 1)]; entry != null; entry = entry.next) {
+            if (entry.hash == hash && entry.key.equals(key)) {
+                return entry.value;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the length of the longest bucket.
+     * 
+     * @return the length of the longest bucket
+     */
+    public int getLongestChain() {
+        int longest = 0;
+        for (final Entry bucket : this.buckets) {
+            int length = 0;
+            for (Entry entry = bucket; entry != null; entry = entry.next) {
+                length++;
+            }
+            longest = Math.max(longest, length);
+        }
+
+        return longest;
+    }
+
+    private void resize() {
+        final Entry[] resized = new Entry[this.buckets.length << 1];
+        final int mask = resized.length - 1;
+
+        for (Entry bucket : this.buckets) {
+            while (bucket != null) {
+                final Entry next = bucket.next;
+                bucket.next = resized[bucket.hash & mask];
+                resized[bucket.hash & mask] = bucket;
+                bucket = next;
+            }
+        }
+
+        this.buckets = resized;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.server;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+/**
+ * Parses <code>application/x-www-form-urlencoded</code> bodies.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public final class FormParser {
+
+    private static final char PAIR_SEPARATOR = '&';
+
+    private static final char VALUE_SEPARATOR = '=';
+
+    private FormParser() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Decodes the parameters of the specified body into the specified table.
+     * 
+     * @param body the request body
+     * @param charset charset of the encoded parameters
+     * @param table where to put the parameters
+     * @param maxKeys maximum number of parameters to parse, extra parameters are ignored like PHP
+     *            <code>max_input_vars</code>, or zero for no limit
+     * @return the number of parsed parameters
+     * @throws UnsupportedEncodingException if the charset is not supported
+     */
+    public static int parse(final byte[] body, final Charset charset, final KeyTable table, final int maxKeys)
+            throws UnsupportedEncodingException {
+        Preconditions.checkNotNull(body, "body");
+        Preconditions.checkNotNull(table, "table");
+        Preconditions.checkArgument(maxKeys >= 0, "maxKeys");
+
+        // encoded bodies are plain ASCII, decoding happens per parameter
+        final String encoded = new String(body, Charsets.ISO_8859_1);
+        final String charsetName = charset.name();
+        final int limit = maxKeys == 0 ? Integer.MAX_VALUE : maxKeys;
+
+        int parsed = 0;
+        int start = 0;
+        while (start < encoded.length() && parsed < limit) {
+            int end = encoded.indexOf(PAIR_SEPARATOR, start);
+            if (end < 0) {
+                end = encoded.length();
+            }
+
+            if (end > start) {
+                final int separator = encoded.indexOf(VALUE_SEPARATOR, start);
+                final boolean hasValue = separator >= 0 && separator < end;
+                final String key = URLDecoder.decode(encoded.substring(start, hasValue ? separator : end), charsetName);
+                final String value = hasValue ? URLDecoder.decode(encoded.substring(separator + 1, end), charsetName)
+                        : "";
+                table.put(key, value);
+                parsed++;
+            }
+
+            start = end + 1;
+        }
+
+        return parsed;
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link HashMap} backed table, keyed by {@link String#hashCode()} like a Java web container.
+ * <p>
+ * Since Java 8, {@link HashMap} turns long chains into balanced trees, so colliding keys degrade to
+ * <code>O(log n)</code> instead of <code>O(n)</code> per insertion.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public class HashMapTable implements KeyTable {
+
+    private final Map<String, String> map = new HashMap<String, String>();
+
+    @Override
+    public void put(final String key, final String value) {
+        this.map.put(key, value);
+    }
+
+    @Override
+    public String get(final String key) {
+        return this.map.get(key);
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.server;
+
+/**
+ * Table receiving the parsed form parameters, standing for the hash table of a web application.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public interface KeyTable {
+
+    /**
+     * Associates the specified value with the specified key, replacing any previous value.
+     * 
+     * @param key the parameter name
+     * @param value the parameter value
+     */
+    void put(String key, String value);
+
+    /**
+     * Gets the value associated with the specified key.
+     * 
+     * @param key the parameter name
+     * @return the parameter value or null if absent
+     */
+    String get(String key);
+
+    /**
+     * Gets the number of distinct keys.
+     * 
+     * @return the number of distinct keys
+     */
+    int size();
+}
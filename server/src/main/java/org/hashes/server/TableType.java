@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.server;
+
+import java.util.Locale;
+
+import org.hashes.algorithm.DJBX31AHashAlgorithm;
+import org.hashes.algorithm.DJBX33AHashAlgorithm;
+import org.hashes.algorithm.DJBX33XHashAlgorithm;
+import org.hashes.algorithm.V8HashAlgorithm;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Supported table implementations.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public enum TableType {
+
+    /**
+     * Java {@link java.util.HashMap} keyed by {@link String#hashCode()}.
+     */
+    HASH_MAP("hashmap") {
+
+        @Override
+        public KeyTable createTable() {
+            return new HashMapTable();
+        }
+    },
+    /**
+     * Chained table keyed by DJBX31A, like {@link java.util.HashMap} before Java 8.
+     */
+    DJBX31A("djbx31a") {
+
+        @Override
+        public KeyTable createTable() {
+            return new ChainedHashTable(new DJBX31AHashAlgorithm());
+        }
+    },
+    /**
+     * Chained table keyed by DJBX33A (PHP).
+     */
+    DJBX33A("djbx33a") {
+
+        @Override
+        public KeyTable createTable() {
+            return new ChainedHashTable(new DJBX33AHashAlgorithm());
+        }
+    },
+    /**
+     * Chained table keyed by DJBX33X (ASP.NET).
+     */
+    DJBX33X("djbx33x") {
+
+        @Override
+        public KeyTable createTable() {
+            return new ChainedHashTable(new DJBX33XHashAlgorithm());
+        }
+    },
+    /**
+     * Chained table keyed by the V8 string hash.
+     */
+    V8("v8") {
+
+        @Override
+        public KeyTable createTable() {
+            return new ChainedHashTable(new V8HashAlgorithm());
+        }
+    };
+
+    private final String tableName;
+
+    private TableType(final String tableName) {
+        this.tableName = tableName;
+    }
+
+    /**
+     * Gets the tableName property.
+     * 
+     * @return the tableName property
+     */
+    public String getTableName() {
+        return this.tableName;
+    }
+
+    /**
+     * Creates a new empty table.
+     * 
+     * @return the new table
+     */
+    public abstract KeyTable createTable();
+
+    /**
+     * Load table type from table name.
+     * 
+     * @param tableName the table name
+     * @return the table type
+     * @throws IllegalArgumentException if the table name is not supported
+     */
+    public static TableType fromTableName(final String tableName) {
+        final String lowerCaseName = Preconditions.checkNotNull(tableName, "tableName").toLowerCase(Locale.ENGLISH);
+
+        TableType result = null;
+
+        for (final TableType type : TableType.values()) {
+            if (type.getTableName().equals(lowerCaseName)) {
+                result = type;
+                break;
+            }
+        }
+
+        if (result == null) {
+            throw new IllegalArgumentException("Unsupported table: " + tableName);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hashes.metrics.LatencyHistogram;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Loopback HTTP server standing in for a vulnerable web application.
+ * <p>
+ * Every POST body is parsed into a new table of the configured {@link TableType}, and the CPU time spent parsing is
+ * returned in the {@value #PARSE_TIME_HEADER} response header and in the response body. Connections are closed after
+ * each response, so clients waiting for the end of the stream return immediately.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+public class TargetServer {
+
+    /**
+     * Response header holding the parse CPU time in nanoseconds.
+     */
+    public static final String PARSE_TIME_HEADER = "X-Parse-Cpu-Time";
+
+    /**
+     * Response header holding the number of parsed keys.
+     */
+    public static final String PARSED_KEYS_HEADER = "X-Parsed-Keys";
+
+    private static final Log LOG = LogFactory.getLog(TargetServer.class);
+
+    private static final int HTTP_OK = 200;
+
+    private static final int HTTP_BAD_METHOD = 405;
+
+    private static final String POST = "POST";
+
+    private static final int STOP_DELAY = 0;
+
+    private static final String USAGE = "usage: hashes-server <hashmap|djbx31a|djbx33a|djbx33x|v8> [port] [max keys]"
+            + " [threads]";
+
+    private final TableType tableType;
+
+    private final int maxKeys;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private final LatencyHistogram parseTimes = new LatencyHistogram();
+
+    private final AtomicLong parsedKeys = new AtomicLong();
+
+    /**
+     * Creates a new server bound to the loopback interface.
+     * 
+     * @param port the port, zero for an ephemeral port
+     * @param tableType table receiving the parameters
+     * @param maxKeys maximum number of parameters to parse per request, or zero for no limit
+     * @param threads number of request handling threads
+     * @throws IOException if the server cannot be bound
+     */
+    public TargetServer(final int port, final TableType tableType, final int maxKeys, final int threads)
+            throws IOException {
+        Preconditions.checkArgument(port >= 0, "port");
+        Preconditions.checkArgument(maxKeys >= 0, "maxKeys");
+        Preconditions.checkArgument(threads > 0, "threads");
+
+        this.tableType = Preconditions.checkNotNull(tableType, "tableType");
+        this.maxKeys = maxKeys;
+
+        if (this.threadBean.isCurrentThreadCpuTimeSupported() && !this.threadBean.isThreadCpuTimeEnabled()) {
+            this.threadBean.setThreadCpuTimeEnabled(true);
+        }
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(null), port), 0);
+        this.server.createContext("/", new ParseHandler());
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server.setExecutor(this.executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        this.server.start();
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Listening on " + this.getAddress() + " with " + this.tableType.getTableName() + " tables");
+        }
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        this.server.stop(STOP_DELAY);
+        this.executor.shutdown();
+    }
+
+    /**
+     * Gets the bound address.
+     * 
+     * @return the bound address
+     */
+    public InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    /**
+     * Gets the parse CPU time of every request so far, in nanoseconds.
+     * 
+     * @return the parse time histogram
+     */
+    public LatencyHistogram getParseTimes() {
+        return this.parseTimes;
+    }
+
+    /**
+     * Gets the number of keys parsed so far.
+     * 
+     * @return the number of parsed keys
+     */
+    public long getParsedKeys() {
+        return this.parsedKeys.get();
+    }
+
+    private long cpuTime() {
+        return this.threadBean.isCurrentThreadCpuTimeSupported() ? this.threadBean.getCurrentThreadCpuTime()
+                : System.nanoTime();
+    }
+
+    /**
+     * Parses each request body into a new table.
+     */
+    private final class ParseHandler implements HttpHandler {
+
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            try {
+                exchange.getResponseHeaders().set("Connection", "close");
+
+                if (!POST.equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(HTTP_BAD_METHOD, -1);
+                    return;
+                }
+
+                final InputStream input = exchange.getRequestBody();
+                final byte[] body;
+                try {
+                    body = ByteStreams.toByteArray(input);
+                } finally {
+                    input.close();
+                }
+
+                final KeyTable table = TargetServer.this.tableType.createTable();
+                final long start = TargetServer.this.cpuTime();
+                final int keys = FormParser.parse(body, Charsets.UTF_8, table, TargetServer.this.maxKeys);
+                final long parseTime = TargetServer.this.cpuTime() - start;
+
+                TargetServer.this.parseTimes.record(Math.max(0, parseTime));
+                TargetServer.this.parsedKeys.addAndGet(keys);
+
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(String.format(Locale.ENGLISH, "Parsed %d keys (%d distinct) in %.3fms of CPU time", keys,
+                            table.size(), (double) parseTime / TimeUnit.MILLISECONDS.toNanos(1)));
+                }
+
+                final byte[] response = ("keys=" + keys + "&distinct=" + table.size() + "&parse_cpu_ns=" + parseTime)
+                        .getBytes(Charsets.US_ASCII);
+                exchange.getResponseHeaders().set(PARSE_TIME_HEADER, String.valueOf(parseTime));
+                exchange.getResponseHeaders().set(PARSED_KEYS_HEADER, String.valueOf(keys));
+                exchange.sendResponseHeaders(HTTP_OK, response.length);
+
+                final OutputStream output = exchange.getResponseBody();
+                try {
+                    output.write(response);
+                } finally {
+                    output.close();
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the server until the process is killed.
+     * 
+     * @param args table name, then optionally the port (default: 8080), the maximum number of keys per request
+     *            (default: 0, no limit) and the number of threads (default: 1)
+     * @throws IOException if the server cannot be bound
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1 || args.length > 4) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        final TargetServer server;
+        try {
+            final TableType tableType = TableType.fromTableName(args[0]);
+            final int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            final int maxKeys = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+            final int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+            server = new TargetServer(port, tableType, maxKeys, threads);
+        } catch (final IllegalArgumentException e) {
+            // also thrown for malformed numbers
+            System.err.println("Invalid argument: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        server.start();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.hashes.config.ClientMode;
+import org.hashes.config.Configuration;
+import org.hashes.config.Configuration.ConfigurationBuilder;
+import org.hashes.metrics.RequestMetrics;
+import org.hashes.metrics.RequestMetrics.Phase;
+import org.hashes.server.TableType;
+import org.hashes.server.TargetServer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Collision injector tests, against the loopback target server.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "CollisionInjectorTest")
+public class CollisionInjectorTest {
+
+    private static final int NUMBER_OF_KEYS = 100;
+
+    private static final int CLIENTS = 4;
+
+    private static final int REQUESTS = 5;
+
+    /**
+     * Tests that every request completes with virtual threads, or with the platform threads they fall back to.
+     * 
+     * @throws IOException if the server cannot be started
+     */
+    public void testVirtualThreads() throws IOException {
+        final TargetServer server = new TargetServer(0, TableType.DJBX33A, 0, 2);
+        server.start();
+        try {
+            final Configuration configuration = new ConfigurationBuilder(server.getAddress().getAddress()
+                    .getHostAddress()).withPort(server.getAddress().getPort())
+                    .withClientMode(ClientMode.VIRTUAL_THREADS).withNumberOfClients(CLIENTS)
+                    .withRequestsPerClient(REQUESTS).withNumberOfKeys(NUMBER_OF_KEYS).waitForResponse().build();
+            final CollisionInjector injector = new CollisionInjector(configuration);
+
+            final List<Runnable> clients = injector.createClients(injector.generatePayload());
+            injector.runClients(clients);
+
+            for (final Runnable client : clients) {
+                final RequestMetrics metrics = ((MeasuredClient) client).getMetrics();
+                Assert.assertEquals(metrics.getErrors(), 0);
+                Assert.assertEquals(metrics.getHistogram(Phase.RESPONSE).getCount(), REQUESTS);
+            }
+            Assert.assertEquals(server.getParsedKeys(), CLIENTS * REQUESTS * NUMBER_OF_KEYS);
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+
+import org.hashes.collision.DJBX33ACollisionGenerator;
+import org.hashes.config.HttpHost;
+import org.hashes.config.Protocol;
+import org.hashes.metrics.RequestMetrics;
+import org.hashes.metrics.RequestMetrics.Phase;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.hashes.server.TableType;
+import org.hashes.server.TargetServer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Non blocking http client tests, against the loopback target server.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "NioHttpClientTest")
+public class NioHttpClientTest {
+
+    private static final int NUMBER_OF_KEYS = 100;
+
+    private static final int CONNECTIONS = 4;
+
+    private static final int REQUESTS = 5;
+
+    private static final int TIMEOUT = 5000;
+
+    /**
+     * Tests that every request of every connection is injected and measured.
+     * 
+     * @throws IOException if the server cannot be started
+     */
+    public void testRequests() throws IOException {
+        final TargetServer server = new TargetServer(0, TableType.DJBX33A, 0, 2);
+        server.start();
+        try {
+            final NioHttpClient client = newClient(server.getAddress());
+            client.run();
+
+            final RequestMetrics metrics = client.getMetrics();
+            Assert.assertEquals(metrics.getErrors(), 0);
+            Assert.assertEquals(metrics.getHistogram(Phase.CONNECT).getCount(), CONNECTIONS * REQUESTS);
+            Assert.assertEquals(metrics.getHistogram(Phase.WRITE).getCount(), CONNECTIONS * REQUESTS);
+            Assert.assertEquals(metrics.getHistogram(Phase.RESPONSE).getCount(), CONNECTIONS * REQUESTS);
+            Assert.assertEquals(server.getParsedKeys(), CONNECTIONS * REQUESTS * NUMBER_OF_KEYS);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that refused connections are counted as errors.
+     * 
+     * @throws IOException if no free port is found
+     */
+    public void testClosedPort() throws IOException {
+        final ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName(null));
+        final InetSocketAddress address = (InetSocketAddress) socket.getLocalSocketAddress();
+        socket.close();
+
+        final NioHttpClient client = newClient(address);
+        client.run();
+
+        final RequestMetrics metrics = client.getMetrics();
+        Assert.assertEquals(metrics.getErrors(), CONNECTIONS * REQUESTS);
+        Assert.assertEquals(metrics.getHistogram(Phase.RESPONSE).getCount(), 0);
+    }
+
+    private static NioHttpClient newClient(final InetSocketAddress address) {
+        final HttpHost target = new HttpHost(Protocol.HTTP, address.getAddress().getHostAddress(), address.getPort(),
+                TIMEOUT, TIMEOUT);
+
+        return new NioHttpClient(CONNECTIONS, REQUESTS, target, payload(), true, Charsets.UTF_8);
+    }
+
+    private static byte[] payload() {
+        final List<String> collisions = new DJBX33ACollisionGenerator().generateCollisions(NUMBER_OF_KEYS,
+                new NoProgressMonitorFactory(), true);
+
+        final FormUrlEncoder body = new FormUrlEncoder(Charsets.UTF_8);
+        for (final String key : collisions) {
+            body.addKey(key);
+        }
+
+        final byte[] head = ("POST / HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: application/x-www-form-urlencoded\r\nContent-Length: " + body.size() + "\r\n\r\n")
+                .getBytes(Charsets.US_ASCII);
+
+        final byte[] payload = new byte[head.length + body.size()];
+        System.arraycopy(head, 0, payload, 0, head.length);
+        body.writeTo(payload, head.length);
+
+        return payload;
+    }
+}
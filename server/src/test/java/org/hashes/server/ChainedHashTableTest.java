@@ -0,0 +1,78 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.server;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.hashes.algorithm.DJBX33AHashAlgorithm;
+import org.hashes.collision.DJBX33ACollisionGenerator;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Chained hash table tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "server.ChainedHashTableTest")
+public class ChainedHashTableTest {
+
+    private static final int SIZE = 10000;
+
+    /**
+     * Tests that the table behaves like a {@link HashMap}.
+     */
+    public void testPutAndGet() {
+        final Random random = new Random(SIZE);
+        final Map<String, String> expected = new HashMap<String, String>();
+        final ChainedHashTable table = new ChainedHashTable(new DJBX33AHashAlgorithm());
+
+        for (int i = 0; i < SIZE; i++) {
+            final String key = Integer.toString(random.nextInt(SIZE), Character.MAX_RADIX);
+            final String value = String.valueOf(i);
+            expected.put(key, value);
+            table.put(key, value);
+        }
+
+        Assert.assertEquals(table.size(), expected.size());
+        for (final Entry<String, String> entry : expected.entrySet()) {
+            Assert.assertEquals(table.get(entry.getKey()), entry.getValue());
+        }
+        Assert.assertNull(table.get("missing key"));
+    }
+
+    /**
+     * Tests that colliding keys end up in a single bucket.
+     */
+    public void testCollisions() {
+        final List<String> collisions = new DJBX33ACollisionGenerator().generateCollisions(SIZE,
+                new NoProgressMonitorFactory(), true);
+        final ChainedHashTable table = new ChainedHashTable(new DJBX33AHashAlgorithm());
+
+        for (final String key : collisions) {
+            table.put(key, key);
+        }
+
+        Assert.assertEquals(table.size(), SIZE);
+        Assert.assertEquals(table.getLongestChain(), SIZE);
+    }
+}
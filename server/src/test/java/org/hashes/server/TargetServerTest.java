@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2012 Pedro Ribeiro
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.hashes.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+
+import org.hashes.collision.DJBX33ACollisionGenerator;
+import org.hashes.progress.NoProgressMonitorFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Target server tests.
+ * 
+ * @author ribeirux
+ * @version $Revision$
+ */
+@Test(groups = "functional", testName = "server.TargetServerTest")
+public class TargetServerTest {
+
+    private static final int NUMBER_OF_KEYS = 2000;
+
+    /**
+     * Tests that posted keys are parsed and timed.
+     * 
+     * @throws IOException if the server cannot be reached
+     */
+    public void testParse() throws IOException {
+        final TargetServer server = new TargetServer(0, TableType.DJBX33A, 0, 1);
+        server.start();
+        try {
+            final String response = post(server.getAddress(), keys(NUMBER_OF_KEYS));
+
+            Assert.assertTrue(response.startsWith("HTTP/1.1 200"), response);
+            Assert.assertTrue(response.contains("keys=" + NUMBER_OF_KEYS + "&distinct=" + NUMBER_OF_KEYS), response);
+            Assert.assertEquals(server.getParsedKeys(), NUMBER_OF_KEYS);
+            Assert.assertEquals(server.getParseTimes().getCount(), 1);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Tests that extra keys are ignored once the limit is reached.
+     * 
+     * @throws IOException if the server cannot be reached
+     */
+    public void testMaxKeys() throws IOException {
+        final TargetServer server = new TargetServer(0, TableType.HASH_MAP, 1000, 1);
+        server.start();
+        try {
+            final String response = post(server.getAddress(), keys(NUMBER_OF_KEYS));
+
+            Assert.assertTrue(response.contains("keys=1000&"), response);
+            Assert.assertEquals(server.getParsedKeys(), 1000);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static String keys(final int numberOfKeys) {
+        final List<String> collisions = new DJBX33ACollisionGenerator().generateCollisions(numberOfKeys,
+                new NoProgressMonitorFactory(), true);
+
+        return Joiner.on("=&").join(collisions) + "=";
+    }
+
+    private static String post(final InetSocketAddress address, final String body) throws IOException {
+        final Socket socket = new Socket(address.getAddress(), address.getPort());
+        try {
+            final byte[] content = body.getBytes(Charsets.US_ASCII);
+            final String head = "POST / HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Type: application/x-www-form-urlencoded\r\nContent-Length: " + content.length
+                    + "\r\n\r\n";
+
+            final OutputStream output = socket.getOutputStream();
+            output.write(head.getBytes(Charsets.US_ASCII));
+            output.write(content);
+            output.flush();
+
+            // the server closes the connection after each response
+            final InputStream input = socket.getInputStream();
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            ByteStreams.copy(input, response);
+
+            return new String(response.toByteArray(), Charsets.US_ASCII);
+        } finally {
+            socket.close();
+        }
+    }
+}
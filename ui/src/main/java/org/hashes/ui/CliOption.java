@@ -57,6 +57,14 @@ public enum CliOption {
     @SuppressWarnings("static-access")
     V8(OptionBuilder.withDescription("Build V8 payload using MITM algorithm (default: OFF)").hasOptionalArg()
             .withArgName("seed").withType(String.class).withLongOpt("v8").create("g")),
+    /**
+     * Save request metrics
+     */
+    @SuppressWarnings("static-access")
+    SAVE_METRICS(OptionBuilder
+            .withDescription("Save request latency metrics to file, as JSON if the file name ends with .json or as CSV"
+                    + " otherwise (default: OFF)")
+            .hasArg().withArgName("file").withType(String.class).withLongOpt("metrics").create("x")),
     /**
      * Wait for response
      */
@@ -67,8 +75,10 @@ public enum CliOption {
      * Save keys
      */
     @SuppressWarnings("static-access")
-    SAVE_KEYS(OptionBuilder.withDescription("Save keys to file (default: OFF)").hasArg().withArgName("file")
-            .withType(String.class).withLongOpt("save").create("s")),
+    SAVE_KEYS(OptionBuilder
+            .withDescription("Save keys to file, using the binary format if the file name ends with .bin"
+                    + " (default: OFF)")
+            .hasArg().withArgName("file").withType(String.class).withLongOpt("save").create("s")),
     /**
      * Wait for response
      */
@@ -98,6 +108,45 @@ public enum CliOption {
     @SuppressWarnings("static-access")
     CLIENTS(OptionBuilder.withDescription("Number of clients to run (default: 1)").hasArg().withArgName("clients")
             .withType(Number.class).withLongOpt("clients").create("c")),
+    /**
+     * Client mode
+     */
+    @SuppressWarnings("static-access")
+    CLIENT_MODE(OptionBuilder
+            .withDescription("Client mode: blocking (one thread per client), virtual (one virtual thread per client)"
+                    + " or nio (HTTP only) (default: blocking)")
+            .hasArg().withArgName("mode").withLongOpt("client-mode").create("o")),
+    /**
+     * Number of event loop threads
+     */
+    @SuppressWarnings("static-access")
+    EVENT_LOOPS(OptionBuilder
+            .withDescription("Number of event loop threads in nio mode (default: number of available processors)")
+            .hasArg().withArgName("event loops").withType(Number.class).withLongOpt("event-loops").create("l")),
+    /**
+     * Baseline vs collision benchmark
+     */
+    @SuppressWarnings("static-access")
+    BENCHMARK(OptionBuilder
+            .withDescription("Instead of injecting collisions, compare the response times of the colliding payload"
+                    + " against a non colliding payload of the same size (default: OFF)").hasArg()
+            .withArgName("samples").withType(Number.class).withLongOpt("benchmark").create("q")),
+    /**
+     * Key count ramp
+     */
+    @SuppressWarnings("static-access")
+    RAMP(OptionBuilder
+            .withDescription("Instead of injecting collisions, measure the response time of a geometric key count ramp"
+                    + " from min to max keys, in 10 steps by default (default: OFF)").hasArg()
+            .withArgName("min:max[:steps]").withLongOpt("ramp").create("u")),
+    /**
+     * Verify keys file
+     */
+    @SuppressWarnings("static-access")
+    VERIFY(OptionBuilder
+            .withDescription("Instead of injecting collisions, verify that all keys of the file are unique and have the"
+                    + " same hash, reading the binary format if the file name ends with .bin (default: OFF)").hasArg()
+            .withArgName("file").withType(String.class).withLongOpt("verify").create("v")),
     /**
      * Connection timeout in seconds
      */
@@ -118,6 +167,60 @@ public enum CliOption {
     MITM_WORKER_THREADS(OptionBuilder
             .withDescription("Number of MITM worker threads (default: number of available processors)").hasArg()
             .withArgName("worker threads").withType(Number.class).withLongOpt("mitm-worker-threads").create("t")),
+    /**
+     * MITM checkpoint file
+     */
+    @SuppressWarnings("static-access")
+    MITM_CHECKPOINT(OptionBuilder
+            .withDescription("Save MITM generation progress to file and resume from it if it exists (default: OFF)")
+            .hasArg().withArgName("file").withType(String.class).withLongOpt("checkpoint").create("f")),
+    /**
+     * MITM lookup table size and storage
+     */
+    @SuppressWarnings("static-access")
+    MITM_TABLE(OptionBuilder
+            .withDescription("Number of MITM lookup table entries of each seed, kept in the heap, in direct memory"
+                    + " (direct) or in a memory mapped file (mapped) (default: 262144:heap)").hasArg()
+            .withArgName("entries[:storage]").withLongOpt("mitm-table").create("i")),
+    /**
+     * MITM key geometry
+     */
+    @SuppressWarnings("static-access")
+    MITM_KEY(OptionBuilder
+            .withDescription("Number of enumerated and lookup table characters of each MITM key (default: 7:3)")
+            .hasArg().withArgName("prefix:sufix").withLongOpt("mitm-key").create("y")),
+    /**
+     * MITM lookup table seed
+     */
+    @SuppressWarnings("static-access")
+    MITM_TABLE_SEED(OptionBuilder
+            .withDescription("Seed of the MITM lookup table sufixes, runs with the same seed generate the same keys"
+                    + " (default: random)").hasArg().withArgName("seed").withLongOpt("mitm-table-seed").create("z")),
+    /**
+     * Number of buckets of the target hash table
+     */
+    @SuppressWarnings("static-access")
+    BUCKETS(OptionBuilder
+            .withDescription("Number of buckets of the target hash table, a power of two: keys of the asp and v8"
+                    + " generators only need to fall in the same bucket as the seed, and so do verified text files"
+                    + " (default: OFF)").hasArg()
+            .withArgName("buckets").withType(Number.class).withLongOpt("buckets").create("B")),
+    /**
+     * Characters of the generated keys
+     */
+    @SuppressWarnings("static-access")
+    ALPHABET(OptionBuilder
+            .withDescription("Characters of the generated keys, distinct printable ASCII characters (default: the"
+                    + " characters sent as a single byte in a form body)").hasArg().withArgName("characters")
+            .withLongOpt("alphabet").create("A")),
+    /**
+     * Number of MITM blocks of each key
+     */
+    @SuppressWarnings("static-access")
+    MITM_STAGES(OptionBuilder
+            .withDescription("Number of MITM blocks of each key, the keys are combined from about keys^(1/stages)"
+                    + " blocks of each stage: much faster, but longer keys (default: 1)").hasArg()
+            .withArgName("stages").withType(Number.class).withLongOpt("mitm-stages").create("S")),
     /**
      * Custom headers.
      */
@@ -154,20 +257,38 @@ public enum CliOption {
         lang.addOption(ASP.getOption());
         lang.addOption(V8.getOption());
 
+        // both replace the injection by a measurement
+        final OptionGroup measurement = new OptionGroup();
+        measurement.setRequired(false);
+        measurement.addOption(BENCHMARK.getOption());
+        measurement.addOption(RAMP.getOption());
+
         final Options options = new Options();
         options.addOption(HELP.getOption());
         options.addOption(PROGRESS_BAR.getOption());
         options.addOption(SAVE_KEYS.getOption());
+        options.addOption(SAVE_METRICS.getOption());
         options.addOption(WAIT.getOption());
         options.addOption(NEW.getOption());
         options.addOption(KEYS.getOption());
         options.addOption(REQUESTS.getOption());
         options.addOption(CLIENTS.getOption());
+        options.addOption(CLIENT_MODE.getOption());
+        options.addOption(EVENT_LOOPS.getOption());
+        options.addOption(VERIFY.getOption());
         options.addOption(CONNECTION_TIMEOUT.getOption());
         options.addOption(READ_TIMEOUT.getOption());
         options.addOption(MITM_WORKER_THREADS.getOption());
+        options.addOption(MITM_CHECKPOINT.getOption());
+        options.addOption(MITM_TABLE.getOption());
+        options.addOption(MITM_KEY.getOption());
+        options.addOption(MITM_TABLE_SEED.getOption());
+        options.addOption(BUCKETS.getOption());
+        options.addOption(ALPHABET.getOption());
+        options.addOption(MITM_STAGES.getOption());
         options.addOption(HEADER.getOption());
         options.addOptionGroup(lang);
+        options.addOptionGroup(measurement);
 
         return options;
     }
@@ -16,9 +16,11 @@
 package org.hashes.ui;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
+import java.util.Locale;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -29,14 +31,29 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hashes.CollisionInjector;
+import org.hashes.algorithm.DJBX31AHashAlgorithm;
+import org.hashes.algorithm.DJBX33AHashAlgorithm;
+import org.hashes.algorithm.DJBX33XHashAlgorithm;
+import org.hashes.algorithm.HashAlgorithm;
+import org.hashes.algorithm.V8HashAlgorithm;
 import org.hashes.collision.AbstractCollisionGenerator;
+import org.hashes.collision.AbstractMITMGenerator;
 import org.hashes.collision.DJBX31ACollisionGenerator;
 import org.hashes.collision.DJBX33ACollisionGenerator;
 import org.hashes.collision.DJBX33XCollisionGenerator;
+import org.hashes.collision.MITMConfiguration;
+import org.hashes.collision.MITMConfiguration.MITMConfigurationBuilder;
+import org.hashes.collision.MITMConfiguration.Storage;
 import org.hashes.collision.V8CollisionGenerator;
+import org.hashes.config.ClientMode;
 import org.hashes.config.Configuration;
 import org.hashes.config.Configuration.ConfigurationBuilder;
+import org.hashes.config.KeyRamp;
 import org.hashes.ui.progress.SysOutProgressMonitorFactory;
+import org.hashes.verify.CollisionVerifier;
+import org.hashes.verify.VerificationResult;
+
+import com.google.common.base.Charsets;
 
 /**
  * Hashes command line interface implementation.
@@ -54,6 +71,10 @@ public class HashesCli {
 
     private static final String HEADER_SEPARATOR = ":";
 
+    private static final String RAMP_SEPARATOR = ":";
+
+    private static final String MITM_SEPARATOR = ":";
+
     private static final String CLI_SYNTAX = "hashes [options...] <POST url>";
 
     /**
@@ -70,6 +91,10 @@ public class HashesCli {
             final CommandLine cmd = parser.parse(options, args);
             if (cmd.hasOption(CliOption.HELP.getOption().getOpt())) {
                 printHelp(options);
+            } else if (cmd.hasOption(CliOption.VERIFY.getOption().getOpt())) {
+                if (!verifyKeys(cmd)) {
+                    System.exit(1);
+                }
             } else {
                 final HashesCli app = new HashesCli();
                 app.createCollisionInjector(buidConfiguration(cmd)).start();
@@ -131,6 +156,11 @@ public class HashesCli {
             builder.saveCollisionsToFile(new File(saveKeys));
         }
 
+        final String saveMetrics = (String) cmd.getParsedOptionValue(CliOption.SAVE_METRICS.getOption().getOpt());
+        if (saveMetrics != null) {
+            builder.saveMetricsToFile(new File(saveMetrics));
+        }
+
         if (cmd.hasOption(CliOption.WAIT.getOption().getOpt())) {
             builder.waitForResponse();
         }
@@ -166,6 +196,37 @@ public class HashesCli {
             builder.withNumberOfClients(numberOfClients);
         }
 
+        if (cmd.hasOption(CliOption.CLIENT_MODE.getOption().getOpt())) {
+            final String mode = cmd.getOptionValue(CliOption.CLIENT_MODE.getOption().getOpt());
+            try {
+                builder.withClientMode(ClientMode.fromModeName(mode));
+            } catch (final IllegalArgumentException e) {
+                throw new ParseException("Unsupported client mode: " + mode);
+            }
+        }
+
+        if (cmd.hasOption(CliOption.EVENT_LOOPS.getOption().getOpt())) {
+            final Object eventLoops = cmd.getParsedOptionValue(CliOption.EVENT_LOOPS.getOption().getOpt());
+            final int numberOfEventLoops = ((Number) eventLoops).intValue();
+            if (numberOfEventLoops <= 0) {
+                throw new ParseException("The number of event loops should be greater than 0");
+            }
+            builder.withEventLoops(numberOfEventLoops);
+        }
+
+        if (cmd.hasOption(CliOption.BENCHMARK.getOption().getOpt())) {
+            final Object samples = cmd.getParsedOptionValue(CliOption.BENCHMARK.getOption().getOpt());
+            final int benchmarkSamples = ((Number) samples).intValue();
+            if (benchmarkSamples <= 0) {
+                throw new ParseException("The number of benchmark samples should be greater than 0");
+            }
+            builder.withBenchmarkSamples(benchmarkSamples);
+        }
+
+        if (cmd.hasOption(CliOption.RAMP.getOption().getOpt())) {
+            builder.withKeyRamp(parseKeyRamp(cmd.getOptionValue(CliOption.RAMP.getOption().getOpt())));
+        }
+
         if (cmd.hasOption(CliOption.CONNECTION_TIMEOUT.getOption().getOpt())) {
             final Object timeout = cmd.getParsedOptionValue(CliOption.CONNECTION_TIMEOUT.getOption().getOpt());
             final int connectionTimeout = ((Number) timeout).intValue();
@@ -203,44 +264,207 @@ public class HashesCli {
         return builder.build();
     }
 
-    private static Integer getMITMWorkerThreads(final CommandLine cmd) throws ParseException {
-        Integer mitmWorkerThreads = null;
+    private static KeyRamp parseKeyRamp(final String value) throws ParseException {
+        final String[] parts = value.split(RAMP_SEPARATOR);
+        if (parts.length < 2 || parts.length > 3) {
+            throw new ParseException("Malformed key ramp: " + value);
+        }
+
+        try {
+            final int minKeys = Integer.parseInt(parts[0].trim());
+            final int maxKeys = Integer.parseInt(parts[1].trim());
+            final int steps = parts.length == 3 ? Integer.parseInt(parts[2].trim()) : KeyRamp.DEFAULT_STEPS;
+            if (minKeys >= maxKeys) {
+                throw new ParseException("The maximum number of keys of the ramp should be greater than the minimum");
+            }
+
+            return new KeyRamp(minKeys, maxKeys, steps);
+        } catch (final IllegalArgumentException e) {
+            throw new ParseException("Malformed key ramp: " + value);
+        }
+    }
+
+    private static boolean verifyKeys(final CommandLine cmd) throws ParseException, IOException {
+        final String fileName = (String) cmd.getParsedOptionValue(CliOption.VERIFY.getOption().getOpt());
+        final VerificationResult result = new CollisionVerifier(getHashAlgorithm(cmd), null, getBucketMask(cmd))
+                .verify(fileName, Charsets.UTF_8);
+
+        if (result.isValid()) {
+            if (LOG.isInfoEnabled()) {
+                LOG.info(fileName + ": " + result);
+            }
+        } else if (LOG.isErrorEnabled()) {
+            LOG.error(fileName + ": " + result);
+        }
+
+        return result.isValid();
+    }
+
+    private static HashAlgorithm getHashAlgorithm(final CommandLine cmd) {
+        HashAlgorithm algorithm = new DJBX33AHashAlgorithm();
+
+        if (cmd.hasOption(CliOption.JAVA.getOption().getOpt())) {
+            algorithm = new DJBX31AHashAlgorithm();
+        } else if (cmd.hasOption(CliOption.ASP.getOption().getOpt())) {
+            algorithm = new DJBX33XHashAlgorithm();
+        } else if (cmd.hasOption(CliOption.V8.getOption().getOpt())) {
+            algorithm = new V8HashAlgorithm();
+        }
+
+        return algorithm;
+    }
+
+    private static MITMConfiguration getMITMConfiguration(final CommandLine cmd, final String seed)
+            throws ParseException {
+        final MITMConfigurationBuilder builder = new MITMConfigurationBuilder(seed);
 
         if (cmd.hasOption(CliOption.MITM_WORKER_THREADS.getOption().getOpt())) {
-            mitmWorkerThreads = ((Number) cmd.getParsedOptionValue(CliOption.MITM_WORKER_THREADS.getOption().getOpt()))
-                    .intValue();
+            final int mitmWorkerThreads = ((Number) cmd.getParsedOptionValue(CliOption.MITM_WORKER_THREADS.getOption()
+                    .getOpt())).intValue();
             if (mitmWorkerThreads <= 0) {
                 throw new ParseException("The number of MITM workers should be greater than 0");
             }
+            builder.withWorkerThreads(mitmWorkerThreads);
+        }
+
+        final String checkpoint = (String) cmd.getParsedOptionValue(CliOption.MITM_CHECKPOINT.getOption().getOpt());
+        if (checkpoint != null) {
+            builder.withCheckpointFile(new File(checkpoint));
+        }
+
+        if (cmd.hasOption(CliOption.MITM_TABLE.getOption().getOpt())) {
+            parseMITMTable(cmd.getOptionValue(CliOption.MITM_TABLE.getOption().getOpt()), builder);
+        }
+
+        if (cmd.hasOption(CliOption.MITM_KEY.getOption().getOpt())) {
+            parseMITMKey(cmd.getOptionValue(CliOption.MITM_KEY.getOption().getOpt()), builder);
+        }
+
+        if (cmd.hasOption(CliOption.MITM_TABLE_SEED.getOption().getOpt())) {
+            final String tableSeed = cmd.getOptionValue(CliOption.MITM_TABLE_SEED.getOption().getOpt());
+            try {
+                builder.withTableSeed(Long.parseLong(tableSeed.trim()));
+            } catch (final NumberFormatException e) {
+                throw new ParseException("Malformed MITM lookup table seed: " + tableSeed);
+            }
+        }
+
+        builder.withBucketMask(getBucketMask(cmd));
+
+        if (cmd.hasOption(CliOption.ALPHABET.getOption().getOpt())) {
+            builder.withAlphabet(parseAlphabet(cmd.getOptionValue(CliOption.ALPHABET.getOption().getOpt())));
+        }
+
+        if (cmd.hasOption(CliOption.MITM_STAGES.getOption().getOpt())) {
+            final int stages = ((Number) cmd.getParsedOptionValue(CliOption.MITM_STAGES.getOption().getOpt()))
+                    .intValue();
+            if (stages <= 0) {
+                throw new ParseException("The number of MITM stages should be greater than 0");
+            }
+            if (stages > 1 && checkpoint != null) {
+                throw new ParseException("MITM runs with several stages can't be checkpointed");
+            }
+            builder.withStages(stages);
+        }
+
+        return builder.build();
+    }
+
+    private static int getBucketMask(final CommandLine cmd) throws ParseException {
+        if (!cmd.hasOption(CliOption.BUCKETS.getOption().getOpt())) {
+            return -1;
+        }
+
+        final Number buckets = (Number) cmd.getParsedOptionValue(CliOption.BUCKETS.getOption().getOpt());
+        final long value = buckets.longValue();
+        if (value < 2 || value > 1L << 30 || Long.bitCount(value) != 1 || value != buckets.doubleValue()) {
+            throw new ParseException("The number of buckets should be a power of two between 2 and 2^30");
+        }
+
+        return (int) value - 1;
+    }
+
+    private static void parseMITMTable(final String value, final MITMConfigurationBuilder builder)
+            throws ParseException {
+        final String[] parts = value.split(MITM_SEPARATOR);
+        if (parts.length < 1 || parts.length > 2) {
+            throw new ParseException("Malformed MITM lookup table: " + value);
+        }
+
+        try {
+            builder.withLookupTableSize(Integer.parseInt(parts[0].trim()));
+            if (parts.length == 2) {
+                builder.withStorage(Storage.valueOf(parts[1].trim().toUpperCase(Locale.ENGLISH)));
+            }
+        } catch (final IllegalArgumentException e) {
+            throw new ParseException("Malformed MITM lookup table: " + value);
         }
+    }
 
-        return mitmWorkerThreads;
+    private static void parseMITMKey(final String value, final MITMConfigurationBuilder builder)
+            throws ParseException {
+        final String[] parts = value.split(MITM_SEPARATOR);
+        if (parts.length != 2) {
+            throw new ParseException("Malformed MITM key geometry: " + value);
+        }
+
+        try {
+            builder.withPrefixLength(Integer.parseInt(parts[0].trim()));
+            builder.withSufixLength(Integer.parseInt(parts[1].trim()));
+        } catch (final IllegalArgumentException e) {
+            throw new ParseException("Malformed MITM key geometry: " + value);
+        }
     }
 
     private static AbstractCollisionGenerator getCollisionGenerator(final CommandLine cmd) throws ParseException {
         AbstractCollisionGenerator algorithm = null;
 
+        final String alphabet = cmd.getOptionValue(CliOption.ALPHABET.getOption().getOpt());
         if (cmd.hasOption(CliOption.JAVA.getOption().getOpt())) {
 
-            algorithm = new DJBX31ACollisionGenerator();
+            algorithm = alphabet == null ? new DJBX31ACollisionGenerator() : new DJBX31ACollisionGenerator(
+                    parseAlphabet(alphabet));
         } else if (cmd.hasOption(CliOption.PHP.getOption().getOpt())) {
 
-            algorithm = new DJBX33ACollisionGenerator();
+            algorithm = alphabet == null ? new DJBX33ACollisionGenerator() : new DJBX33ACollisionGenerator(
+                    parseAlphabet(alphabet));
         } else if (cmd.hasOption(CliOption.ASP.getOption().getOpt())) {
 
             final String seed = (String) cmd.getParsedOptionValue(CliOption.ASP.getOption().getOpt());
-            final Integer workerThreads = getMITMWorkerThreads(cmd);
-            algorithm = new DJBX33XCollisionGenerator(seed, workerThreads);
+            algorithm = new DJBX33XCollisionGenerator(getMITMConfiguration(cmd, seed));
         } else if (cmd.hasOption(CliOption.V8.getOption().getOpt())) {
 
             final String seed = (String) cmd.getParsedOptionValue(CliOption.V8.getOption().getOpt());
-            final Integer workerThreads = getMITMWorkerThreads(cmd);
-            algorithm = new V8CollisionGenerator(seed, workerThreads);
+            algorithm = new V8CollisionGenerator(getMITMConfiguration(cmd, seed));
+        } else if (alphabet != null) {
+
+            // PHP is the default
+            algorithm = new DJBX33ACollisionGenerator(parseAlphabet(alphabet));
+        }
+
+        if (cmd.hasOption(CliOption.BUCKETS.getOption().getOpt()) && !(algorithm instanceof AbstractMITMGenerator)) {
+            throw new ParseException("The number of buckets only applies to the asp and v8 generators");
         }
 
         return algorithm;
     }
 
+    private static String parseAlphabet(final String alphabet) throws ParseException {
+        if (alphabet.length() < 2) {
+            throw new ParseException("The alphabet should have at least 2 characters");
+        }
+
+        for (int i = 0; i < alphabet.length(); i++) {
+            final char c = alphabet.charAt(i);
+            if (c < ' ' || c > '~' || alphabet.indexOf(c) != i) {
+                throw new ParseException("Malformed alphabet, expected distinct printable ASCII characters: "
+                        + alphabet);
+            }
+        }
+
+        return alphabet;
+    }
+
     private static void printHelp(final Options options) {
 
         final HelpFormatter formatter = new HelpFormatter();
@@ -15,15 +15,22 @@
  */
 package org.hashes.ui.progress;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hashes.progress.ProgressMonitor;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Progress monitor which prints the progress of a task to system out.
+ * <p>
+ * Updates only record the completed work, the progress is rendered by a single timer thread every
+ * {@value #REFRESH_MILLIS} ms, so workers never contend or block on console I/O.
  * 
  * @author ribeirux
  */
@@ -31,18 +38,26 @@ public class SysOutProgressMonitor implements ProgressMonitor {
 
     private static final int BLOCK_WEIGHT = 4;
 
+    private static final long REFRESH_MILLIS = 250;
+
+    private static final ScheduledExecutorService RENDERER = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("progress-renderer")
+                    .setDaemon(true).build());
+
     private final String info;
 
     private final Integer totalWork;
 
-    private volatile boolean done;
+    private final AtomicLong completed = new AtomicLong();
+
+    private final long startTime;
 
-    // concurrency
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledFuture<?> rendering;
 
-    private final Lock read = this.lock.readLock();
+    // guards the console between the renderer and done
+    private final Object console = new Object();
 
-    private final Lock write = this.lock.writeLock();
+    private boolean done;
 
     /**
      * Creates a new immutable instance.
@@ -55,68 +70,81 @@ public class SysOutProgressMonitor implements ProgressMonitor {
         this.info = Preconditions.checkNotNull(info, "info");
         this.totalWork = totalWork == null ? null : totalWork > 0 ? totalWork : 0;
         this.done = false;
-        this.printProgress(0);
+        this.startTime = System.nanoTime();
+        this.rendering = RENDERER.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                SysOutProgressMonitor.this.render();
+            }
+        }, 0, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void update(final int work) {
-        if (this.totalWork != null && work * 100 % this.totalWork == 0) {
-            final String progress = this.buildProgress(work * 100 / this.totalWork);
-
-            // concurrent reads
-            this.read.lock();
-            try {
-                // once done, never go back
-                if (!this.done) {
-                    this.printProgress(progress);
-                }
-            } finally {
-                this.read.unlock();
-            }
+        // updates may arrive out of order, keep the highest
+        long current = this.completed.get();
+        while (work > current && !this.completed.compareAndSet(current, work)) {
+            current = this.completed.get();
         }
     }
 
     @Override
     public void done() {
-        // if this method is called several times, don't screw the layout
-        boolean doneBefore = false;
+        this.rendering.cancel(false);
 
-        this.write.lock();
-        try {
-            // once done, never go back
-            doneBefore = this.done;
+        synchronized (this.console) {
+            // if this method is called several times, don't screw the layout
             if (!this.done) {
                 this.done = true;
+                if (this.totalWork != null) {
+                    this.completed.set(this.totalWork);
+                }
+                System.out.println(this.buildProgress());
             }
-        } finally {
-            this.write.unlock();
         }
+    }
 
-        if (!doneBefore) {
-            this.printProgress(100);
-            System.out.println();
+    private void render() {
+        synchronized (this.console) {
+            // once done, never go back
+            if (!this.done) {
+                System.out.print(this.buildProgress() + '\r');
+            }
         }
     }
 
-    private void printProgress(final int percetage) {
-        this.printProgress(this.buildProgress(percetage));
-    }
+    private String buildProgress() {
+        final long work = this.completed.get();
+        final long elapsed = System.nanoTime() - this.startTime;
+        final double rate = elapsed > 0 ? work * (double) TimeUnit.SECONDS.toNanos(1) / elapsed : 0;
+
+        final StringBuilder builder = new StringBuilder(this.info).append(' ');
+        if (this.totalWork != null) {
+            final long percentage = this.totalWork == 0 ? 100 : Math.min(100, work * 100 / this.totalWork);
 
-    private String buildProgress(final int percentage) {
-        final StringBuilder builder = new StringBuilder(this.info + " |");
+            builder.append('|');
+            for (int i = 0; i < 100 / BLOCK_WEIGHT; i++) {
+                builder.append(i < percentage / BLOCK_WEIGHT ? '#' : ' ');
+            }
+            builder.append("| ").append(percentage).append("% ");
+        }
+        builder.append(work).append(" (").append(Math.round(rate)).append("/s)");
 
-        for (int i = 0; i < 100 / BLOCK_WEIGHT; i++) {
-            if (i < percentage / BLOCK_WEIGHT) {
-                builder.append('#');
+        if (this.totalWork != null && !this.done) {
+            builder.append(" ETA ");
+            if (rate > 0) {
+                appendTime(builder, Math.round(Math.max(0, this.totalWork - work) / rate));
             } else {
-                builder.append(' ');
+                builder.append("--:--:--");
             }
         }
 
-        return builder.append("| " + percentage + "%\r").toString();
+        // clears leftovers of longer lines
+        return builder.append("    ").toString();
     }
 
-    private void printProgress(final String progress) {
-        System.out.print(progress);
+    private static void appendTime(final StringBuilder builder, final long seconds) {
+        builder.append(String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60));
     }
 }